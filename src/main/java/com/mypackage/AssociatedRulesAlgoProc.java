@@ -23,18 +23,39 @@ import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Result;
 import org.neo4j.logging.Log;
 import org.neo4j.procedure.*;
-import org.neo4j.graphdb.Transaction;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 import java.util.stream.Stream;
 
-import com.mypackage.datastructures.triangularmatrix.TriangularMatrix;
+import com.mypackage.dataset.Dataset;
+import com.mypackage.dataset.DatasetCache;
+import com.mypackage.datastructures.itemset.ItemsetTrie;
+import com.mypackage.output.ResultQueue;
+import com.mypackage.results.ItemsetChangeResult;
+import com.mypackage.results.ItemsetResult;
 import com.mypackage.results.LongResult;
-import com.mypackage.tools.MemoryLogger;
+import com.mypackage.results.RuleResult;
+import com.mypackage.results.SweepCountResult;
+import com.mypackage.results.SweepItemsetResult;
+import com.mypackage.rules.AssociationRule;
+import com.mypackage.rules.RuleSink;
+import com.mypackage.tools.ProcedureConfig;
 import com.mypackage.input.TransactionDatabase;
+import com.mypackage.incremental.IncrementalDatabase;
+import com.mypackage.incremental.ItemsetChangeSink;
+import com.mypackage.incremental.SlidingWindow;
 
 /**
  * The main class for Associated Rules algorithms. It runs as a database extension of Neo4j.
@@ -49,52 +70,27 @@ public class AssociatedRulesAlgoProc {
     @Context
     public Log log;
 
-    /** relative minimum support **/
-    private static int minsupRelative = 500;
-    /** the transaction database **/
-    private static TransactionDatabase database;
-
-    /** Where to save results. Valid values are: 'file', 'cache', 'json', 'neo4j' */
-    private static String destination = "file";
-
-    /** object to save result in memory **/
-    private static StringBuffer resultBuffer = new StringBuffer();
-
-    /** object to write the output file */
-    private static BufferedWriter writer = null;
-
-    /** query log for debugging ONLY */
-    private static BufferedWriter queryLogWriter = null;
-
-    /** the number of patterns found */
-    private static int itemsetCount = 0;
-    private static int singleItemCount = 0;
-
-    /** the accumulated time spent */
-    private static long startTimestamp;
-    private static long endTime;
-    private static long totalAlgoTime = 0L;
-    private static long totalDababaseTime = 0L;
-
-    /** For optimization with a triangular matrix for counting itemsets of size 2.  */
-    private static TriangularMatrix matrix;
-
-    /** Only for neo4j: Cypher template used to create rules */
-    private static String cypherTemplate =
-            "WITH apoc.coll.sort(result.itemSet) AS itemSet, result.item AS item, result.support AS support\n" +
-            "MATCH (t) WHERE id(t) = item\n" +
-            "MERGE (ar:ARItem{id:[item]})\n" +
-            "  ON CREATE SET ar.title = t.name, ar.support = support\n" +
-            "WITH item, itemSet, support, ar, apoc.coll.sort(itemSet+item) AS itemSetSorted\n" +
-            "WHERE size(itemSet) > 0\n" +
-            "MATCH (ar2:ARItem{id:itemSet})\n" +
-            "MERGE (ar3:ARItem{id:itemSetSorted})\n" +
-            "  ON CREATE SET ar3.support = support\n" +
-            "MERGE (ar) -[r1:ASSOCIATES_WITH]-> (ar3)\n" +
-            "  ON CREATE SET r1.confidence = toFloat(ar3.support) / ar.support, r1.assocItemIds = itemSet, r1.level = size(itemSet) + 1\n" +
-            "MERGE (ar2) -[r2:ASSOCIATES_WITH]-> (ar3)\n" +
-            "  ON CREATE SET r2.confidence = toFloat(ar3.support) / ar2.support, r2.assocItemIds = [item], r2.level = size(itemSet) + 1\n" +
-            "RETURN *";
+    /** The largest number of mining jobs running at the same time, over all the procedure calls */
+    private static final int MAX_RUNNING_JOBS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    /** The largest number of mining jobs waiting for a thread: more jobs are rejected */
+    private static final int MAX_WAITING_JOBS = 64;
+
+    /** The threads running the mining jobs. Each job has its own MiningSession, so jobs run concurrently. */
+    private static final ExecutorService miningJobs = createJobExecutor();
+
+
+    /** Only for update: the transaction database kept in memory between calls, guarded by incrementalLock */
+    private static IncrementalDatabase incrementalDatabase = null;
+
+    /** Only for update: held while the database is created or reset and updated, so that updates run one at a time */
+    private static final Object incrementalLock = new Object();
+
+    /** The sliding windows of transactions, by name */
+    private static final ConcurrentHashMap<String, SlidingWindow> windows = new ConcurrentHashMap<String, SlidingWindow>();
+
+    /** The datasets loaded by dataset.load, by name, within a quarter of the heap by default */
+    private static final DatasetCache datasets = new DatasetCache(Runtime.getRuntime().maxMemory() / 4);
 
     /**
      * Invoke Equivalent CLAass Transformation algorithm（ECLAT) to generate associated rules for given item set.
@@ -105,40 +101,75 @@ public class AssociatedRulesAlgoProc {
      * @param cypherItemSet Cypher to execute that returns item sets.
      * @param minSupportRatio minimal support ratio, i.e. min percentage of transactions the item should be included.
      * @param optimized whether to use Triangular Matrix to optimize execution.
+     * @param config optional settings: {algorithm: 'eclat' | 'fpgrowth', tidset: 'hashset' | 'roaring',
+     *               diffsetDepth: 0..n, parallelism: 1..n,
+     *               itemsets: 'all' | 'closed' | 'maximal', topK: 0..n, maxLength: 0..n, mustContain: [items],
+     *               consequentIn: [items], batchSize: rows per statement, commitSize: rows per transaction,
+     *               dataset: the name of a dataset loaded by dataset.load, mined instead of cypherItemset}.
+     *               With topK, minSupportRatio is only a lower bound. With consequentIn, the itemsets without
+     *               any of these items are only kept if they are the antecedent of a rule with such a consequent.
+     *
+     * The itemsets are written by another thread, in its own transactions committed every commitSize itemsets,
+     * not in the transaction of the caller: if the procedure fails or is terminated, the itemsets already
+     * committed stay in the graph, and rolling back the caller's transaction does not remove them.
      */
     @Procedure(mode = Mode.WRITE)
-    @Description("mypackage.assocrule.eclat(cypherItemset, minSupportRatio, optimized) YIELD value")
+    @Description("mypackage.assocrule.eclat(cypherItemset, minSupportRatio, optimized, config) YIELD value - " +
+            "itemsets are committed every commitSize rows, outside of the caller's transaction")
     public Stream<LongResult> eclat(
             @Name("cypherItemset") String cypherItemSet,
             @Name("minSupportRatio") Double minSupportRatio,
-            @Name("optimized") Boolean optimized) {
+            @Name("optimized") Boolean optimized,
+            @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
 
-        if (cypherItemSet == null || cypherItemSet.isEmpty())
+        ProcedureConfig settings = new ProcedureConfig(config);
+        if ((cypherItemSet == null || cypherItemSet.isEmpty()) && settings.getString(ProcedureConfig.DATASET, null) == null)
             return null;
 
-        if(database == null)
-            database = new TransactionDatabase();
-
         minSupportRatio = (minSupportRatio == null) ? 0.01 : minSupportRatio;  // default min support ratio is 1%
         optimized = (optimized == null) ? true : optimized;                     // default to use triangular matrix
 
-        log.info("##assocrule.eclat## Initialized. Parameters: {minSupportRatio}=" + minSupportRatio + ", {optimized}=" + optimized);
+        final MiningSession session = new MiningSession(db);
+        session.setAlgorithm(settings.getString(ProcedureConfig.ALGORITHM, "eclat"));
+        session.setTidsetMode(settings.getString(ProcedureConfig.TIDSET, "hashset"));
+        session.setDiffsetDepth(settings.getInt(ProcedureConfig.DIFFSET_DEPTH, 0));
+        session.setParallelism(settings.getInt(ProcedureConfig.PARALLELISM, 1));
+        session.setMatrixMode(settings.getString(ProcedureConfig.MATRIX, "auto"));
+        session.setOffHeap(settings.getBoolean(ProcedureConfig.OFF_HEAP, false));
+        session.setItemsetMode(settings.getString(ProcedureConfig.ITEMSETS, "all"));
+        session.setTopK(settings.getInt(ProcedureConfig.TOP_K, 0));
+        session.setMaxLength(settings.getInt(ProcedureConfig.MAX_LENGTH, 0));
+        session.setMustContain(settings.getLongArray(ProcedureConfig.MUST_CONTAIN));
+        session.setConsequentIn(settings.getLongArray(ProcedureConfig.CONSEQUENT_IN));
+        session.setBatchSize(settings.getInt(ProcedureConfig.BATCH_SIZE, 1000), settings.getInt(ProcedureConfig.COMMIT_SIZE, 10000));
+
+        log.info("##assocrule.eclat## Initialized. Parameters: {minSupportRatio}=" + minSupportRatio + ", {optimized}=" + optimized
+                + ", " + session.getSettingsDescription());
         log.info("##assocrule.eclat## {cypher} = ...");
         log.info(cypherItemSet);
 
-        try (Result result = db.execute(cypherItemSet)) {
+        try {
+            // Execute Cypher and load results into a new TransactionDatabase, or take those of a cached dataset
+            TransactionDatabase database = loadTransactions(session, cypherItemSet, settings);
             log.info("##assocrule.eclat## cypher execution completed. Start building rule graph...");
-
-            // Execute Cypher and load results into TransactionDatabase
-            database.loadResult(result, ",");
-            log.info("##assocrule.eclat## Total # items: " + database.getItems().size() + ", from # transactions:" + database.getTransactions().size());
+            log.info("##assocrule.eclat## Total # items: " + database.itemSize() + ", from # transactions:" + database.size());
 
             // Running the ECLAT algorithm
-            destination = "neo4j";    // used for Neo4j
-            runAlgorithm(null, minSupportRatio, optimized);
+            session.setDestination("neo4j");    // used for Neo4j
+            final double minsupp = minSupportRatio;
+            final boolean useTriangularMatrix = optimized;
+            runJob(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    session.runAlgorithm(null, minsupp, useTriangularMatrix);
+                    return null;
+                }
+            });
+            // the vertical index of a cached dataset may have grown
+            datasets.trim();
 
-            log.info("##assocrule.eclat## Completed. Total # single item = " + singleItemCount + ", # item set = " + itemsetCount);
-            log.info("##assocrule.eclat## Total algorithm time = " + totalAlgoTime + "s, total db-time = " + totalDababaseTime / 1000 + "s.");
+            log.info("##assocrule.eclat## Completed. Total # single item = " + session.getSingleItemCount() + ", # item set = " + session.getItemsetCount());
+            log.info("##assocrule.eclat## Total algorithm time = " + session.getTotalAlgoTime() + "s, total db-time = " + session.getTotalDatabaseTime() / 1000 + "s.");
 
             return Stream.of(new LongResult((long) database.itemSize()));
         }
@@ -149,532 +180,625 @@ public class AssociatedRulesAlgoProc {
     }
 
     /**
-     * Run the algorithm.
-     * @param output an output file path for writing the result or if null the result is saved into memory and returned
-     * @param minsupp the minimum support
-     * @param useTriangularMatrixOptimization if true the triangular matrix optimization will be applied.
-     * @throws IOException exception if error while writing the file.
+     * Invoke dEclat, the variant of ECLAT which stores differences of tidsets (diffsets) instead of tidsets
+     * to generate associated rules for given item set. On dense data, diffsets are much smaller than tidsets.
+     *
+     * Original algorithm is from Zaki, M. J. and Gouda, K. (2003). "Fast vertical mining using diffsets".
+     * Proceedings of the 9th ACM SIGKDD: 326–335.
+     *
+     * @param cypherItemSet Cypher to execute that returns item sets.
+     * @param minSupportRatio minimal support ratio, i.e. min percentage of transactions the item should be included.
+     * @param optimized whether to use Triangular Matrix to optimize execution.
+     * @param config optional settings, same as eclat(). diffsetDepth defaults to 1, i.e. diffsets are used
+     *               from the equivalence classes of 2-itemsets.
      */
-    public void runAlgorithm( String output,
-                              double minsupp,
-                              boolean useTriangularMatrixOptimization
-    ) throws Exception {
-
-        MemoryLogger.getInstance().reset();
-        // if the user want to keep the result into memory
-        if(output != null){
-            writer = new BufferedWriter(new FileWriter(output));
-        }
+    @Procedure(mode = Mode.WRITE)
+    @Description("mypackage.assocrule.declat(cypherItemset, minSupportRatio, optimized, config) YIELD value")
+    public Stream<LongResult> declat(
+            @Name("cypherItemset") String cypherItemSet,
+            @Name("minSupportRatio") Double minSupportRatio,
+            @Name("optimized") Boolean optimized,
+            @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
 
-        // reset the number of itemset found to 0
-        itemsetCount =0;
-
-        startTimestamp = System.currentTimeMillis();
-
-        // calculate the min transaction number by multiplying minsupp by the database size
-        minsupRelative = (int) Math.ceil(minsupp * database.size());
-
-        // (1) First database pass : calculate TransactionIdSet(tidsets) of each item.
-        // Key: item   Value :  tidset
-        final Map<Integer, Set<Integer>> mapItemCount = new HashMap<Integer, Set<Integer>>();
-
-        int maxItemId = calculateSupportSingleItems(database, mapItemCount);
-
-        if (useTriangularMatrixOptimization) {
-            // create the triangular matrix.
-            matrix = new TriangularMatrix(maxItemId + 1);
-            // for each transaction, take each itemset of size 2,
-            // and update the triangular matrix.
-            for (List<Integer> itemset : database.getTransactions()) {
-                Object[] array = itemset.toArray();
-                // for each item i in the transaction
-                for (int i = 0; i < itemset.size(); i++) {
-                    Integer itemI = (Integer) array[i];
-                    // compare with each other item j in the same transaction
-                    for (int j = i + 1; j < itemset.size(); j++) {
-                        Integer itemJ = (Integer) array[j];
-                        // update the matrix count by 1 for the pair i, j
-                        matrix.incrementCount(itemI, itemJ);
-                    }
-                }
-            }
-        }
+        Map<String, Object> settings = new HashMap<String, Object>();
+        settings.put(ProcedureConfig.DIFFSET_DEPTH, 1);
+        if (config != null)
+            settings.putAll(config);
 
-        // (2) create the list of single items
-        List<Integer> frequentItems = new ArrayList<Integer>();
-
-        // for each item
-        for(Map.Entry<Integer, Set<Integer>> entry : mapItemCount.entrySet()) {
-            // get the tidset of that item
-            Set<Integer> tidset = entry.getValue();
-            // get the support of that item (the cardinality of the tidset)
-            int support = tidset.size();
-            int item = entry.getKey();
-            // if the item is frequent
-            if(support >= minsupRelative) {
-                // add the item to the list of frequent single items
-                frequentItems.add(item);
-                // output the item
-                saveSingleItem(item, tidset, tidset.size());
-            }
-        }
+        return eclat(cypherItemSet, minSupportRatio, optimized, settings);
+    }
 
-        // Sort the list of items by the total order of increasing support.
-        // This total order is suggested in the article by Zaki.
-        Collections.sort(frequentItems, new Comparator<Integer>() {
+    /**
+     * Invoke ECLAT and stream the frequent itemsets as records, without writing anything into the graph.
+     * Itemsets are produced by a miner thread as the records are consumed, through a bounded queue,
+     * so they are never all held in memory. Closing the stream early (e.g. LIMIT) stops the miner.
+     *
+     * @param cypherItemSet Cypher to execute that returns item sets.
+     * @param minSupportRatio minimal support ratio, i.e. min percentage of transactions the item should be included.
+     * @param optimized whether to use Triangular Matrix to optimize execution.
+     * @param config optional settings, same as eclat(), plus queueSize: the capacity of the queue (default 10000).
+     */
+    @Procedure(name = "com.mypackage.eclat.stream", mode = Mode.READ)
+    @Description("mypackage.assocrule.eclat.stream(cypherItemset, minSupportRatio, optimized, config) YIELD itemSet, item, support")
+    public Stream<ItemsetResult> eclatStream(
+            @Name("cypherItemset") String cypherItemSet,
+            @Name("minSupportRatio") Double minSupportRatio,
+            @Name("optimized") Boolean optimized,
+            @Name(value = "config", defaultValue = "{}") Map<String, Object> config) throws Exception {
+
+        ProcedureConfig settings = new ProcedureConfig(config);
+        if ((cypherItemSet == null || cypherItemSet.isEmpty()) && settings.getString(ProcedureConfig.DATASET, null) == null)
+            return Stream.empty();
+
+        final double minsupp = (minSupportRatio == null) ? 0.01 : minSupportRatio;
+        final boolean useTriangularMatrix = (optimized == null) ? true : optimized;
+
+        final MiningSession session = new MiningSession(db);
+        session.setAlgorithm(settings.getString(ProcedureConfig.ALGORITHM, "eclat"));
+        session.setTidsetMode(settings.getString(ProcedureConfig.TIDSET, "hashset"));
+        session.setDiffsetDepth(settings.getInt(ProcedureConfig.DIFFSET_DEPTH, 0));
+        session.setParallelism(settings.getInt(ProcedureConfig.PARALLELISM, 1));
+        session.setMatrixMode(settings.getString(ProcedureConfig.MATRIX, "auto"));
+        session.setOffHeap(settings.getBoolean(ProcedureConfig.OFF_HEAP, false));
+        session.setItemsetMode(settings.getString(ProcedureConfig.ITEMSETS, "all"));
+        session.setTopK(settings.getInt(ProcedureConfig.TOP_K, 0));
+        session.setMaxLength(settings.getInt(ProcedureConfig.MAX_LENGTH, 0));
+        session.setMustContain(settings.getLongArray(ProcedureConfig.MUST_CONTAIN));
+        session.setConsequentIn(settings.getLongArray(ProcedureConfig.CONSEQUENT_IN));
+
+        TransactionDatabase database = loadTransactions(session, cypherItemSet, settings);
+        log.info("##assocrule.eclat.stream## Total # items: " + database.itemSize() + ", from # transactions:" + database.size());
+
+        final ResultQueue<ItemsetResult> queue = new ResultQueue<ItemsetResult>(settings.getInt(ProcedureConfig.QUEUE_SIZE, 10000));
+        session.setStreamQueue(queue);
+        session.setDestination("stream");
+
+        return streamInBackground(queue, new Callable<Void>() {
             @Override
-            public int compare(Integer arg0, Integer arg1) {
-                return mapItemCount.get(arg0).size() - mapItemCount.get(arg1).size();
-            }});
+            public Void call() throws Exception {
+                session.runAlgorithm(null, minsupp, useTriangularMatrix);
+                datasets.trim();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Invoke ECLAT, then generate the association rules X ==> Y of the frequent itemsets in memory, and stream
+     * them as records, without writing anything into the graph. Rules are generated from the supports of the
+     * frequent itemsets held in a trie, as the records are consumed.
+     *
+     * @param cypherItemSet Cypher to execute that returns item sets.
+     * @param minSupportRatio minimal support ratio, i.e. min percentage of transactions the item should be included.
+     * @param minConfidence minimal confidence of a rule, i.e. sup(X u Y) / sup(X). Default value is 0.5.
+     * @param config optional settings, same as eclat.stream(), except for itemsets, topK and mustContain.
+     *               With consequentIn, only the rules whose consequent is made of these items are generated.
+     */
+    @Procedure(name = "com.mypackage.eclat.rules", mode = Mode.READ)
+    @Description("mypackage.assocrule.eclat.rules(cypherItemset, minSupportRatio, minConfidence, config) " +
+            "YIELD antecedent, consequent, support, confidence, lift, leverage, conviction")
+    public Stream<RuleResult> eclatRules(
+            @Name("cypherItemset") String cypherItemSet,
+            @Name("minSupportRatio") Double minSupportRatio,
+            @Name("minConfidence") Double minConfidence,
+            @Name(value = "config", defaultValue = "{}") Map<String, Object> config) throws Exception {
 
-        // 3) Now we will combine each pairs of single items to generate equivalence classes
-        // of 2-itemsets
+        ProcedureConfig settings = new ProcedureConfig(config);
+        if ((cypherItemSet == null || cypherItemSet.isEmpty()) && settings.getString(ProcedureConfig.DATASET, null) == null)
+            return Stream.empty();
 
-        for(int i=0; i < frequentItems.size(); i++) {
-            Integer itemI = frequentItems.get(i);
+        final double minsupp = (minSupportRatio == null) ? 0.01 : minSupportRatio;
+        final double minconf = (minConfidence == null) ? 0.5 : minConfidence;
 
-            // obtain the tidset and support of that item
-            Set<Integer> tidsetI = mapItemCount.get(itemI);
-            int supportI = tidsetI.size();
+        final MiningSession session = new MiningSession(db);
+        session.setAlgorithm(settings.getString(ProcedureConfig.ALGORITHM, "eclat"));
+        session.setTidsetMode(settings.getString(ProcedureConfig.TIDSET, "hashset"));
+        session.setDiffsetDepth(settings.getInt(ProcedureConfig.DIFFSET_DEPTH, 0));
+        session.setParallelism(settings.getInt(ProcedureConfig.PARALLELISM, 1));
+        session.setMatrixMode(settings.getString(ProcedureConfig.MATRIX, "auto"));
+        session.setOffHeap(settings.getBoolean(ProcedureConfig.OFF_HEAP, false));
+        session.setMaxLength(settings.getInt(ProcedureConfig.MAX_LENGTH, 0));
+        session.setConsequentIn(settings.getLongArray(ProcedureConfig.CONSEQUENT_IN));
 
-            List<Integer> equivalenceClassIitems = new ArrayList<Integer>();
-            List<Set<Integer>> equivalenceClassItidsets = new ArrayList<Set<Integer>>();
+        TransactionDatabase database = loadTransactions(session, cypherItemSet, settings);
+        log.info("##assocrule.eclat.rules## Total # items: " + database.itemSize() + ", from # transactions:" + database.size());
 
-            loopJ:
-            for(int j=i+1; j < frequentItems.size(); j++) {
-                int itemJ = frequentItems.get(j);
+        final ResultQueue<RuleResult> queue = new ResultQueue<RuleResult>(settings.getInt(ProcedureConfig.QUEUE_SIZE, 10000));
 
-                // Retrieve support of item "ij" from the triangular matrix.
-                if(useTriangularMatrixOptimization) {
-                    int support = matrix.getSupportForItems(itemI, itemJ);
-                    // if not frequent
-                    if (support < minsupRelative) {
-                        continue loopJ;
+        return streamInBackground(queue, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                session.generateRules(minsupp, minconf, new RuleSink() {
+                    @Override
+                    public void save(AssociationRule rule) throws Exception {
+                        queue.put(new RuleResult(session.toDictionaryItemList(rule.getAntecedent()),
+                                session.toDictionaryItemList(rule.getConsequent()),
+                                (long) rule.getSupport(), rule.getConfidence(), rule.getLift(),
+                                rule.getLeverage(), rule.getConviction()));
                     }
-                }
+                });
+                datasets.trim();
+                return null;
+            }
+        });
+    }
 
-                // Obtain the tidset of item J and its support.
-                Set<Integer> tidsetJ = mapItemCount.get(itemJ);
-                int supportJ = tidsetJ.size();
+    /**
+     * Invoke ECLAT once for a list of minimum supports, instead of once per minimum support: the itemsets are mined
+     * at the lowest one, and each itemset is streamed with the highest minimum support it reaches. The itemsets of
+     * a minimum support are those tagged with it or a higher one.
+     *
+     * @param cypherItemSet Cypher to execute that returns item sets.
+     * @param minSupportRatios the minimal support ratios, in any order.
+     * @param optimized whether to use Triangular Matrix to optimize execution.
+     * @param config optional settings, same as eclat.stream(), except for topK and consequentIn. itemsets may be
+     *               'all' or 'closed'.
+     */
+    @Procedure(name = "com.mypackage.eclat.sweep", mode = Mode.READ)
+    @Description("mypackage.assocrule.eclat.sweep(cypherItemset, minSupportRatios, optimized, config) " +
+            "YIELD itemSet, item, support, minSupportRatio")
+    public Stream<SweepItemsetResult> eclatSweep(
+            @Name("cypherItemset") String cypherItemSet,
+            @Name("minSupportRatios") List<Double> minSupportRatios,
+            @Name("optimized") Boolean optimized,
+            @Name(value = "config", defaultValue = "{}") Map<String, Object> config) throws Exception {
 
-                // Calculate the tidset of itemset "IJ" by performing the intersection of
-                // the tidsets of I and the tidset of J.
-                Set<Integer> tidsetIJ = performAND(tidsetI, supportI, tidsetJ, supportJ);
+        ProcedureConfig settings = new ProcedureConfig(config);
+        if ((cypherItemSet == null || cypherItemSet.isEmpty()) && settings.getString(ProcedureConfig.DATASET, null) == null)
+            return Stream.empty();
 
-                // Add itemJ to the equivalence class of 2-itemsets starting with the prefix "i".
-                equivalenceClassIitems.add(itemJ);
-                // Save the tidset of "ij".
-                equivalenceClassItidsets.add(tidsetIJ);
-            }
-            // Process all itemsets from the equivalence class of 2-itemsets starting with prefix I
-            // to find larger itemsets if that class has more than 0 itemsets.
-            if(equivalenceClassIitems.size() > 0) {
-                // This is done by a recursive call. Note that we pass
-                // item I to that method as the prefix of that equivalence class.
-                processEquivalenceClass(new int[]{itemI}, supportI, equivalenceClassIitems, equivalenceClassItidsets);
-            }
-        }
+        final boolean useTriangularMatrix = (optimized == null) ? true : optimized;
+        final MiningSession session = newSweepSession(minSupportRatios, settings);
+        TransactionDatabase database = loadTransactions(session, cypherItemSet, settings);
+        log.info("##assocrule.eclat.sweep## Total # items: " + database.itemSize() + ", from # transactions:" + database.size()
+                + ", {minSupportRatios}=" + Arrays.toString(session.getThresholds()));
 
-        // Check the memory usage
-        MemoryLogger.getInstance().checkMemory();
+        final ResultQueue<SweepItemsetResult> queue = new ResultQueue<SweepItemsetResult>(settings.getInt(ProcedureConfig.QUEUE_SIZE, 10000));
+        session.setSweepQueue(queue);
+        session.setDestination("sweep");
 
-        if(writer != null){
-            writer.close();
-        }
+        return streamInBackground(queue, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                session.runAlgorithm(null, session.getThresholds()[0], useTriangularMatrix);
+                datasets.trim();
+                return null;
+            }
+        });
+    }
 
-        // Record the end time for statistics
-        endTime = System.currentTimeMillis();
-        totalAlgoTime = (endTime - startTimestamp) / 1000;
+    /**
+     * Invoke ECLAT once for a list of minimum supports, and return the number of frequent itemsets at each one,
+     * without writing or streaming the itemsets. This is a quick way to choose a minimum support.
+     *
+     * @param cypherItemSet Cypher to execute that returns item sets.
+     * @param minSupportRatios the minimal support ratios, in any order.
+     * @param optimized whether to use Triangular Matrix to optimize execution.
+     * @param config optional settings, same as eclat.sweep().
+     */
+    @Procedure(name = "com.mypackage.eclat.sweep.counts", mode = Mode.READ)
+    @Description("mypackage.assocrule.eclat.sweep.counts(cypherItemset, minSupportRatios, optimized, config) " +
+            "YIELD minSupportRatio, minSupport, itemsets")
+    public Stream<SweepCountResult> eclatSweepCounts(
+            @Name("cypherItemset") String cypherItemSet,
+            @Name("minSupportRatios") List<Double> minSupportRatios,
+            @Name("optimized") Boolean optimized,
+            @Name(value = "config", defaultValue = "{}") Map<String, Object> config) throws Exception {
+
+        ProcedureConfig settings = new ProcedureConfig(config);
+        if ((cypherItemSet == null || cypherItemSet.isEmpty()) && settings.getString(ProcedureConfig.DATASET, null) == null)
+            return Stream.empty();
+
+        final boolean useTriangularMatrix = (optimized == null) ? true : optimized;
+        final MiningSession session = newSweepSession(minSupportRatios, settings);
+        TransactionDatabase database = loadTransactions(session, cypherItemSet, settings);
+        log.info("##assocrule.eclat.sweep.counts## Total # items: " + database.itemSize() + ", from # transactions:" + database.size()
+                + ", {minSupportRatios}=" + Arrays.toString(session.getThresholds()));
+
+        // the itemsets are only counted
+        session.setDestination("count");
+        runJob(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                session.runAlgorithm(null, session.getThresholds()[0], useTriangularMatrix);
+                return null;
+            }
+        });
+        datasets.trim();
+
+        double[] thresholds = session.getThresholds();
+        int[] supports = session.getThresholdSupports();
+        long[] counts = session.getThresholdItemsetCounts();
+        List<SweepCountResult> results = new ArrayList<SweepCountResult>(thresholds.length);
+        for (int k = 0; k < thresholds.length; k++) {
+            results.add(new SweepCountResult(thresholds[k], (long) supports[k], counts[k]));
+        }
+        log.info("##assocrule.eclat.sweep.counts## Completed. Total algorithm time = " + session.getTotalAlgoTime() + "s.");
+        return results.stream();
     }
 
     /**
-     * This method scans the database to calculate the support of each single item.
+     * Create the session of a sweep of minimum supports, with the settings of eclat.stream().
      *
-     * @param database the transaction database
-     * @param mapItemTIDS  a map to store the tidset corresponding to each item
-     * @return the maximum item id appearing in this database
+     * @param minSupportRatios the minimal support ratios, null values being ignored
+     * @param settings the configuration of the procedure
+     * @return the session.
+     * @throws IllegalArgumentException if there is no minimal support ratio
      */
-    private int calculateSupportSingleItems(TransactionDatabase database,
-                                            final Map<Integer, Set<Integer>> mapItemTIDS) {
-        int maxItemId = 0;
-        for (int i = 0; i < database.size(); i++) {
-            // for each item in that transaction
-            for (Integer item : database.getTransactions().get(i)) {
-                // get the current tidset of that item
-                Set<Integer> set = mapItemTIDS.get(item);
-                // if no tidset, then we create one
-                if (set == null) {
-                    set = new HashSet<Integer>();
-                    mapItemTIDS.put(item, set);
-                    // if the current item is larger than all items until
-                    // now, remember that!
-                    if (item > maxItemId) {
-                        maxItemId = item;
-                    }
+    private MiningSession newSweepSession(List<Double> minSupportRatios, ProcedureConfig settings) {
+        double[] thresholds = new double[(minSupportRatios == null) ? 0 : minSupportRatios.size()];
+        int count = 0;
+        if (minSupportRatios != null) {
+            for (Double ratio : minSupportRatios) {
+                if (ratio != null) {
+                    thresholds[count++] = ratio;
                 }
-                // add the current transaction id (tid) to the tidset of the item
-                set.add(i);
             }
         }
-        return maxItemId;
+        if (count == 0) {
+            throw new IllegalArgumentException("A sweep needs at least one minimal support ratio");
+        }
+
+        MiningSession session = new MiningSession(db);
+        session.setThresholds(Arrays.copyOf(thresholds, count));
+        session.setAlgorithm(settings.getString(ProcedureConfig.ALGORITHM, "eclat"));
+        session.setTidsetMode(settings.getString(ProcedureConfig.TIDSET, "hashset"));
+        session.setDiffsetDepth(settings.getInt(ProcedureConfig.DIFFSET_DEPTH, 0));
+        session.setParallelism(settings.getInt(ProcedureConfig.PARALLELISM, 1));
+        session.setMatrixMode(settings.getString(ProcedureConfig.MATRIX, "auto"));
+        session.setOffHeap(settings.getBoolean(ProcedureConfig.OFF_HEAP, false));
+        session.setItemsetMode(settings.getString(ProcedureConfig.ITEMSETS, "all"));
+        session.setMaxLength(settings.getInt(ProcedureConfig.MAX_LENGTH, 0));
+        session.setMustContain(settings.getLongArray(ProcedureConfig.MUST_CONTAIN));
+        session.setConsequentIn(settings.getLongArray(ProcedureConfig.CONSEQUENT_IN));
+        return session;
     }
 
     /**
-     * This method processes all itemsets from an equivalence class to generate larger itemsets.
+     * Update the frequent itemsets of a transaction database kept in memory between calls, and stream the itemsets
+     * whose support changed. Only the new and removed transactions are loaded: the tidsets and the pair supports
+     * are updated, and only the equivalence classes of the items of these transactions are mined again.
+     * The first call (or a call with reset) loads the whole database, and streams all its frequent itemsets.
+     * Concurrent calls are applied one after the other. The changes are buffered in memory until the update
+     * is complete, then streamed.
      *
-     * @param prefix  a common prefix to all itemsets of the equivalence class
-     * @param supportPrefix the support of the prefix (not used by eclat, but used by dEclat)
-     * @param equivalenceClassItems  a list of suffixes of itemsets in the current equivalence class.
-     * @param equivalenceClassTidsets a list of tidsets of itemsets of the current equivalence class.
+     * @param cypherAdded Cypher to execute that returns the item sets of the new transactions, may be null.
+     * @param cypherRemoved Cypher to execute that returns the item sets of the removed transactions, may be null.
+     *                      A removed transaction is found by its items.
+     * @param minSupportRatio minimal support ratio, of the number of transactions after the update.
+     * @param config optional settings: {reset: true to drop the database in memory first}, and the columns of the rows.
      */
-    private void processEquivalenceClass(int[] prefix, int supportPrefix, List<Integer> equivalenceClassItems,
-                                         List<Set<Integer>> equivalenceClassTidsets) throws Exception {
-
-        // If there is only one itemset in equivalence class
-        if(equivalenceClassItems.size() == 1) {
-            int itemI = equivalenceClassItems.get(0);
-            Set<Integer> tidsetItemset = equivalenceClassTidsets.get(0);
-
-            // Just save that itemset by calling save() with the prefix "prefix" and the suffix
-            int support = calculateSupport(prefix.length, supportPrefix, tidsetItemset);
-            save(prefix, itemI, tidsetItemset, support);
-            return;
-        }
+    @Procedure(name = "com.mypackage.eclat.update", mode = Mode.READ)
+    @Description("mypackage.assocrule.eclat.update(cypherAdded, cypherRemoved, minSupportRatio, config) " +
+            "YIELD itemSet, item, support, previousSupport")
+    public Stream<ItemsetChangeResult> eclatUpdate(
+            @Name("cypherAdded") String cypherAdded,
+            @Name("cypherRemoved") String cypherRemoved,
+            @Name("minSupportRatio") Double minSupportRatio,
+            @Name(value = "config", defaultValue = "{}") Map<String, Object> config) throws Exception {
 
-        // If there are only two itemsets in the equivalence class
-        if(equivalenceClassItems.size() == 2) {
-            // Get the prefix of the itemset (an item called I)
-            int itemI = equivalenceClassItems.get(0);
-            Set<Integer> tidsetI = equivalenceClassTidsets.get(0);
-            int supportI = calculateSupport(prefix.length, supportPrefix, tidsetI);
-            // Save item I
-            save(prefix, itemI, tidsetI, supportI);
-
-            // Get the suffix of the itemset (an item called J)
-            int itemJ = equivalenceClassItems.get(1);
-            Set<Integer> tidsetJ = equivalenceClassTidsets.get(1);
-            int supportJ = calculateSupport(prefix.length, supportPrefix, tidsetJ);
-            // Save item J
-            save(prefix, itemJ, tidsetJ, supportJ);
-
-            // Calculate the tidset of the itemset by uniting itemset I and J.
-            Set<Integer> tidsetIJ = performAND(tidsetI, tidsetI.size(), tidsetJ, tidsetJ.size());
-            // Save the itemset prefix+IJ to the output if it has enough support
-            if(tidsetIJ.size() >= minsupRelative) {
-                int newPrefix[] = new int[prefix.length +1];
-                System.arraycopy(prefix, 0, newPrefix, 0, prefix.length);
-                newPrefix[prefix.length] = itemI;
-                int supportIJ = calculateSupport(newPrefix.length, supportI, tidsetIJ);
-                save(newPrefix, itemJ, tidsetIJ, supportIJ);
-            }
-            return;
-        }
+        double minsupp = (minSupportRatio == null) ? 0.01 : minSupportRatio;
+        ProcedureConfig settings = new ProcedureConfig(config);
 
-        // The next loop combines each pairs of itemsets of the equivalence class
-        // to form larger itemsets
-
-        // For each itemset "prefix" + "i"
-        for(int i=0; i< equivalenceClassItems.size(); i++) {
-            int suffixI = equivalenceClassItems.get(i);
-            // get the tidset and support of that itemset
-            Set<Integer> tidsetI = equivalenceClassTidsets.get(i);
-
-            // save the itemset to the file because it is frequent
-            int supportI = calculateSupport(prefix.length, supportPrefix, tidsetI);
-            save(prefix, suffixI, tidsetI, supportI);
-
-            // create the empty equivalence class for storing all itemsets of the
-            // equivalence class starting with prefix + i
-            List<Integer> equivalenceClassISuffixItems= new ArrayList<Integer>();
-            List<Set<Integer>> equivalenceITidsets = new ArrayList<Set<Integer>>();
-
-            // For each itemset "prefix" + j"
-            for(int j=i+1; j < equivalenceClassItems.size(); j++) {
-                int suffixJ = equivalenceClassItems.get(j);
-
-                // Get the tidset and support of the itemset prefix + "j"
-                Set<Integer> tidsetJ = equivalenceClassTidsets.get(j);
-                int supportJ = calculateSupport(prefix.length, supportPrefix, tidsetJ);
-
-                // Calculate the tidset of the itemset {prefix, i,j} by intersecting
-                // the tidset of the itemset prefix+i with the itemset prefix+j.
-                Set<Integer> tidsetIJ = performAND(tidsetI, supportI, tidsetJ, supportJ);
-
-                // If the itemset prefix+i+j is frequent, then we add it to the
-                // equivalence class of itemsets having the prefix "prefix"+i
-                if(tidsetIJ.size() >= minsupRelative) {
-                    equivalenceClassISuffixItems.add(suffixJ);
-                    equivalenceITidsets.add(tidsetIJ);
-                }
-            }
+        TransactionDatabase added = loadBatch(cypherAdded, settings);
+        TransactionDatabase removed = loadBatch(cypherRemoved, settings);
 
-            // If there is more than an itemset in the equivalence class
-            // then we recursively process that equivalence class to find larger itemsets
-            if(equivalenceClassISuffixItems.size() >0) {
-                // We create the itemset prefix + i
-                int newPrefix[] = new int[prefix.length +1];
-                System.arraycopy(prefix, 0, newPrefix, 0, prefix.length);
-                newPrefix[prefix.length] = suffixI;
-                // Recursive call
-                processEquivalenceClass(newPrefix, supportI, equivalenceClassISuffixItems, equivalenceITidsets);
+        final List<ItemsetChangeResult> changes = new ArrayList<ItemsetChangeResult>();
+        IncrementalDatabase database;
+        int removedCount;
+        synchronized (incrementalLock) {
+            if (incrementalDatabase == null || settings.getBoolean(ProcedureConfig.RESET, false)) {
+                incrementalDatabase = new IncrementalDatabase();
             }
+            database = incrementalDatabase;
+            removedCount = database.update(added, removed, minsupp, new ItemsetChangeSink() {
+                @Override
+                public void change(long[] items, int support, int previousSupport) {
+                    List<Long> prefix = new ArrayList<Long>(items.length - 1);
+                    for (int k = 0; k < items.length - 1; k++) {
+                        prefix.add(items[k]);
+                    }
+                    changes.add(new ItemsetChangeResult(prefix, items[items.length - 1],
+                            (support == IncrementalDatabase.NO_SUPPORT) ? null : (long) support,
+                            (previousSupport == IncrementalDatabase.NO_SUPPORT) ? null : (long) previousSupport));
+                }
+            });
         }
 
-        // we check the memory usage
-        MemoryLogger.getInstance().checkMemory();
+        log.info("##assocrule.eclat.update## Added # transactions: " + (added == null ? 0 : added.size())
+                + ", removed # transactions: " + removedCount + ", total # transactions: " + database.size());
+        log.info("##assocrule.eclat.update## # frequent itemsets: " + database.getFrequentItemsetCount()
+                + ", # changes: " + changes.size());
+        return changes.stream();
     }
 
     /**
-     * Calculate the support of an itemset X using the tidset of X.
+     * Add transactions to a sliding window kept in memory, which holds the most recent transactions of a stream.
+     * When the window is full, each new transaction replaces the oldest one, and transactions older than
+     * windowMillis are removed. The tidsets of the items are updated as transactions enter and leave the window.
      *
-     * @param lengthOfX  the length of the itemset X - 1 (used by dEclat)
-     * @param supportPrefix the support of the prefix (not used by Eclat, but used by dEclat).
-     * @param tidsetI the tidset of X
-     * @return the support
+     * @param window the name of the window, created by its first call.
+     * @param cypherItemSet Cypher to execute that returns the item sets of the new transactions.
+     * @param config optional settings, when the window is created: {windowSize: number of transactions (default 100000),
+     *               windowMillis: age of the transactions in milliseconds (default 0, no limit)},
+     *               {reset: true to create the window again}, and the columns of the rows.
+     * @throws IllegalArgumentException if there is no window name
      */
-    private int calculateSupport(int lengthOfX, int supportPrefix, Set<Integer> tidsetI) {
-        return tidsetI.size();
+    @Procedure(name = "com.mypackage.window.add", mode = Mode.READ)
+    @Description("mypackage.assocrule.window.add(window, cypherItemset, config) YIELD value")
+    public Stream<LongResult> windowAdd(
+            @Name("window") String window,
+            @Name("cypherItemset") String cypherItemSet,
+            @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+
+        if (window == null) {
+            throw new IllegalArgumentException("A sliding window needs a name");
+        }
+        ProcedureConfig settings = new ProcedureConfig(config);
+        final boolean reset = settings.getBoolean(ProcedureConfig.RESET, false);
+        final int windowSize = settings.getInt(ProcedureConfig.WINDOW_SIZE, 100000);
+        final long windowMillis = settings.getLong(ProcedureConfig.WINDOW_MILLIS, 0L);
+        // concurrent calls on a new window must add their transactions to the same one
+        SlidingWindow slidingWindow = windows.compute(window, new BiFunction<String, SlidingWindow, SlidingWindow>() {
+            @Override
+            public SlidingWindow apply(String name, SlidingWindow current) {
+                return (current == null || reset) ? new SlidingWindow(windowSize, windowMillis) : current;
+            }
+        });
+
+        TransactionDatabase added = loadBatch(cypherItemSet, settings);
+        int count = (added == null) ? 0 : slidingWindow.add(added, System.currentTimeMillis());
+        log.info("##assocrule.window.add## Window " + window + ": added # transactions: " + count
+                + ", # transactions: " + slidingWindow.size());
+        return Stream.of(new LongResult((long) slidingWindow.size()));
     }
 
     /**
-     * This method performs the intersection of two tidsets.
+     * Find the frequent itemsets of the transactions currently in a sliding window, from the tidsets in memory.
      *
-     * @param tidsetI the first tidset
-     * @param supportI  the cardinality of the first tidset
-     * @param tidsetJ  the second tidset
-     * @param supportJ the cardinality of the second tidset
-     * @return the resulting tidset.
+     * @param window the name of the window.
+     * @param minSupportRatio minimal support ratio, of the number of transactions in the window.
+     * @param config optional settings: {maxLength: 0..n}.
+     * @throws IllegalArgumentException if there is no window name
      */
-    private Set<Integer> performAND(Set<Integer> tidsetI, int supportI,
-                                    Set<Integer> tidsetJ, int supportJ) {
-
-        Set<Integer> tidsetIJ = new HashSet<Integer>();
-        // To reduce the number of comparisons of the two tidsets,
-        // if the tidset of I is larger than the tidset of J,
-        // we will loop on the tidset of J. Otherwise, we will loop on the tidset of I
-        if(supportI > supportJ) {
-            // for each tid containing j
-            for(Integer tid : tidsetJ) {
-                // if the transaction also contains i, add it to tidset of {i,j}
-                if(tidsetI.contains(tid)) {
-                    // add it to the intersection
-                    tidsetIJ.add(tid);
-                }
+    @Procedure(name = "com.mypackage.window.itemsets", mode = Mode.READ)
+    @Description("mypackage.assocrule.window.itemsets(window, minSupportRatio, config) YIELD itemSet, item, support")
+    public Stream<ItemsetResult> windowItemsets(
+            @Name("window") String window,
+            @Name("minSupportRatio") Double minSupportRatio,
+            @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+
+        if (window == null) {
+            throw new IllegalArgumentException("A sliding window needs a name");
+        }
+        SlidingWindow slidingWindow = windows.get(window);
+        if (slidingWindow == null)
+            return Stream.empty();
+
+        double minsupp = (minSupportRatio == null) ? 0.01 : minSupportRatio;
+        ProcedureConfig settings = new ProcedureConfig(config);
+        ItemsetTrie itemsets = slidingWindow.mine(minsupp, settings.getInt(ProcedureConfig.MAX_LENGTH, 0),
+                System.currentTimeMillis());
+
+        List<ItemsetResult> results = new ArrayList<ItemsetResult>(itemsets.size());
+        for (int node = 1; node < itemsets.getNodeCount(); node++) {
+            int support = itemsets.getSupportAt(node);
+            if (support == ItemsetTrie.NO_SUPPORT) {
+                continue;
             }
-        }else {
-            // for each tid containing i
-            for(Integer tid : tidsetI) {
-                // if the transaction also contains j, add it to tidset of {i,j}
-                if(tidsetJ.contains(tid)) {
-                    // add it to the intersection
-                    tidsetIJ.add(tid);
-                }
+            int[] itemset = itemsets.getItemset(node);
+            long[] items = new long[itemset.length];
+            for (int k = 0; k < itemset.length; k++) {
+                items[k] = slidingWindow.itemAt(itemset[k]);
+            }
+            Arrays.sort(items);
+            List<Long> prefix = new ArrayList<Long>(items.length - 1);
+            for (int k = 0; k < items.length - 1; k++) {
+                prefix.add(items[k]);
             }
+            results.add(new ItemsetResult(prefix, items[items.length - 1], (long) support));
         }
-        // return the new tidset
-        return tidsetIJ;
+        log.info("##assocrule.window.itemsets## Window " + window + ": # transactions: " + slidingWindow.size()
+                + ", # frequent itemsets: " + results.size());
+        return results.stream();
     }
 
     /**
-     * Save an itemset to disk or memory (depending on what the user chose).
+     * Load the transactions returned by a Cypher query into a dataset kept in memory, which eclat, eclat.stream and
+     * eclat.rules mine with the setting {dataset: name} instead of running a query. The first ECLAT run on the dataset
+     * also keeps its tidsets and its triangular matrix, so a sweep of minimum supports from the lowest one only scans
+     * the transactions once. The datasets are evicted, least recently used first, beyond a memory budget.
      *
-     * @param prefix the prefix of the itemset to be saved
-     * @param suffixItem  the last item to be appended to the itemset
-     * @param tidset the tidset of this itemset
-     * @param support calculated support for itemset
-     * @throws IOException if an error occurrs when writing to disk.
+     * @param name the name of the dataset, replacing any dataset of this name.
+     * @param cypherItemSet Cypher to execute that returns item sets.
+     * @param config optional settings: {cacheBytes: the memory budget of all the datasets, in bytes
+     *               (default a quarter of the heap), offHeap: true | false}, and the columns of the rows.
      */
-    private void save(int[] prefix, int suffixItem, Set<Integer> tidset, int support) throws Exception {
-        // increase the itemset count
-        itemsetCount++;
-        if(destination.equals("json")){
-            String contentToWrite = "";
-            Long itemData;
-
-            // write prefix as array
-            contentToWrite = "{itemSet:[";
-            for(int item: prefix) {
-                itemData = database.getItemAt(item);
-                contentToWrite = contentToWrite + itemData + ",";
-            }
-            contentToWrite = contentToWrite.substring(0,contentToWrite.length()-1) + "],";
-            resultBuffer.append(contentToWrite);
-
-            // write suffix
-            contentToWrite = "item:";
-            itemData = database.getItemAt(suffixItem);
-            contentToWrite = contentToWrite + itemData + ",";
-            resultBuffer.append(contentToWrite);
-
-            // write support
-            contentToWrite = "support:" + tidset.size() + "}\n";
-            resultBuffer.append(contentToWrite);
-        }
-        else if(destination.equals("neo4j")){
-            Long itemData;
-            itemData = database.getItemAt(suffixItem);
-
-            saveToNeo4j(prefix, itemData, support);
-        }
-        else if(writer != null && destination.equals("file"))
-        {
-            // if the result should be saved to a file
-            // write it to the output file
-            StringBuffer buffer = new StringBuffer();
-            String contentToWrite = "";
-            Long itemData;
-
-            // write prefix as array
-            contentToWrite = "{itemSet:[";
-            for(int item: prefix) {
-                itemData = database.getItemAt(item);
-                contentToWrite = contentToWrite + itemData + ",";
-            }
-            contentToWrite = contentToWrite.substring(0,contentToWrite.length()-1) + "],";
-            buffer.append(contentToWrite);
-
-            // write suffix
-            contentToWrite = "item:";
-            itemData = database.getItemAt(suffixItem);
-            contentToWrite = contentToWrite + itemData + ",";
-            buffer.append(contentToWrite);
+    @Procedure(name = "com.mypackage.dataset.load", mode = Mode.READ)
+    @Description("mypackage.assocrule.dataset.load(name, cypherItemset, config) YIELD value")
+    public Stream<LongResult> datasetLoad(
+            @Name("name") String name,
+            @Name("cypherItemset") String cypherItemSet,
+            @Name(value = "config", defaultValue = "{}") Map<String, Object> config) throws Exception {
 
-            // write support
-            contentToWrite = "support:" + tidset.size() + "}";
-            buffer.append(contentToWrite);
+        if (name == null || cypherItemSet == null || cypherItemSet.isEmpty())
+            return Stream.empty();
 
-            writer.write(buffer.toString());
-            writer.newLine();
+        ProcedureConfig settings = new ProcedureConfig(config);
+        long cacheBytes = settings.getLong(ProcedureConfig.CACHE_BYTES, 0L);
+        if (cacheBytes > 0) {
+            datasets.setMaxBytes(cacheBytes);
         }
+
+        TransactionDatabase database = loadTransactions(cypherItemSet, settings);
+        List<String> evicted = datasets.put(name, new Dataset(database));
+        log.info("##assocrule.dataset.load## Dataset " + name + ": # items: " + database.itemSize()
+                + ", # transactions: " + database.size() + ", evicted datasets: " + evicted
+                + ", cache size: " + datasets.estimateBytes() / (1024 * 1024) + " mb");
+        return Stream.of(new LongResult((long) database.size()));
     }
 
     /**
-     * Return saved results.
+     * Remove a dataset loaded by dataset.load from memory.
+     *
+     * @param name the name of the dataset.
      */
-    public String getResultString(){
-
-        return resultBuffer.toString();
+    @Procedure(name = "com.mypackage.dataset.drop", mode = Mode.READ)
+    @Description("mypackage.assocrule.dataset.drop(name) YIELD value")
+    public Stream<LongResult> datasetDrop(@Name("name") String name) {
+        Dataset dataset = (name == null) ? null : datasets.remove(name);
+        log.info("##assocrule.dataset.drop## Dataset " + name + (dataset == null ? " not found" : " dropped"));
+        return Stream.of(new LongResult(dataset == null ? 0L : 1L));
     }
 
     /**
-     * Save an itemset containing a single item to disk or memory (depending on what the user chose).
+     * Load the transactions returned by a Cypher query into a new transaction database, for an incremental update.
      *
-     * @param item the item to be saved
-     * @param tidset the tidset of this itemset
-     * @param support calculated support for itemset
-     * @throws IOException if an error occurrs when writing to disk.
+     * @param cypherItemSet Cypher to execute that returns item sets, may be null.
+     * @param settings the configuration of the procedure, giving the shape of the rows
+     * @return the transactions, or null if there is no query.
      */
-    private void saveSingleItem(int item, Set<Integer> tidset, int support) throws Exception {
-        // increase the itemset count
-        singleItemCount++;
-
-        if(destination.equals("json")){
-            Long itemData = database.getItemAt(item);
-            resultBuffer.append("{itemSet:[],item:");
-            resultBuffer.append(itemData);
-            resultBuffer.append(",support:");
-            resultBuffer.append(support);
-            resultBuffer.append("}\n");
+    private TransactionDatabase loadBatch(String cypherItemSet, ProcedureConfig settings) {
+        if (cypherItemSet == null || cypherItemSet.isEmpty())
+            return null;
+        TransactionDatabase transactions = new TransactionDatabase();
+        try (Result result = db.execute(cypherItemSet)) {
+            loadResult(transactions, result, settings);
         }
-        else if(destination.equals("neo4j")){
-            Long itemData = database.getItemAt(item);
+        return transactions;
+    }
 
-            saveToNeo4j(null,itemData, support);
-        }
-        else if(destination.equals("file")){
-            // if the result should be saved to a file
-            // write it to the output file
-            StringBuffer buffer = new StringBuffer();
-
-            Long itemData = database.getItemAt(item);
-            buffer.append("{itemSet:[],item:");
-            buffer.append(itemData);
-            buffer.append(",support:");
-            buffer.append(support);
-            buffer.append("}");
-            writer.write(buffer.toString());
-            writer.newLine();
+    /**
+     * Load the transactions returned by a Cypher query into a new transaction database.
+     * This must run in the procedure's thread, which owns the transaction.
+     *
+     * @param cypherItemSet Cypher to execute that returns item sets.
+     * @param settings the configuration of the procedure, giving the shape of the rows
+     * @return the transactions.
+     */
+    private TransactionDatabase loadTransactions(String cypherItemSet, ProcedureConfig settings) throws Exception {
+        TransactionDatabase transactions = new TransactionDatabase();
+        try (Result result = db.execute(cypherItemSet)) {
+            loadResult(transactions, result, settings);
         }
+        transactions.compact(settings.getBoolean(ProcedureConfig.OFF_HEAP, false));
+        return transactions;
     }
 
-    private void saveToNeo4j(int[] prefix, Long itemData, int support)
-            throws Exception
-    {
-        String cypherToRun = "";
-        String contentToWrite = "";
-        Long itemData2;
-
-        // For single item, prefix should be null so to write prefix as blank array
-        if(prefix == null) {
-            cypherToRun = cypherTemplate.replaceAll("result.itemSet", "[] ");
-        } else {
-            // write prefix as array
-            contentToWrite = "[";
-            for(int item: prefix) {
-                itemData2 = database.getItemAt(item);
-                contentToWrite = contentToWrite + itemData2 + ",";
-            }
-
-            contentToWrite = contentToWrite.substring(0,contentToWrite.length()-1) + "] ";
-            cypherToRun = cypherTemplate.replaceAll("result.itemSet",contentToWrite);
+    /**
+     * Set the transactions mined by a session: those of the cached dataset named by the configuration, whose
+     * vertical index the session also reuses, or else those returned by a Cypher query.
+     *
+     * @param session the mining session
+     * @param cypherItemSet Cypher to execute that returns item sets, if there is no dataset.
+     * @param settings the configuration of the procedure
+     * @return the transactions.
+     * @throws IllegalArgumentException if there is no dataset of this name
+     */
+    private TransactionDatabase loadTransactions(MiningSession session, String cypherItemSet, ProcedureConfig settings) throws Exception {
+        String name = settings.getString(ProcedureConfig.DATASET, null);
+        if (name == null) {
+            TransactionDatabase transactions = loadTransactions(cypherItemSet, settings);
+            session.setDatabase(transactions);
+            return transactions;
         }
-
-        // write suffix
-        contentToWrite = itemData + " ";
-        cypherToRun = cypherToRun.replaceAll("result.item",contentToWrite);
-
-        // write support
-        contentToWrite = support + " ";
-        cypherToRun = cypherToRun.replaceAll("result.support",contentToWrite);
-
-        if(queryLogWriter != null){
-            queryLogWriter.write(cypherToRun);
-            queryLogWriter.newLine();
-            queryLogWriter.newLine();
-            queryLogWriter.newLine();
-        }else {
-            try {
-                Long currentTime = System.currentTimeMillis();
-                Transaction tx = db.beginTx();
-                Result res = db.execute(cypherToRun);
-                tx.success();
-                totalDababaseTime += (System.currentTimeMillis() - currentTime);
-            } catch (Exception e) {
-                System.out.println(e.toString());
-            }
+        Dataset dataset = datasets.get(name);
+        if (dataset == null) {
+            throw new IllegalArgumentException("No dataset named " + name + ", it must be loaded by dataset.load");
         }
+        session.setDataset(dataset);
+        return dataset.getDatabase();
     }
 
-    public String getResult() {
-        return resultBuffer.toString();
+    /**
+     * Load the rows of a Cypher result into a transaction database. By default each row holds an item set
+     * in the column itemSetColumn ('itemSet'). If transactionColumn is set, each row holds instead one item
+     * of a transaction, in the columns transactionColumn and itemColumn ('itemId').
+     *
+     * @param transactions the transaction database
+     * @param result the result of the Cypher query
+     * @param settings the configuration of the procedure
+     */
+    private static void loadResult(TransactionDatabase transactions, Result result, ProcedureConfig settings) {
+        String transactionColumn = settings.getString(ProcedureConfig.TRANSACTION_COLUMN, null);
+        if(transactionColumn == null) {
+            transactions.loadItemSets(result,
+                    settings.getString(ProcedureConfig.ITEMSET_COLUMN, TransactionDatabase.DEFAULT_ITEMSET_COLUMN));
+        } else {
+            transactions.loadPairs(result, transactionColumn, settings.getString(ProcedureConfig.ITEM_COLUMN, "itemId"));
+        }
     }
 
-    public void setDestination(String dest) {
-        destination = (dest == null || dest.isEmpty())? "file" : dest;
-    }
+    /**
+     * Run a producer of results as a mining job, and return the results as a lazy stream.
+     * Closing the stream early stops the producer.
+     *
+     * @param queue the queue filled by the producer
+     * @param producer the task producing the results
+     * @return the stream of results.
+     */
+    private <T> Stream<T> streamInBackground(final ResultQueue<T> queue, final Callable<Void> producer) {
+        final Future<?> miner = miningJobs.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    producer.call();
+                    queue.finish();
+                } catch (CancellationException e) {
+                    // the stream was closed by the consumer
+                } catch (Throwable e) {
+                    if (!queue.isCancelled()) {
+                        log.error("##assocrule.eclat## Mining failed", e);
+                        queue.fail(e);
+                    }
+                }
+            }
+        });
 
-    public void setDatabase(TransactionDatabase db) {
-        database = db;
+        return queue.stream(new Runnable() {
+            @Override
+            public void run() {
+                miner.cancel(true);
+            }
+        });
     }
 
-    public void setQueryLogWriter(BufferedWriter writer)
-    {
-        queryLogWriter = writer;
+    /**
+     * Run a mining job in the pool of mining jobs, and wait for its end.
+     * If the procedure is terminated while waiting, the job is stopped.
+     *
+     * @param job the mining job
+     */
+    private static void runJob(Callable<Void> job) throws Exception {
+        Future<Void> future = miningJobs.submit(job);
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+        }
     }
 
     /**
-     * Print statistics about the algorithm execution to System.out.
+     * Create the pool of mining jobs: at most MAX_RUNNING_JOBS threads, which stop when they have been idle
+     * for a minute, and at most MAX_WAITING_JOBS jobs waiting for a thread.
+     *
+     * @return the pool.
      */
-    public void printStats() {
-        System.out.println("=============  ECLAT STATS =============");
-        long temps = endTime - startTimestamp;
-        System.out.println(" Transactions count from database : "
-                + database.size());
-        System.out.println(" Frequent itemsets count : "
-                + itemsetCount);
-        System.out.println(" Total time ~ " + temps + " ms");
-        System.out.println(" Maximum memory usage : "
-                + MemoryLogger.getInstance().getMaxMemory() + " mb");
-        System.out.println("===================================================");
+    private static ExecutorService createJobExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_RUNNING_JOBS, MAX_RUNNING_JOBS, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_WAITING_JOBS), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "assocrule-eclat-job-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 }
@@ -0,0 +1,2060 @@
+/**
+ * Copyright (c) 2019
+ *
+ * This file is part of Associated Rules Algorithms based on ECLAT(Zaki,2000)
+ * built for Neo4j GraphHACK 2019.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mypackage;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.mypackage.dataset.Dataset;
+import com.mypackage.dataset.VerticalIndex;
+import com.mypackage.datastructures.itemset.ItemsetBuffer;
+import com.mypackage.datastructures.itemset.ItemsetMode;
+import com.mypackage.datastructures.itemset.ItemsetStore;
+import com.mypackage.datastructures.itemset.ItemsetTrie;
+import com.mypackage.datastructures.itemset.TopKItemsetStore;
+import com.mypackage.datastructures.tidset.Tidset;
+import com.mypackage.datastructures.tidset.TidsetMode;
+import com.mypackage.datastructures.triangularmatrix.AbstractTriangularMatrix;
+import com.mypackage.datastructures.triangularmatrix.MatrixMode;
+import com.mypackage.output.Neo4jBatchWriter;
+import com.mypackage.output.ResultQueue;
+import com.mypackage.results.ItemsetResult;
+import com.mypackage.results.SweepItemsetResult;
+import com.mypackage.rules.RuleGenerator;
+import com.mypackage.rules.RuleSink;
+import com.mypackage.tools.MemoryLogger;
+import com.mypackage.input.ItemDictionary;
+import com.mypackage.input.RecodedDatabase;
+import com.mypackage.input.TransactionDatabase;
+import com.mypackage.input.TransactionIterator;
+import com.mypackage.input.TransactionStore;
+import com.mypackage.miner.FrequentItemsetMiner;
+import com.mypackage.miner.ItemsetSink;
+import com.mypackage.miner.MinerMode;
+
+/**
+ * The state of one run of the algorithms: the transactions, the settings, the data structures built while
+ * mining, and the destination of the results. A session is created by each procedure call, so concurrent
+ * calls share nothing. A session runs the algorithm once, and is not thread-safe, apart from its own
+ * parallel mining threads.
+ *
+ * @author JY, LX
+ */
+public class MiningSession {
+    /** The database written by the 'neo4j' destination */
+    private final GraphDatabaseService db;
+
+    /** relative minimum support **/
+    private int minsupRelative = 500;
+    /** the transaction database **/
+    private TransactionDatabase database;
+
+    /** Where to save results. Valid values are: 'file', 'cache', 'json', 'neo4j', 'stream', 'rules' */
+    private String destination = "file";
+
+    /** object to save result in memory **/
+    private StringBuffer resultBuffer = new StringBuffer();
+
+    /** object to write the output file */
+    private BufferedWriter writer = null;
+
+    /** query log for debugging ONLY */
+    private BufferedWriter queryLogWriter = null;
+
+    /** the number of patterns found */
+    private final AtomicInteger itemsetCount = new AtomicInteger();
+    private final AtomicInteger singleItemCount = new AtomicInteger();
+
+    /** the accumulated time spent */
+    private long startTimestamp;
+    private long endTime;
+    private long totalAlgoTime = 0L;
+    private long totalDababaseTime = 0L;
+
+    /** the transactions restricted to their frequent items, recoded by increasing support: itemsets are mined
+     *  and saved as codes, and converted back to items when written */
+    private RecodedDatabase recodedDatabase;
+
+    /** The cached dataset of the transactions, whose vertical index is reused between runs, or null */
+    private Dataset dataset = null;
+
+    /** The vertical index of the cached dataset used by this run, or null */
+    private VerticalIndex datasetIndex = null;
+
+    /** Whether transactions are stored outside of the Java heap once loaded. */
+    private boolean offHeap = false;
+
+    /** For optimization with a triangular matrix for counting itemsets of size 2.  */
+    private AbstractTriangularMatrix matrix;
+
+    /** The implementation of the triangular matrix: dense, sparse, or chosen from the estimated number of pairs. */
+    private MatrixMode matrixMode = MatrixMode.AUTO;
+
+    /** The representation of tidsets. */
+    private TidsetMode tidsetMode = TidsetMode.HASHSET;
+
+    /** dEclat: equivalence classes whose prefix has at least this length carry diffsets
+     *  instead of tidsets. 0 means that diffsets are never used (plain Eclat). */
+    private int diffsetDepth = 0;
+
+    /** The kind of itemsets output: all frequent itemsets, or only the closed or maximal ones. */
+    private ItemsetMode itemsetMode = ItemsetMode.ALL;
+
+    /** Closed and maximal itemsets only: the candidates found so far, saved at the end of the algorithm. */
+    private ItemsetStore itemsetStore = null;
+
+    /** Top-K mining: the number of itemsets of highest support output, or 0 to output all frequent itemsets. */
+    private int topK = 0;
+
+    /** Top-K mining only: the K itemsets of highest support found so far. The minimum support is raised
+     *  as it fills, so the search is pruned more and more. */
+    private TopKItemsetStore topKStore = null;
+
+    /** The algorithm finding the itemsets of 2 items or more: ECLAT, or FP-Growth. */
+    private MinerMode minerMode = MinerMode.ECLAT;
+
+    /** Constraints: the largest number of items of an itemset, or 0 if itemsets are not limited. */
+    private int maxLength = 0;
+
+    /** Constraints: the items that every itemset must contain, and the items allowed in the consequents
+     *  of rules (only the itemsets able to give such a rule are kept). null if not constrained. */
+    private long[] mustContain = null;
+    private long[] consequentIn = null;
+
+    /** Constraints: the required items are coded first, from 0 to requiredCount - 1,
+     *  so every itemset containing them starts with them. -1 if one of them is not frequent. */
+    private int requiredCount = 0;
+
+    /** Constraints: the consequent items are coded last, from consequentStart to the last code.
+     *  Only checked if constrainConsequents is true. */
+    private int consequentStart = 0;
+    private boolean constrainConsequents = false;
+
+    /** The number of threads mining equivalence classes. 1 means that the algorithm runs in the calling thread. */
+    private int parallelism = 1;
+
+    /** Parallel mining only: an equivalence class with at least this number of itemsets
+     *  is processed as a separate task, which idle threads can steal. */
+    private static final int MIN_CLASS_SIZE_TO_FORK = 8;
+
+    /** Parallel mining only: the number of itemsets buffered by a thread before handing them over for saving. */
+    private static final int OUTPUT_BUFFER_SIZE = 1024;
+
+    /** Parallel mining only: full buffers of itemsets found by the threads, saved by the calling thread. */
+    private BlockingQueue<ItemsetBuffer> outputQueue = null;
+
+    /** Parallel mining only: the buffer of each thread, and all buffers created during the run. */
+    private ThreadLocal<ItemsetBuffer> outputBuffer = null;
+    private Queue<ItemsetBuffer> outputBuffers = null;
+
+    /** Only for neo4j: the writer of itemsets, and the number of rows per statement and per transaction */
+    private Neo4jBatchWriter neo4jWriter = null;
+    private int batchSize = 1000;
+    private int commitSize = 10000;
+
+    /** Only for stream: the queue of itemsets consumed by the procedure's Stream */
+    private ResultQueue<ItemsetResult> streamQueue = null;
+
+    /** Only for rules: the frequent itemsets kept in memory to generate rules */
+    private ItemsetTrie ruleTrie = null;
+
+    /** Sweep of minimum supports: the thresholds by increasing order (null if there is no sweep),
+     *  the minimum support of each one as a number of transactions, and the number of itemsets whose
+     *  highest threshold is each one */
+    private double[] thresholds = null;
+    private int[] thresholdSupports = null;
+    private AtomicLongArray thresholdCounts = null;
+
+    /** Only for sweep: the queue of itemsets, tagged with their highest threshold, consumed by the procedure's Stream */
+    private ResultQueue<SweepItemsetResult> sweepQueue = null;
+
+    /**
+     * Constructor.
+     * @param db the database written by the 'neo4j' destination, or null if the results are not written into Neo4j
+     */
+    public MiningSession(GraphDatabaseService db) {
+        this.db = db;
+    }
+
+    /**
+     * Mine the frequent itemsets into memory, then generate their association rules.
+     *
+     * @param minsupp the minimum support
+     * @param minConfidence the minimum confidence of a rule
+     * @param sink receives the rules
+     */
+    public void generateRules(double minsupp, double minConfidence, RuleSink sink) throws Exception {
+        ruleTrie = new ItemsetTrie(1024);
+        destination = "rules";
+        // rules are generated from the supports of all the frequent itemsets
+        itemsetMode = ItemsetMode.ALL;
+        topK = 0;
+        // an antecedent without a required item would be missing from the trie
+        mustContain = null;
+        try {
+            runAlgorithm(null, minsupp, true);
+
+            RuleGenerator generator = new RuleGenerator(ruleTrie, database.size(), minConfidence);
+            if(consequentIn != null) {
+                generator.setConsequentItems(toDictionaryIndexes(consequentIn));
+            }
+            generator.run(sink);
+        } finally {
+            ruleTrie = null;
+        }
+    }
+
+    /**
+     * Run the algorithm.
+     * @param output an output file path for writing the result or if null the result is saved into memory and returned
+     * @param minsupp the minimum support
+     * @param useTriangularMatrixOptimization if true the triangular matrix optimization will be applied.
+     * @throws IOException exception if error while writing the file.
+     */
+    public void runAlgorithm( String output,
+                              double minsupp,
+                              boolean useTriangularMatrixOptimization
+    ) throws Exception {
+
+        MemoryLogger.getInstance().reset();
+        // if the user want to keep the result into memory
+        if(output != null){
+            writer = new BufferedWriter(new FileWriter(output));
+        }
+        if(destination.equals("neo4j")){
+            neo4jWriter = new Neo4jBatchWriter(db, batchSize, commitSize, queryLogWriter);
+        }
+
+        try {
+            mine(minsupp, useTriangularMatrixOptimization);
+
+            if(neo4jWriter != null){
+                // write the remaining itemsets and commit
+                neo4jWriter.close();
+            }
+        } catch (Exception e) {
+            if(neo4jWriter != null){
+                neo4jWriter.abort();
+            }
+            throw e;
+        } finally {
+            if(neo4jWriter != null){
+                totalDababaseTime = neo4jWriter.getDatabaseTime();
+                neo4jWriter = null;
+            }
+            if(writer != null){
+                writer.close();
+                writer = null;
+            }
+        }
+
+        // Record the end time for statistics
+        endTime = System.currentTimeMillis();
+        totalAlgoTime = (endTime - startTimestamp) / 1000;
+    }
+
+    /**
+     * Mine the frequent itemsets and save them.
+     * @param minsupp the minimum support
+     * @param useTriangularMatrixOptimization if true the triangular matrix optimization will be applied.
+     */
+    private void mine(double minsupp, boolean useTriangularMatrixOptimization) throws Exception {
+
+        // reset the number of itemset found to 0
+        itemsetCount.set(0);
+        singleItemCount.set(0);
+        totalDababaseTime = 0L;
+
+        startTimestamp = System.currentTimeMillis();
+
+        // calculate the min transaction number by multiplying minsupp by the database size
+        minsupRelative = (int) Math.ceil(minsupp * database.size());
+        if(thresholds != null) {
+            // Sweep: mine once at the lowest threshold, and tag each itemset with the highest one it reaches
+            if(topK > 0 || itemsetMode == ItemsetMode.MAXIMAL) {
+                throw new IllegalArgumentException("a sweep of minimum supports cannot be combined with topK or maximal itemsets");
+            }
+            if(consequentIn != null) {
+                // an antecedent is kept if one of its extensions is frequent, which would depend on the threshold
+                throw new IllegalArgumentException("a sweep of minimum supports cannot be combined with consequentIn");
+            }
+            thresholdSupports = new int[thresholds.length];
+            thresholdCounts = new AtomicLongArray(thresholds.length);
+            for(int k = 0; k < thresholds.length; k++) {
+                thresholdSupports[k] = (int) Math.ceil(thresholds[k] * database.size());
+            }
+            minsupRelative = thresholdSupports[0];
+        }
+        if(topK > 0 && itemsetMode != ItemsetMode.ALL) {
+            throw new IllegalArgumentException("topK cannot be combined with " + itemsetMode.name().toLowerCase() + " itemsets");
+        }
+        if((maxLength > 0 || constrainsItems()) && itemsetMode != ItemsetMode.ALL) {
+            throw new IllegalArgumentException("maxLength, mustContain and consequentIn cannot be combined with "
+                    + itemsetMode.name().toLowerCase() + " itemsets");
+        }
+        if(minerMode != MinerMode.ECLAT && (itemsetMode != ItemsetMode.ALL || constrainsItems())) {
+            throw new IllegalArgumentException(minerMode.name().toLowerCase()
+                    + " cannot be combined with closed or maximal itemsets, mustContain or consequentIn");
+        }
+        if(topK > 0 && consequentIn != null) {
+            // an antecedent is kept if one of its extensions is frequent, which would depend on the raised support
+            throw new IllegalArgumentException("topK cannot be combined with consequentIn");
+        }
+        topKStore = (topK > 0) ? new TopKItemsetStore(topK) : null;
+        if(topKStore != null) {
+            minsupRelative = Math.max(minsupRelative, 1);
+        }
+
+        // (1) First database pass : calculate the support of each item. Then keep the frequent items only,
+        // recoded by the total order of increasing support suggested in the article by Zaki,
+        // and rewrite each transaction as a sorted array of these codes.
+        recodedDatabase = recode();
+        int itemCount = recodedDatabase.getItemCount();
+
+        // Top-K: the K most frequent single items are K itemsets having at least the support of the K-th one,
+        // so no itemset of lower support can be in the top K. Recode again without the items below it.
+        // This does not hold if single items may be filtered out by the constraints.
+        if(topKStore != null && !constrainsItems() && itemCount >= topK
+                && recodedDatabase.getSupport(itemCount - topK) > minsupRelative) {
+            minsupRelative = recodedDatabase.getSupport(itemCount - topK);
+            recodedDatabase = recode();
+            itemCount = recodedDatabase.getItemCount();
+        }
+
+        // Constraints: no itemset contains a required item which is not frequent
+        if(requiredCount < 0) {
+            topKStore = null;
+            MemoryLogger.getInstance().checkMemory();
+            return;
+        }
+
+        // (2) output the frequent single items.
+        // For closed or maximal itemsets, single items are candidates like the other itemsets.
+        // With item constraints, single items are only output once their 2-itemsets are known.
+        itemsetStore = itemsetMode.newStore(itemCount);
+        if(itemsetStore == null && !constrainsItems()) {
+            for(int i = 0; i < itemCount; i++) {
+                saveSingleItem(i, recodedDatabase.getSupport(i));
+            }
+        }
+
+        // (3) find the itemsets of 2 items or more, with ECLAT or another algorithm
+        FrequentItemsetMiner miner = minerMode.newMiner(maxLength);
+        if(miner == null) {
+            miner = new EclatMiner(useTriangularMatrixOptimization);
+        }
+        miner.mine(recodedDatabase, new ItemsetSink() {
+            @Override
+            public void save(int[] prefix, int item, int support) throws Exception {
+                MiningSession.this.save(prefix, item, support);
+            }
+
+            @Override
+            public int getMinSupport() {
+                return minsupRelative;
+            }
+        });
+
+        if(itemsetStore != null) {
+            // the candidates which were not subsumed are the closed (or maximal) itemsets
+            ItemsetStore store = itemsetStore;
+            itemsetStore = null;
+            saveStoredItemsets(store);
+        }
+        if(topKStore != null) {
+            ItemsetStore store = topKStore;
+            topKStore = null;
+            saveStoredItemsets(store);
+        }
+
+        // Check the memory usage
+        MemoryLogger.getInstance().checkMemory();
+    }
+
+    /**
+     * Create the triangular matrix of the frequent items and count the support of each pair of frequent items.
+     * Items are identified in the matrix by their code, so infrequent items take no space.
+     *
+     * With several threads, each thread counts the pairs of a range of transactions into its own partial
+     * matrix, and partial matrices are summed at the end. The number of partial matrices is reduced if
+     * they would not fit in a quarter of the heap.
+     *
+     * The matrix is dense or sparse depending on the matrix mode. In auto mode, the number of distinct pairs
+     * is bounded by the number of pairs of frequent items over all transactions, and the sparse matrix is
+     * chosen when it would be smaller than the dense one.
+     *
+     * @param recoded the transactions restricted to their frequent items
+     * @return the matrix.
+     */
+    private AbstractTriangularMatrix buildTriangularMatrix(final RecodedDatabase recoded) throws Exception {
+        final int itemCount = recoded.getItemCount();
+        final long pairs = estimatePairs(recoded);
+        final MatrixMode mode = matrixMode.resolve(itemCount, pairs);
+
+        final AbstractTriangularMatrix result = mode.newMatrix(itemCount, pairs);
+        long matrixBytes = mode.estimateBytes(itemCount, pairs);
+        long memoryForPartials = Runtime.getRuntime().maxMemory() / 4;
+        int threads = (int) Math.min(parallelism, Math.min(recoded.size() / 1000 + 1,
+                1 + memoryForPartials / Math.max(matrixBytes, 1)));
+
+        if(threads <= 1) {
+            countPairs(result, recoded, 0, recoded.size());
+            return result;
+        }
+
+        // each thread counts a range of transactions in a partial matrix (the first one counts in the result)
+        final List<AbstractTriangularMatrix> partials = new ArrayList<AbstractTriangularMatrix>();
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for(int t = 0; t < threads; t++) {
+            final AbstractTriangularMatrix partial = (t == 0) ? result : mode.newMatrix(itemCount, pairs / threads);
+            final int from = (int) ((long) recoded.size() * t / threads);
+            final int to = (int) ((long) recoded.size() * (t + 1) / threads);
+            partials.add(partial);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    countPairs(partial, recoded, from, to);
+                    return null;
+                }
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for(Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for(int t = 1; t < partials.size(); t++) {
+            result.addAll(partials.get(t));
+        }
+        return result;
+    }
+
+    /**
+     * Get an upper bound of the number of distinct pairs of frequent items: the pairs of each transaction.
+     *
+     * @param recoded the transactions restricted to their frequent items
+     * @return the number of pairs.
+     */
+    private long estimatePairs(RecodedDatabase recoded) {
+        long pairEstimate = 0;
+        TransactionStore transactions = recoded.getTransactions();
+        for(int tid = 0; tid < transactions.size(); tid++) {
+            long length = transactions.getLength(tid);
+            pairEstimate += length * (length - 1) / 2;
+        }
+        return pairEstimate;
+    }
+
+    /**
+     * Count the pairs of frequent items of a range of transactions in a triangular matrix.
+     *
+     * @param matrix the matrix
+     * @param recoded the transactions restricted to their frequent items
+     * @param from the first transaction
+     * @param to the transaction after the last one
+     */
+    private void countPairs(AbstractTriangularMatrix matrix, RecodedDatabase recoded, int from, int to) {
+        // for each transaction, take each itemset of size 2,
+        // and update the triangular matrix.
+        TransactionIterator it = recoded.getTransactions().iterator(from, to);
+        while(it.next()) {
+            // update the matrix count by 1 for each pair i, j
+            matrix.incrementCounts(it.getItems(), it.getLength());
+        }
+    }
+
+    /**
+     * Build the equivalence class of 2-itemsets starting with the i-th frequent item,
+     * and process it to find all larger itemsets having that item as first item.
+     *
+     * @param i the code of the item
+     * @param tidsets the tidset of each frequent item, by code
+     * @param useTriangularMatrixOptimization if true the triangular matrix is used to prune 2-itemsets.
+     */
+    private void processFrequentItem(int i, Tidset[] tidsets,
+                                     boolean useTriangularMatrixOptimization) throws Exception {
+        if(itemsetStore != null) {
+            processClosedItem(i, tidsets, useTriangularMatrixOptimization);
+            return;
+        }
+        // Constraints: the itemsets containing the required items start with them
+        if(!requiredAllows(1, i) || !canExtend(1)) {
+            return;
+        }
+        int itemI = i;
+        // Constraints: the 2-itemsets cannot be extended, so only their support is needed
+        boolean lastLevel = !canExtend(2);
+
+        // obtain the tidset and support of that item
+        Tidset tidsetI = tidsets[i];
+        int supportI = tidsetI.size();
+
+        List<Integer> equivalenceClassIitems = new ArrayList<Integer>();
+        List<Tidset> equivalenceClassItidsets = new ArrayList<Tidset>();
+
+        for(int j=i+1; j < tidsets.length; j++) {
+            int itemJ = j;
+
+            // Retrieve support of item "ij" from the triangular matrix.
+            int support = -1;
+            if(useTriangularMatrixOptimization) {
+                support = matrix.getSupportForItems(i, j);
+                // if not frequent
+                if (support < minsupRelative) {
+                    continue;
+                }
+            }
+
+            // Obtain the tidset of item J and its support.
+            Tidset tidsetJ = tidsets[j];
+            int supportJ = tidsetJ.size();
+
+            if(lastLevel) {
+                if(support < 0) {
+                    support = performANDSupport(0, tidsetI, supportI, tidsetJ);
+                }
+                if(support >= minsupRelative && keepItemset(new int[]{itemI}, itemJ, false)) {
+                    save(new int[]{itemI}, itemJ, support);
+                }
+                continue;
+            }
+
+            // Calculate the tidset of itemset "IJ" by performing the intersection of
+            // the tidsets of I and the tidset of J (or the diffset of "IJ", for dEclat).
+            Tidset tidsetIJ = performAND(0, tidsetI, supportI, tidsetJ, supportJ);
+
+            // Without the triangular matrix, the support of "IJ" is only known now (null if not frequent).
+            if(tidsetIJ == null) {
+                continue;
+            }
+
+            // Add itemJ to the equivalence class of 2-itemsets starting with the prefix "i".
+            equivalenceClassIitems.add(itemJ);
+            // Save the tidset of "ij".
+            equivalenceClassItidsets.add(tidsetIJ);
+        }
+        // Process all itemsets from the equivalence class of 2-itemsets starting with prefix I
+        // to find larger itemsets if that class has more than 0 itemsets.
+        if(equivalenceClassIitems.size() > 0) {
+            // This is done by a recursive call. Note that we pass
+            // item I to that method as the prefix of that equivalence class.
+            processEquivalenceClass(new int[]{itemI}, supportI, equivalenceClassIitems, equivalenceClassItidsets);
+        }
+    }
+
+    /**
+     * Process the equivalence classes of all frequent items in a pool of threads. Large equivalence
+     * classes found during the recursion are split into separate tasks, so idle threads can steal them.
+     *
+     * The threads buffer the itemsets they find, and hand over full buffers through a bounded queue.
+     * Itemsets are saved by the calling thread only, so writers and Neo4j transactions are never shared.
+     *
+     * @param tidsets the tidset of each frequent item, by code
+     * @param useTriangularMatrixOptimization if true the triangular matrix is used to prune 2-itemsets.
+     */
+    private void runParallel(Tidset[] tidsets, boolean useTriangularMatrixOptimization) throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        outputQueue = new ArrayBlockingQueue<ItemsetBuffer>(parallelism * 4);
+        outputBuffers = new ConcurrentLinkedQueue<ItemsetBuffer>();
+        outputBuffer = new ThreadLocal<ItemsetBuffer>() {
+            @Override
+            protected ItemsetBuffer initialValue() {
+                ItemsetBuffer buffer = new ItemsetBuffer(OUTPUT_BUFFER_SIZE);
+                outputBuffers.add(buffer);
+                return buffer;
+            }
+        };
+
+        try {
+            ForkJoinTask<Void> root = pool.submit(
+                    new FrequentItemsTask(tidsets, useTriangularMatrixOptimization));
+
+            // save the itemsets found by the threads as they arrive
+            while(!root.isDone() || !outputQueue.isEmpty()) {
+                ItemsetBuffer buffer = outputQueue.poll(10, TimeUnit.MILLISECONDS);
+                if(buffer != null) {
+                    saveItemsets(buffer);
+                }
+            }
+            // throw the exception of a thread, if any
+            root.get();
+
+            // save the itemsets left in the buffers of the threads
+            for(ItemsetBuffer buffer : outputBuffers) {
+                saveItemsets(buffer);
+            }
+        } finally {
+            pool.shutdownNow();
+            outputQueue = null;
+            outputBuffer = null;
+            outputBuffers = null;
+        }
+    }
+
+    /**
+     * ECLAT (or dEclat), as a FrequentItemsetMiner. The equivalence classes save their itemsets with save(),
+     * which is what the sink of the procedure does, and read the minimum support directly.
+     */
+    private class EclatMiner implements FrequentItemsetMiner {
+        private final boolean useTriangularMatrixOptimization;
+
+        EclatMiner(boolean useTriangularMatrixOptimization) {
+            this.useTriangularMatrixOptimization = useTriangularMatrixOptimization;
+        }
+
+        /* (non-Javadoc)
+         * @see com.mypackage.miner.FrequentItemsetMiner#mine(com.mypackage.input.RecodedDatabase, com.mypackage.miner.ItemsetSink)
+         */
+        @Override
+        public void mine(RecodedDatabase recoded, ItemsetSink sink) throws Exception {
+            int itemCount = recoded.getItemCount();
+
+            // Second database pass : calculate TransactionIdSet(tidsets) of each frequent item.
+            // A cached dataset keeps them in its vertical index, whose last codes are the frequent items.
+            final Tidset[] tidsets;
+            int first = 0;
+            if(datasetIndex != null) {
+                first = datasetIndex.getRecoded().getItemCount() - itemCount;
+                tidsets = datasetIndex.getTidsets(first);
+            } else {
+                tidsets = calculateSupportSingleItems(recoded);
+                if(usesDatasetIndex()) {
+                    datasetIndex = new VerticalIndex(recoded, minsupRelative, tidsets, tidsetMode);
+                    dataset.setIndex(datasetIndex);
+                }
+            }
+
+            // Constraints: the 2-itemsets are not needed if the itemsets are single items
+            boolean useMatrix = useTriangularMatrixOptimization && canExtend(1);
+            if (useMatrix && datasetIndex != null) {
+                // the matrix of the index is built once, by the first run needing it
+                synchronized(datasetIndex) {
+                    if(datasetIndex.getMatrix(0) == null) {
+                        RecodedDatabase indexed = datasetIndex.getRecoded();
+                        long pairs = estimatePairs(indexed);
+                        datasetIndex.setMatrix(buildTriangularMatrix(indexed),
+                                matrixMode.estimateBytes(indexed.getItemCount(), pairs));
+                    }
+                }
+                matrix = datasetIndex.getMatrix(first);
+            } else if (useMatrix) {
+                // create the triangular matrix of the frequent items, indexed by their code,
+                // and count the support of each itemset of size 2.
+                matrix = buildTriangularMatrix(recoded);
+            }
+            if(constrainsItems()) {
+                saveConstrainedSingleItems(tidsets, useMatrix);
+            }
+
+            // Now we will combine each pairs of single items to generate equivalence classes
+            // of 2-itemsets
+            if(parallelism > 1) {
+                runParallel(tidsets, useMatrix);
+            } else {
+                for(int i=0; i < itemCount; i++) {
+                    processFrequentItem(firstItemOrder(i, itemCount), tidsets, useMatrix);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parallel mining: the task processing the equivalence classes of all frequent items.
+     * It runs one sub-task per frequent item.
+     */
+    private class FrequentItemsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Tidset[] tidsets;
+        private final boolean useTriangularMatrixOptimization;
+
+        FrequentItemsTask(Tidset[] tidsets, boolean useTriangularMatrixOptimization) {
+            this.tidsets = tidsets;
+            this.useTriangularMatrixOptimization = useTriangularMatrixOptimization;
+        }
+
+        @Override
+        protected void compute() {
+            List<RecursiveAction> tasks = new ArrayList<RecursiveAction>(tidsets.length);
+            for(int i=0; i < tidsets.length; i++) {
+                final int position = firstItemOrder(i, tidsets.length);
+                tasks.add(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        try {
+                            processFrequentItem(position, tidsets, useTriangularMatrixOptimization);
+                        } catch (Exception e) {
+                            completeExceptionally(e);
+                        }
+                    }
+                });
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    /**
+     * Parallel mining: the task processing one equivalence class (and its sub-classes).
+     */
+    private class EquivalenceClassTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] prefix;
+        private final int supportPrefix;
+        private final List<Integer> equivalenceClassItems;
+        private final List<Tidset> equivalenceClassTidsets;
+
+        EquivalenceClassTask(int[] prefix, int supportPrefix, List<Integer> equivalenceClassItems,
+                             List<Tidset> equivalenceClassTidsets) {
+            this.prefix = prefix;
+            this.supportPrefix = supportPrefix;
+            this.equivalenceClassItems = equivalenceClassItems;
+            this.equivalenceClassTidsets = equivalenceClassTidsets;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                processEquivalenceClass(prefix, supportPrefix, equivalenceClassItems, equivalenceClassTidsets);
+            } catch (Exception e) {
+                completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Parallel mining: the task processing one equivalence class of candidate closed (or maximal) itemsets.
+     */
+    private class ClosedClassTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] prefix;
+        private final int supportPrefix;
+        private final long tidsetHashPrefix;
+        private final List<Integer> equivalenceClassItems;
+        private final List<Tidset> equivalenceClassTidsets;
+        private final int depth;
+
+        ClosedClassTask(int[] prefix, int supportPrefix, long tidsetHashPrefix, List<Integer> equivalenceClassItems,
+                        List<Tidset> equivalenceClassTidsets, int depth) {
+            this.prefix = prefix;
+            this.supportPrefix = supportPrefix;
+            this.tidsetHashPrefix = tidsetHashPrefix;
+            this.equivalenceClassItems = equivalenceClassItems;
+            this.equivalenceClassTidsets = equivalenceClassTidsets;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                processClosedClass(prefix, supportPrefix, tidsetHashPrefix, equivalenceClassItems,
+                        equivalenceClassTidsets, depth);
+            } catch (Exception e) {
+                completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * This method scans the database to calculate the tidset of each frequent item.
+     *
+     * @param recoded the transactions restricted to their frequent items
+     * @return the tidset of each frequent item, by code
+     */
+    private Tidset[] calculateSupportSingleItems(RecodedDatabase recoded) {
+        Tidset[] tidsets = new Tidset[recoded.getItemCount()];
+        for (int i = 0; i < tidsets.length; i++) {
+            // the representation of the tidset may depend on its density
+            tidsets[i] = tidsetMode.newTidset(recoded.getSupport(i), recoded.size());
+        }
+        TransactionIterator it = recoded.getTransactions().iterator();
+        while (it.next()) {
+            int[] itemset = it.getItems();
+            // for each item in that transaction
+            for (int k = 0; k < it.getLength(); k++) {
+                // add the current transaction id (tid) to the tidset of the item
+                tidsets[itemset[k]].add(it.getTid());
+            }
+        }
+        return tidsets;
+    }
+
+    /**
+     * This method processes all itemsets from an equivalence class to generate larger itemsets.
+     *
+     * @param prefix  a common prefix to all itemsets of the equivalence class
+     * @param supportPrefix the support of the prefix (not used by eclat, but used by dEclat)
+     * @param equivalenceClassItems  a list of suffixes of itemsets in the current equivalence class.
+     * @param equivalenceClassTidsets a list of tidsets of itemsets of the current equivalence class.
+     */
+    private void processEquivalenceClass(int[] prefix, int supportPrefix, List<Integer> equivalenceClassItems,
+                                         List<Tidset> equivalenceClassTidsets) throws Exception {
+
+        // Constraints: without a consequent item in the prefix or in the class, no itemset of the class is kept
+        if(constrainConsequents && !hasConsequent(prefix)
+                && equivalenceClassItems.get(equivalenceClassItems.size() - 1) < consequentStart) {
+            return;
+        }
+        // Constraints: whether the itemsets of the class can be extended, and whether they are the last level
+        int length = prefix.length + 1;
+        boolean extensible = canExtend(length);
+        boolean lastLevel = extensible && !canExtend(length + 1);
+
+        // If there is only one itemset in equivalence class
+        if(equivalenceClassItems.size() == 1) {
+            int itemI = equivalenceClassItems.get(0);
+            Tidset tidsetItemset = equivalenceClassTidsets.get(0);
+
+            // Just save that itemset by calling save() with the prefix "prefix" and the suffix
+            int support = calculateSupport(prefix.length, supportPrefix, tidsetItemset);
+            if(keepItemset(prefix, itemI, false)) {
+                save(prefix, itemI, support);
+            }
+            return;
+        }
+
+        // If there are only two itemsets in the equivalence class
+        if(equivalenceClassItems.size() == 2) {
+            // Get the prefix of the itemset (an item called I)
+            int itemI = equivalenceClassItems.get(0);
+            Tidset tidsetI = equivalenceClassTidsets.get(0);
+            int supportI = calculateSupport(prefix.length, supportPrefix, tidsetI);
+
+            // Get the suffix of the itemset (an item called J)
+            int itemJ = equivalenceClassItems.get(1);
+            Tidset tidsetJ = equivalenceClassTidsets.get(1);
+            int supportJ = calculateSupport(prefix.length, supportPrefix, tidsetJ);
+
+            // Calculate the support of the itemset prefix+IJ. Since that itemset cannot be
+            // extended any further, only the cardinality of the intersection is needed.
+            int supportIJ = 0;
+            boolean frequentIJ = false;
+            if(extensible && requiredAllows(length, itemI)) {
+                supportIJ = performANDSupport(prefix.length, tidsetI, supportI, tidsetJ);
+                frequentIJ = supportIJ >= minsupRelative;
+            }
+
+            // Save item I, and item J
+            if(keepItemset(prefix, itemI, frequentIJ && itemJ >= consequentStart)) {
+                save(prefix, itemI, supportI);
+            }
+            if(keepItemset(prefix, itemJ, false)) {
+                save(prefix, itemJ, supportJ);
+            }
+
+            // Save the itemset prefix+IJ to the output if it has enough support
+            if(frequentIJ) {
+                int newPrefix[] = new int[prefix.length +1];
+                System.arraycopy(prefix, 0, newPrefix, 0, prefix.length);
+                newPrefix[prefix.length] = itemI;
+                if(keepItemset(newPrefix, itemJ, false)) {
+                    save(newPrefix, itemJ, supportIJ);
+                }
+            }
+            return;
+        }
+
+        // The next loop combines each pairs of itemsets of the equivalence class
+        // to form larger itemsets
+
+        // Parallel mining only: the sub-classes processed by other tasks
+        List<EquivalenceClassTask> forkedTasks = null;
+
+        // For each itemset "prefix" + "i"
+        for(int i=0; i< equivalenceClassItems.size(); i++) {
+            int suffixI = equivalenceClassItems.get(i);
+            // Constraints: the itemsets containing the required items start with them
+            if(!requiredAllows(length, suffixI)) {
+                continue;
+            }
+            // get the tidset and support of that itemset
+            Tidset tidsetI = equivalenceClassTidsets.get(i);
+
+            // save the itemset to the file because it is frequent
+            // (with a consequent constraint, an itemset without consequent item waits for its extensions)
+            int supportI = calculateSupport(prefix.length, supportPrefix, tidsetI);
+            boolean savedI = keepItemset(prefix, suffixI, false);
+            if(savedI) {
+                save(prefix, suffixI, supportI);
+            }
+            boolean consequentExtendsI = false;
+
+            // create the empty equivalence class for storing all itemsets of the
+            // equivalence class starting with prefix + i
+            List<Integer> equivalenceClassISuffixItems= new ArrayList<Integer>();
+            List<Tidset> equivalenceITidsets = new ArrayList<Tidset>();
+
+            // the itemsets {prefix, i, j} which cannot be extended: they are saved after prefix + i, whose
+            // node must exist before theirs in Neo4j, and which may only be kept once its extensions are known
+            int[] leafItems = null;
+            int[] leafSupports = null;
+            int leafCount = 0;
+
+            // For each itemset "prefix" + j"
+            for(int j=i+1; extensible && j < equivalenceClassItems.size(); j++) {
+                int suffixJ = equivalenceClassItems.get(j);
+
+                // Get the tidset and support of the itemset prefix + "j"
+                Tidset tidsetJ = equivalenceClassTidsets.get(j);
+                int supportJ = calculateSupport(prefix.length, supportPrefix, tidsetJ);
+
+                if(lastLevel || (j == equivalenceClassItems.size() - 1 && equivalenceClassISuffixItems.isEmpty())) {
+                    // The itemset {prefix, i, j} is alone in its equivalence class (or has the maximum length),
+                    // so it cannot be extended any further: only the cardinality of the intersection is needed.
+                    int supportIJ = performANDSupport(prefix.length, tidsetI, supportI, tidsetJ);
+                    if(supportIJ >= minsupRelative) {
+                        if(leafItems == null) {
+                            leafItems = new int[equivalenceClassItems.size() - j];
+                            leafSupports = new int[leafItems.length];
+                        }
+                        leafItems[leafCount] = suffixJ;
+                        leafSupports[leafCount] = supportIJ;
+                        leafCount++;
+                        consequentExtendsI |= suffixJ >= consequentStart;
+                    }
+                    continue;
+                }
+
+                // Calculate the tidset of the itemset {prefix, i,j} by intersecting
+                // the tidset of the itemset prefix+i with the itemset prefix+j.
+                // It is null if the itemset prefix+i+j is not frequent.
+                Tidset tidsetIJ = performAND(prefix.length, tidsetI, supportI, tidsetJ, supportJ);
+
+                // If the itemset prefix+i+j is frequent, then we add it to the
+                // equivalence class of itemsets having the prefix "prefix"+i
+                if(tidsetIJ != null) {
+                    equivalenceClassISuffixItems.add(suffixJ);
+                    equivalenceITidsets.add(tidsetIJ);
+                    consequentExtendsI |= suffixJ >= consequentStart;
+                }
+            }
+            // Constraints: prefix + i is the antecedent of a rule if it has a frequent extension by a consequent item
+            if(!savedI && consequentExtendsI && keepItemset(prefix, suffixI, true)) {
+                save(prefix, suffixI, supportI);
+            }
+            if(leafCount > 0) {
+                int newPrefix[] = new int[prefix.length +1];
+                System.arraycopy(prefix, 0, newPrefix, 0, prefix.length);
+                newPrefix[prefix.length] = suffixI;
+                for(int k = 0; k < leafCount; k++) {
+                    if(keepItemset(newPrefix, leafItems[k], false)) {
+                        save(newPrefix, leafItems[k], leafSupports[k]);
+                    }
+                }
+            }
+
+            // If there is more than an itemset in the equivalence class
+            // then we recursively process that equivalence class to find larger itemsets
+            if(equivalenceClassISuffixItems.size() >0) {
+                // We create the itemset prefix + i
+                int newPrefix[] = new int[prefix.length +1];
+                System.arraycopy(prefix, 0, newPrefix, 0, prefix.length);
+                newPrefix[prefix.length] = suffixI;
+                if(outputQueue != null && equivalenceClassISuffixItems.size() >= MIN_CLASS_SIZE_TO_FORK) {
+                    // Parallel mining: let another thread process that large class
+                    handOverPrefixes();
+                    EquivalenceClassTask task = new EquivalenceClassTask(newPrefix, supportI,
+                            equivalenceClassISuffixItems, equivalenceITidsets);
+                    task.fork();
+                    if(forkedTasks == null) {
+                        forkedTasks = new ArrayList<EquivalenceClassTask>();
+                    }
+                    forkedTasks.add(task);
+                } else {
+                    // Recursive call
+                    processEquivalenceClass(newPrefix, supportI, equivalenceClassISuffixItems, equivalenceITidsets);
+                }
+            }
+        }
+
+        // Parallel mining only: wait for the sub-classes (or process them if no thread has stolen them)
+        if(forkedTasks != null) {
+            for(EquivalenceClassTask task : forkedTasks) {
+                task.join();
+            }
+        }
+
+        // we check the memory usage
+        MemoryLogger.getInstance().checkMemory();
+    }
+
+    /**
+     * Get the code of the i-th frequent item to process. Top-K mining processes the most frequent items
+     * first, so that the K itemsets of highest support are found early and the minimum support rises fast.
+     *
+     * @param i the position in the processing order
+     * @param itemCount the number of frequent items
+     * @return the code of the item.
+     */
+    private int firstItemOrder(int i, int itemCount) {
+        return (topKStore != null) ? itemCount - 1 - i : i;
+    }
+
+    /**
+     * Recode the database with the current minimum support. With item constraints, the required items are
+     * coded first and the consequent items last, so that the constraints only depend on the first and last
+     * items of an itemset.
+     *
+     * @return the recoded database.
+     */
+    private RecodedDatabase recode() {
+        requiredCount = 0;
+        constrainConsequents = false;
+        datasetIndex = null;
+        if(usesDatasetIndex()) {
+            // the index of a cached dataset at a lower minimum support already holds the frequent items
+            VerticalIndex index = dataset.getIndex();
+            if(index != null && index.covers(minsupRelative, tidsetMode)) {
+                datasetIndex = index;
+                return index.getRecoded().restrict(minsupRelative, offHeap);
+            }
+        }
+        if(!constrainsItems()) {
+            return new RecodedDatabase(database, minsupRelative, offHeap);
+        }
+        byte[] groupOfItem = new byte[database.itemSize()];
+        Arrays.fill(groupOfItem, RecodedDatabase.MIDDLE);
+        if(consequentIn != null) {
+            for(int index : toDictionaryIndexes(consequentIn)) {
+                groupOfItem[index] = RecodedDatabase.LAST;
+            }
+        }
+        // the number of distinct required items, and whether one of them is also a consequent item
+        int required = 0;
+        boolean requiredConsequent = false;
+        if(mustContain != null) {
+            for(long item : mustContain) {
+                int index = database.getDictionary().indexOf(item);
+                if(index == ItemDictionary.NOT_FOUND) {
+                    // no transaction contains this item
+                    required = Integer.MAX_VALUE;
+                    break;
+                }
+                if(groupOfItem[index] != RecodedDatabase.FIRST) {
+                    requiredConsequent |= groupOfItem[index] == RecodedDatabase.LAST;
+                    groupOfItem[index] = RecodedDatabase.FIRST;
+                    required++;
+                }
+            }
+        }
+        RecodedDatabase recoded = new RecodedDatabase(database, minsupRelative, offHeap, groupOfItem);
+
+        int itemCount = recoded.getItemCount();
+        requiredCount = 0;
+        consequentStart = itemCount;
+        for(int code = itemCount - 1; code >= 0; code--) {
+            byte group = groupOfItem[recoded.getItem(code)];
+            if(group == RecodedDatabase.FIRST) {
+                requiredCount++;
+            } else if(group == RecodedDatabase.LAST) {
+                consequentStart = code;
+            }
+        }
+        if(requiredCount < required) {
+            requiredCount = -1;
+        }
+        // every itemset containing a required consequent item has a consequent item
+        constrainConsequents = consequentIn != null && !requiredConsequent;
+        return recoded;
+    }
+
+    /**
+     * Check if the run reads and builds the vertical index of a cached dataset. It is only used by ECLAT
+     * without item constraints, whose recoding does not depend on anything else than the minimum support.
+     * @return true if it does.
+     */
+    private boolean usesDatasetIndex() {
+        return dataset != null && minerMode == MinerMode.ECLAT && !constrainsItems();
+    }
+
+    /**
+     * Check if the itemsets are constrained by their items (mustContain or consequentIn).
+     * @return true if they are.
+     */
+    private boolean constrainsItems() {
+        return mustContain != null || consequentIn != null;
+    }
+
+    /**
+     * Constraints: check if the itemsets of a length can be extended by one more item.
+     * @param length the number of items
+     * @return true if the extensions are not longer than maxLength.
+     */
+    private boolean canExtend(int length) {
+        return maxLength == 0 || length < maxLength;
+    }
+
+    /**
+     * Constraints: check if an itemset may contain the required items, or be a prefix of an itemset
+     * containing them. As the required items have the first codes, they are the first items of the itemset.
+     *
+     * @param length the number of items of the itemset
+     * @param lastItem the code of its last item
+     * @return true if it may.
+     */
+    private boolean requiredAllows(int length, int lastItem) {
+        return length > requiredCount || lastItem == length - 1;
+    }
+
+    /**
+     * Constraints: check if the prefix of an itemset contains a consequent item. As consequent items have
+     * the last codes, only the last item of the prefix is checked.
+     *
+     * @param prefix the codes of the prefix
+     * @return true if it does.
+     */
+    private boolean hasConsequent(int[] prefix) {
+        return prefix.length > 0 && prefix[prefix.length - 1] >= consequentStart;
+    }
+
+    /**
+     * Constraints: check if an itemset is output. It must contain the required items, except for the
+     * prefixes of the required items, which are only written into Neo4j to link the itemsets to their prefix.
+     * With consequent items, it must contain one of them, or be the antecedent of a rule with such a
+     * consequent, i.e. have a frequent extension by a consequent item.
+     *
+     * @param prefix the codes of the prefix of the itemset
+     * @param item the code of the last item of the itemset
+     * @param consequentExtension true if the itemset has a frequent extension by a consequent item
+     * @return true if it is output.
+     */
+    private boolean keepItemset(int[] prefix, int item, boolean consequentExtension) {
+        int length = prefix.length + 1;
+        if(!requiredAllows(length, item)) {
+            return false;
+        }
+        if(length < requiredCount) {
+            return destination.equals("neo4j");
+        }
+        return !constrainConsequents || item >= consequentStart || hasConsequent(prefix) || consequentExtension;
+    }
+
+    /**
+     * Constraints: output the frequent single items allowed by the constraints. A single item which is not
+     * a consequent item is only output if it forms a frequent 2-itemset with one.
+     *
+     * @param tidsets the tidset of each frequent item, by code
+     * @param useTriangularMatrixOptimization if true the triangular matrix gives the support of 2-itemsets.
+     */
+    private void saveConstrainedSingleItems(Tidset[] tidsets, boolean useTriangularMatrixOptimization) throws Exception {
+        int[] noPrefix = new int[0];
+        for(int i = 0; i < tidsets.length; i++) {
+            boolean consequentExtension = false;
+            if(constrainConsequents && i < consequentStart && canExtend(1)) {
+                for(int j = consequentStart; j < tidsets.length && !consequentExtension; j++) {
+                    int supportIJ = useTriangularMatrixOptimization ? matrix.getSupportForItems(i, j)
+                            : performANDSupport(0, tidsets[i], tidsets[i].size(), tidsets[j]);
+                    consequentExtension = supportIJ >= minsupRelative;
+                }
+            }
+            if(keepItemset(noPrefix, i, consequentExtension)) {
+                saveSingleItem(i, recodedDatabase.getSupport(i));
+            }
+        }
+    }
+
+    /**
+     * Convert items into their indexes in the dictionary of the database, ignoring unknown items.
+     *
+     * @param items the items
+     * @return the indexes.
+     */
+    private int[] toDictionaryIndexes(long[] items) {
+        int[] indexes = new int[items.length];
+        int count = 0;
+        for(long item : items) {
+            int index = database.getDictionary().indexOf(item);
+            if(index != ItemDictionary.NOT_FOUND) {
+                indexes[count++] = index;
+            }
+        }
+        return Arrays.copyOf(indexes, count);
+    }
+
+    /**
+     * Closed and maximal itemsets only: find the candidate itemsets starting with the i-th frequent item.
+     * Same as processFrequentItem(), except that the items whose tidset contains the tidset of the i-th item
+     * are added to it rather than to its equivalence class (CHARM properties 1 and 2).
+     *
+     * @param i the code of the item
+     * @param tidsets the tidset of each frequent item, by code
+     * @param useTriangularMatrixOptimization if true the triangular matrix gives the support of 2-itemsets.
+     */
+    private void processClosedItem(int i, Tidset[] tidsets,
+                                   boolean useTriangularMatrixOptimization) throws Exception {
+        Tidset tidsetI = tidsets[i];
+        int supportI = tidsetI.size();
+        // the itemset starting with item I, and the items added to it
+        int[] itemsetI = new int[]{i};
+
+        List<Integer> equivalenceClassIitems = new ArrayList<Integer>();
+        List<Tidset> equivalenceClassItidsets = new ArrayList<Tidset>();
+
+        for(int j=i+1; j < tidsets.length; j++) {
+            Tidset tidsetJ = tidsets[j];
+            int supportJ = tidsetJ.size();
+
+            Tidset tidsetIJ = null;
+            int supportIJ;
+            if(useTriangularMatrixOptimization) {
+                supportIJ = matrix.getSupportForItems(i, j);
+                if (supportIJ < minsupRelative) {
+                    continue;
+                }
+            } else {
+                tidsetIJ = performAND(0, tidsetI, supportI, tidsetJ, supportJ);
+                if(tidsetIJ == null) {
+                    continue;
+                }
+                supportIJ = calculateSupport(1, supportI, tidsetIJ);
+            }
+
+            if(supportIJ == supportI) {
+                // t(I) is included in t(J): every transaction containing I contains J,
+                // so J is added to I (and the tidset of IJ is not needed)
+                itemsetI = append(itemsetI, j);
+                continue;
+            }
+            if(tidsetIJ == null) {
+                tidsetIJ = performAND(0, tidsetI, supportI, tidsetJ, supportJ);
+            }
+            equivalenceClassIitems.add(j);
+            equivalenceClassItidsets.add(tidsetIJ);
+        }
+
+        ForkJoinTask<Void> task = processClosedCandidate(itemsetI, supportI, tidSum(tidsetI),
+                equivalenceClassIitems, equivalenceClassItidsets, 1);
+        if(task != null) {
+            task.join();
+        }
+    }
+
+    /**
+     * Closed and maximal itemsets only: process an equivalence class with the properties of CHARM
+     * (Zaki & Hsiao, 2002). For two itemsets XI and XJ of the class:
+     *  1. if t(XI) = t(XJ), J is added to XI, and XJ is removed from the class;
+     *  2. if t(XI) is included in t(XJ), J is added to XI;
+     *  3. if t(XJ) is included in t(XI), XJ is removed from the class, and XIJ is added to the class of XI;
+     *  4. otherwise, XIJ is added to the class of XI if it is frequent.
+     * Inclusions are found by comparing supports, so they work with diffsets as well. Itemsets found with
+     * properties 1 and 3 would only give non-closed itemsets.
+     *
+     * @param prefix a common prefix to all itemsets of the equivalence class
+     * @param supportPrefix the support of the prefix
+     * @param tidsetHashPrefix the hash of the tidset of the prefix (used with diffsets)
+     * @param equivalenceClassItems a list of suffixes of itemsets in the current equivalence class.
+     * @param equivalenceClassTidsets a list of tidsets of itemsets of the current equivalence class.
+     * @param depth the depth of the equivalence class, which decides if it carries diffsets
+     */
+    private void processClosedClass(int[] prefix, int supportPrefix, long tidsetHashPrefix,
+                                    List<Integer> equivalenceClassItems, List<Tidset> equivalenceClassTidsets,
+                                    int depth) throws Exception {
+        // the itemsets removed from the class by properties 1 and 3
+        boolean[] removed = new boolean[equivalenceClassItems.size()];
+
+        // Parallel mining only: the sub-classes processed by other tasks
+        List<ForkJoinTask<Void>> forkedTasks = null;
+
+        for(int i=0; i< equivalenceClassItems.size(); i++) {
+            if(removed[i]) {
+                continue;
+            }
+            Tidset tidsetI = equivalenceClassTidsets.get(i);
+            int supportI = calculateSupport(depth, supportPrefix, tidsetI);
+            int[] itemsetI = append(prefix, equivalenceClassItems.get(i));
+
+            List<Integer> equivalenceClassISuffixItems= new ArrayList<Integer>();
+            List<Tidset> equivalenceITidsets = new ArrayList<Tidset>();
+
+            for(int j=i+1; j < equivalenceClassItems.size(); j++) {
+                if(removed[j]) {
+                    continue;
+                }
+                int suffixJ = equivalenceClassItems.get(j);
+                Tidset tidsetJ = equivalenceClassTidsets.get(j);
+                int supportJ = calculateSupport(depth, supportPrefix, tidsetJ);
+
+                Tidset tidsetIJ = performAND(depth, tidsetI, supportI, tidsetJ, supportJ);
+                if(tidsetIJ == null) {
+                    continue;
+                }
+                int supportIJ = calculateSupport(depth + 1, supportI, tidsetIJ);
+
+                if(supportIJ == supportJ) {
+                    // t(XJ) is included in t(XI) (properties 1 and 3)
+                    removed[j] = true;
+                }
+                if(supportIJ == supportI) {
+                    // t(XI) is included in t(XJ) (properties 1 and 2). The itemsets already in the
+                    // class of XI get J as well, since J becomes part of their prefix.
+                    itemsetI = append(itemsetI, suffixJ);
+                } else {
+                    equivalenceClassISuffixItems.add(suffixJ);
+                    equivalenceITidsets.add(tidsetIJ);
+                }
+            }
+
+            // the tidset of the itemset is t(XI), whatever was added to it
+            long tidsetHashI = useDiffsets(depth) ? tidsetHashPrefix - tidSum(tidsetI) : tidSum(tidsetI);
+            ForkJoinTask<Void> task = processClosedCandidate(itemsetI, supportI, tidsetHashI,
+                    equivalenceClassISuffixItems, equivalenceITidsets, depth + 1);
+            if(task != null) {
+                if(forkedTasks == null) {
+                    forkedTasks = new ArrayList<ForkJoinTask<Void>>();
+                }
+                forkedTasks.add(task);
+            }
+        }
+
+        // Parallel mining only: wait for the sub-classes (or process them if no thread has stolen them)
+        if(forkedTasks != null) {
+            for(ForkJoinTask<Void> task : forkedTasks) {
+                task.join();
+            }
+        }
+
+        // we check the memory usage
+        MemoryLogger.getInstance().checkMemory();
+    }
+
+    /**
+     * Closed and maximal itemsets only: store a candidate itemset, and process its equivalence class.
+     * Every itemset is a candidate closed itemset, while only the itemsets which cannot be extended
+     * (an empty class) are candidate maximal itemsets. The store removes the candidates subsumed by another one.
+     *
+     * @param itemset the itemset
+     * @param support the support of the itemset
+     * @param tidsetHash the hash of the tidset of the itemset
+     * @param equivalenceClassItems the suffixes of the itemsets of its equivalence class
+     * @param equivalenceClassTidsets the tidsets of the itemsets of its equivalence class
+     * @param depth the depth of its equivalence class
+     * @return the task processing the class, if it was forked (parallel mining only), or null.
+     */
+    private ForkJoinTask<Void> processClosedCandidate(int[] itemset, int support, long tidsetHash,
+                                                      List<Integer> equivalenceClassItems,
+                                                      List<Tidset> equivalenceClassTidsets,
+                                                      int depth) throws Exception {
+        if(itemsetMode == ItemsetMode.CLOSED || equivalenceClassItems.isEmpty()) {
+            int[] sorted = Arrays.copyOf(itemset, itemset.length);
+            Arrays.sort(sorted);
+            itemsetStore.add(sorted, support, tidsetHash);
+        }
+        if(equivalenceClassItems.isEmpty()) {
+            return null;
+        }
+        if(outputQueue != null && equivalenceClassItems.size() >= MIN_CLASS_SIZE_TO_FORK) {
+            // Parallel mining: let another thread process that large class
+            return new ClosedClassTask(itemset, support, tidsetHash, equivalenceClassItems,
+                    equivalenceClassTidsets, depth).fork();
+        }
+        processClosedClass(itemset, support, tidsetHash, equivalenceClassItems, equivalenceClassTidsets, depth);
+        return null;
+    }
+
+    /**
+     * Compute the hash of a tidset: the sum of its transaction ids. Since d(PX) = t(P) - t(PX),
+     * the hash of t(PX) is also the hash of t(P) minus the sum of the diffset d(PX).
+     *
+     * @param tidset the tidset (or diffset)
+     * @return the sum of its transaction ids.
+     */
+    private static long tidSum(Tidset tidset) {
+        long sum = 0;
+        for(int tid : tidset.toArray()) {
+            sum += tid;
+        }
+        return sum;
+    }
+
+    /**
+     * Create a copy of an itemset with one more item.
+     *
+     * @param itemset the itemset
+     * @param item the item to append
+     * @return the new itemset.
+     */
+    private static int[] append(int[] itemset, int item) {
+        int[] newItemset = new int[itemset.length + 1];
+        System.arraycopy(itemset, 0, newItemset, 0, itemset.length);
+        newItemset[itemset.length] = item;
+        return newItemset;
+    }
+
+    /**
+     * Check if the itemsets of an equivalence class carry diffsets (dEclat) rather than tidsets.
+     *
+     * @param lengthOfPrefix the length of the prefix of the equivalence class
+     * @return true if diffsets are used.
+     */
+    private boolean useDiffsets(int lengthOfPrefix) {
+        return diffsetDepth > 0 && lengthOfPrefix >= diffsetDepth;
+    }
+
+    /**
+     * Calculate the support of an itemset X using the tidset of X.
+     * For dEclat, X carries a diffset d(X) = t(prefix) - t(X), and the support of X is
+     * the support of the prefix minus the cardinality of d(X).
+     *
+     * @param lengthOfX  the length of the itemset X - 1 (used by dEclat)
+     * @param supportPrefix the support of the prefix (not used by Eclat, but used by dEclat).
+     * @param tidsetI the tidset (or diffset) of X
+     * @return the support
+     */
+    private int calculateSupport(int lengthOfX, int supportPrefix, Tidset tidsetI) {
+        if(useDiffsets(lengthOfX)) {
+            return supportPrefix - tidsetI.size();
+        }
+        return tidsetI.size();
+    }
+
+    /**
+     * This method performs the intersection of two tidsets of an equivalence class, which gives the tidset
+     * of the union of both itemsets. For dEclat, it computes the diffset of the union instead:
+     *  - when the class carries tidsets, d(PXY) = t(PX) - t(PY);
+     *  - when the class carries diffsets, d(PXY) = d(PY) - d(PX).
+     * The computation stops as soon as the union cannot reach the minimum support anymore, so
+     * tidsets of infrequent itemsets are never completed.
+     *
+     * @param lengthOfPrefix the length of the prefix of the equivalence class of both itemsets
+     * @param tidsetI the first tidset
+     * @param supportI  the support of the first itemset
+     * @param tidsetJ  the second tidset
+     * @param supportJ the support of the second itemset
+     * @return the resulting tidset, or null if the union is not frequent.
+     */
+    private Tidset performAND(int lengthOfPrefix, Tidset tidsetI, int supportI,
+                              Tidset tidsetJ, int supportJ) {
+        if(Math.min(supportI, supportJ) < minsupRelative) {
+            return null;
+        }
+        Tidset tidsetIJ;
+        if(!useDiffsets(lengthOfPrefix + 1)) {
+            // The intersection loops on the smallest of the two tidsets
+            // (or merges their containers, for bitmaps).
+            tidsetIJ = tidsetI.and(tidsetJ, minsupRelative);
+        } else if(!useDiffsets(lengthOfPrefix)) {
+            // the support of the union is supportI - |d(PXY)|
+            // switch from tidsets to diffsets
+            tidsetIJ = tidsetI.andNot(tidsetJ, supportI - minsupRelative);
+        } else {
+            tidsetIJ = tidsetJ.andNot(tidsetI, supportI - minsupRelative);
+        }
+        // the result may be better stored in another representation, now that it is smaller
+        return tidsetIJ == null ? null : tidsetMode.adapt(tidsetIJ, recodedDatabase.size());
+    }
+
+    /**
+     * Calculate the support of the union of two itemsets of an equivalence class, without
+     * creating its tidset (or diffset). Same as the support of performAND(), except that a support
+     * lower than the minimum support may not be exact.
+     *
+     * @param lengthOfPrefix the length of the prefix of the equivalence class of both itemsets
+     * @param tidsetI the first tidset
+     * @param supportI  the support of the first itemset
+     * @param tidsetJ  the second tidset
+     * @return the support of the union.
+     */
+    private int performANDSupport(int lengthOfPrefix, Tidset tidsetI, int supportI, Tidset tidsetJ) {
+        if(!useDiffsets(lengthOfPrefix)) {
+            // with tidsets, or when switching to diffsets: supportI - |t(PX) - t(PY)| = |t(PX) AND t(PY)|.
+            // Counting stops as soon as the minimum support cannot be reached.
+            return tidsetI.andCardinality(tidsetJ, minsupRelative);
+        }
+        // supportI - |d(PY) - d(PX)|
+        return supportI - (tidsetJ.size() - tidsetJ.andCardinality(tidsetI));
+    }
+
+    /**
+     * Save an itemset to disk or memory (depending on what the user chose).
+     *
+     * @param prefix the prefix of the itemset to be saved
+     * @param suffixItem  the last item to be appended to the itemset
+     * @param support calculated support for itemset
+     * @throws IOException if an error occurrs when writing to disk.
+     */
+    private void save(int[] prefix, int suffixItem, int support) throws Exception {
+        if(topKStore != null) {
+            keepTopK(append(prefix, suffixItem), support);
+            return;
+        }
+        // increase the itemset count
+        itemsetCount.incrementAndGet();
+        countThreshold(support);
+
+        if(outputQueue != null) {
+            // Parallel mining: buffer the itemset, it will be saved by the calling thread
+            ItemsetBuffer buffer = outputBuffer.get();
+            buffer.add(prefix, suffixItem, support);
+            if(buffer.isFull()) {
+                outputQueue.put(buffer.copy());
+                buffer.clear();
+            }
+            return;
+        }
+        saveItemset(prefix, suffixItem, support);
+    }
+
+    /**
+     * Parallel mining only: hand over the itemsets buffered by the current thread before forking a sub-class.
+     * For neo4j, an itemset must reach the writer after its prefix, which was saved by the current thread
+     * (or handed over before this task was forked). Otherwise a thread stealing the sub-class could hand
+     * over its itemsets first, and the writer would not find their prefix.
+     *
+     * @throws InterruptedException if interrupted while waiting for the calling thread.
+     */
+    private void handOverPrefixes() throws InterruptedException {
+        if(!destination.equals("neo4j")) {
+            return;
+        }
+        ItemsetBuffer buffer = outputBuffer.get();
+        if(buffer.size() > 0) {
+            outputQueue.put(buffer.copy());
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Save the itemsets of a buffer to disk or memory.
+     *
+     * @param buffer the itemsets
+     * @throws IOException if an error occurrs when writing to disk.
+     */
+    private void saveItemsets(ItemsetBuffer buffer) throws Exception {
+        for(int i = 0; i < buffer.size(); i++) {
+            saveItemset(buffer.getPrefix(i), buffer.getItem(i), buffer.getSupport(i));
+        }
+    }
+
+    /**
+     * Write an itemset to disk or memory, depending on the destination.
+     *
+     * @param prefix the prefix of the itemset to be saved
+     * @param suffixItem  the last item to be appended to the itemset
+     * @param support calculated support for itemset
+     * @throws IOException if an error occurrs when writing to disk.
+     */
+    private void saveItemset(int[] prefix, int suffixItem, int support) throws Exception {
+        if(destination.equals("json")){
+            String contentToWrite = "";
+            Long itemData;
+
+            // write prefix as array
+            contentToWrite = "{itemSet:[";
+            for(int item: prefix) {
+                itemData = itemAt(item);
+                contentToWrite = contentToWrite + itemData + ",";
+            }
+            contentToWrite = contentToWrite.substring(0,contentToWrite.length()-1) + "],";
+            resultBuffer.append(contentToWrite);
+
+            // write suffix
+            contentToWrite = "item:";
+            itemData = itemAt(suffixItem);
+            contentToWrite = contentToWrite + itemData + ",";
+            resultBuffer.append(contentToWrite);
+
+            // write support
+            contentToWrite = "support:" + support + "}\n";
+            resultBuffer.append(contentToWrite);
+        }
+        else if(destination.equals("neo4j")){
+            Long itemData;
+            itemData = itemAt(suffixItem);
+
+            saveToNeo4j(prefix, itemData, support);
+        }
+        else if(destination.equals("stream")){
+            streamQueue.put(new ItemsetResult(toItemList(prefix), itemAt(suffixItem), (long) support));
+        }
+        else if(destination.equals("sweep")){
+            sweepQueue.put(new SweepItemsetResult(toItemList(prefix), itemAt(suffixItem), (long) support,
+                    thresholds[thresholdOf(support)]));
+        }
+        else if(destination.equals("rules")){
+            // keep the itemset in memory, as the indexes of its items in the dictionary, sorted
+            int[] itemset = new int[prefix.length + 1];
+            for(int k = 0; k < prefix.length; k++) {
+                itemset[k] = recodedDatabase.getItem(prefix[k]);
+            }
+            itemset[prefix.length] = recodedDatabase.getItem(suffixItem);
+            Arrays.sort(itemset);
+            ruleTrie.put(itemset, support);
+        }
+        else if(writer != null && destination.equals("file"))
+        {
+            // if the result should be saved to a file
+            // write it to the output file
+            StringBuffer buffer = new StringBuffer();
+            String contentToWrite = "";
+            Long itemData;
+
+            // write prefix as array
+            contentToWrite = "{itemSet:[";
+            for(int item: prefix) {
+                itemData = itemAt(item);
+                contentToWrite = contentToWrite + itemData + ",";
+            }
+            contentToWrite = contentToWrite.substring(0,contentToWrite.length()-1) + "],";
+            buffer.append(contentToWrite);
+
+            // write suffix
+            contentToWrite = "item:";
+            itemData = itemAt(suffixItem);
+            contentToWrite = contentToWrite + itemData + ",";
+            buffer.append(contentToWrite);
+
+            // write support
+            contentToWrite = "support:" + support + "}";
+            buffer.append(contentToWrite);
+
+            writer.write(buffer.toString());
+            writer.newLine();
+        }
+    }
+
+    /**
+     * Top-K mining only: keep an itemset if it is one of the K itemsets of highest support found so far.
+     * Once K itemsets are kept, the minimum support is raised above the lowest support kept: an itemset
+     * with that support could not replace any of them, and neither could its supersets.
+     *
+     * @param itemset the codes of the itemset
+     * @param support calculated support for itemset
+     */
+    private void keepTopK(int[] itemset, int support) {
+        synchronized (topKStore) {
+            if(support > topKStore.getMinSupport()) {
+                Arrays.sort(itemset);
+                topKStore.add(itemset, support, 0);
+                minsupRelative = Math.max(minsupRelative, topKStore.getMinSupport() + 1);
+            }
+        }
+    }
+
+    /**
+     * Closed, maximal and top-K itemsets only: save the itemsets of a store to disk or memory.
+     *
+     * For neo4j, the Cypher of an itemset matches the node of its prefix, but the prefixes of stored itemsets
+     * are usually not stored themselves (a prefix of a closed itemset is rarely closed). They are written first,
+     * with their support counted from the tidsets of the frequent items, without being counted as itemsets.
+     *
+     * @param store the itemsets kept until the end of the algorithm
+     * @throws IOException if an error occurrs when writing to disk.
+     */
+    private void saveStoredItemsets(ItemsetStore store) throws Exception {
+        ItemsetBuffer buffer = store.toBuffer();
+        // for neo4j: the itemsets written, as sorted codes, and the tidsets counting the supports of prefixes
+        Set<List<Integer>> written = destination.equals("neo4j") ? new HashSet<List<Integer>>() : null;
+        Tidset[] tidsets = null;
+        for(int i = 0; i < buffer.size(); i++) {
+            int[] prefix = buffer.getPrefix(i);
+            boolean alreadyWritten = false;
+            if(written != null) {
+                if(tidsets == null && prefix.length > 0) {
+                    tidsets = calculateSupportSingleItems(recodedDatabase);
+                }
+                savePrefixesToNeo4j(prefix, tidsets, written);
+                alreadyWritten = !written.add(toCodeList(prefix, buffer.getItem(i)));
+            }
+            if(prefix.length == 0) {
+                if(alreadyWritten) {
+                    singleItemCount.incrementAndGet();
+                    countThreshold(buffer.getSupport(i));
+                } else {
+                    saveSingleItem(buffer.getItem(i), buffer.getSupport(i));
+                }
+            } else {
+                itemsetCount.incrementAndGet();
+                countThreshold(buffer.getSupport(i));
+                if(!alreadyWritten) {
+                    saveItemset(prefix, buffer.getItem(i), buffer.getSupport(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Closed, maximal and top-K itemsets only, for neo4j: write the prefixes of an itemset which were not written
+     * yet, shortest first, so that the node of each prefix exists when the next one is written.
+     *
+     * @param prefix the codes of the prefix of the itemset, sorted
+     * @param tidsets the tidset of each frequent item, by code
+     * @param written the itemsets already written, as sorted codes
+     */
+    private void savePrefixesToNeo4j(int[] prefix, Tidset[] tidsets, Set<List<Integer>> written) throws Exception {
+        Tidset tidset = null;
+        for(int length = 1; length <= prefix.length; length++) {
+            int item = prefix[length - 1];
+            tidset = (tidset == null) ? tidsets[item] : tidset.and(tidsets[item]);
+            int[] itemsetPrefix = Arrays.copyOf(prefix, length - 1);
+            if(written.add(toCodeList(itemsetPrefix, item))) {
+                saveToNeo4j(length == 1 ? null : itemsetPrefix, itemAt(item), tidset.size());
+            }
+        }
+    }
+
+    /**
+     * Get an itemset as a list of codes, e.g. to find it in a set.
+     *
+     * @param prefix the codes of the prefix
+     * @param item the code of the last item
+     * @return the codes.
+     */
+    private static List<Integer> toCodeList(int[] prefix, int item) {
+        List<Integer> codes = new ArrayList<Integer>(prefix.length + 1);
+        for(int code : prefix) {
+            codes.add(code);
+        }
+        codes.add(item);
+        return codes;
+    }
+
+    /**
+     * Sweep only: get the highest threshold reached by a support. The support of a saved itemset reaches
+     * at least the lowest threshold, which is the minimum support of the run.
+     *
+     * @param support the support of an itemset
+     * @return the index of the threshold.
+     */
+    private int thresholdOf(int support) {
+        int k = thresholdSupports.length - 1;
+        while(k > 0 && thresholdSupports[k] > support) {
+            k--;
+        }
+        return k;
+    }
+
+    /**
+     * Sweep only: count a saved itemset at its highest threshold.
+     *
+     * @param support the support of the itemset
+     */
+    private void countThreshold(int support) {
+        if(thresholdCounts != null) {
+            thresholdCounts.incrementAndGet(thresholdOf(support));
+        }
+    }
+
+    /**
+     * Return saved results.
+     */
+    public String getResultString(){
+
+        return resultBuffer.toString();
+    }
+
+    /**
+     * Save an itemset containing a single item to disk or memory (depending on what the user chose).
+     *
+     * @param item the item to be saved
+     * @param support calculated support for itemset
+     * @throws IOException if an error occurrs when writing to disk.
+     */
+    private void saveSingleItem(int item, int support) throws Exception {
+        if(topKStore != null) {
+            keepTopK(new int[]{item}, support);
+            return;
+        }
+        // increase the itemset count
+        singleItemCount.incrementAndGet();
+        countThreshold(support);
+
+        if(destination.equals("json")){
+            Long itemData = itemAt(item);
+            resultBuffer.append("{itemSet:[],item:");
+            resultBuffer.append(itemData);
+            resultBuffer.append(",support:");
+            resultBuffer.append(support);
+            resultBuffer.append("}\n");
+        }
+        else if(destination.equals("neo4j")){
+            Long itemData = itemAt(item);
+
+            saveToNeo4j(null,itemData, support);
+        }
+        else if(destination.equals("stream")){
+            streamQueue.put(new ItemsetResult(Collections.<Long>emptyList(), itemAt(item), (long) support));
+        }
+        else if(destination.equals("sweep")){
+            sweepQueue.put(new SweepItemsetResult(Collections.<Long>emptyList(), itemAt(item), (long) support,
+                    thresholds[thresholdOf(support)]));
+        }
+        else if(destination.equals("rules")){
+            ruleTrie.put(new int[]{recodedDatabase.getItem(item)}, support);
+        }
+        else if(destination.equals("file")){
+            // if the result should be saved to a file
+            // write it to the output file
+            StringBuffer buffer = new StringBuffer();
+
+            Long itemData = itemAt(item);
+            buffer.append("{itemSet:[],item:");
+            buffer.append(itemData);
+            buffer.append(",support:");
+            buffer.append(support);
+            buffer.append("}");
+            writer.write(buffer.toString());
+            writer.newLine();
+        }
+    }
+
+    /**
+     * Add an itemset to the batches written into Neo4j.
+     *
+     * @param prefix the prefix of the itemset, or null for a single item
+     * @param itemData the last item of the itemset
+     * @param support calculated support for itemset
+     */
+    private void saveToNeo4j(int[] prefix, Long itemData, int support)
+            throws Exception
+    {
+        // For single item, prefix should be null so to write prefix as blank array
+        List<Long> itemSet = (prefix == null) ? Collections.<Long>emptyList() : toItemList(prefix);
+
+        neo4jWriter.add(itemSet, itemData, support);
+    }
+
+    /**
+     * Convert the code of a frequent item back into the item.
+     *
+     * @param code the code, as mined
+     * @return the item.
+     */
+    private Long itemAt(int code) {
+        return database.getItemAt(recodedDatabase.getItem(code));
+    }
+
+    /**
+     * Convert the codes of an itemset back into items.
+     *
+     * @param prefix the codes, as mined
+     * @return the list of items.
+     */
+    private List<Long> toItemList(int[] prefix) {
+        List<Long> itemSet = new ArrayList<Long>(prefix.length);
+        for(int item: prefix) {
+            itemSet.add(itemAt(item));
+        }
+        return itemSet;
+    }
+
+    /**
+     * Convert the indexes of an itemset in the dictionary back into items.
+     *
+     * @param indexes the indexes in the dictionary of the database
+     * @return the list of items.
+     */
+    public List<Long> toDictionaryItemList(int[] indexes) {
+        List<Long> itemSet = new ArrayList<Long>(indexes.length);
+        for(int index: indexes) {
+            itemSet.add(database.getItemAt(index));
+        }
+        return itemSet;
+    }
+
+    public String getResult() {
+        return resultBuffer.toString();
+    }
+
+    public void setDestination(String dest) {
+        destination = (dest == null || dest.isEmpty())? "file" : dest;
+    }
+
+    public void setTidsetMode(String mode) {
+        tidsetMode = (mode == null || mode.isEmpty())? TidsetMode.HASHSET : TidsetMode.fromName(mode);
+    }
+
+    public void setItemsetMode(String mode) {
+        itemsetMode = (mode == null || mode.isEmpty())? ItemsetMode.ALL : ItemsetMode.fromName(mode);
+    }
+
+    public void setTopK(int k) {
+        topK = Math.max(k, 0);
+    }
+
+    public void setAlgorithm(String name) {
+        minerMode = (name == null || name.isEmpty())? MinerMode.ECLAT : MinerMode.fromName(name);
+    }
+
+    public void setMaxLength(int length) {
+        maxLength = Math.max(length, 0);
+    }
+
+    public void setMustContain(long[] items) {
+        mustContain = (items == null || items.length == 0)? null : items;
+    }
+
+    public void setConsequentIn(long[] items) {
+        consequentIn = (items == null || items.length == 0)? null : items;
+    }
+
+    public void setMatrixMode(String mode) {
+        matrixMode = (mode == null || mode.isEmpty())? MatrixMode.AUTO : MatrixMode.fromName(mode);
+    }
+
+    public void setOffHeap(boolean enabled) {
+        offHeap = enabled;
+    }
+
+    public void setDiffsetDepth(int depth) {
+        diffsetDepth = Math.max(depth, 0);
+    }
+
+    public void setParallelism(int threads) {
+        parallelism = Math.max(threads, 1);
+    }
+
+    public void setBatchSize(int rowsPerStatement, int rowsPerTransaction) {
+        batchSize = Math.max(rowsPerStatement, 1);
+        commitSize = Math.max(rowsPerTransaction, batchSize);
+    }
+
+    public void setDatabase(TransactionDatabase db) {
+        database = db;
+        dataset = null;
+    }
+
+    public void setDataset(Dataset cached) {
+        database = cached.getDatabase();
+        dataset = cached;
+    }
+
+    public void setQueryLogWriter(BufferedWriter writer)
+    {
+        queryLogWriter = writer;
+    }
+
+    public void setStreamQueue(ResultQueue<ItemsetResult> queue) {
+        streamQueue = queue;
+    }
+
+    public void setSweepQueue(ResultQueue<SweepItemsetResult> queue) {
+        sweepQueue = queue;
+    }
+
+    /**
+     * Sweep of minimum supports: mine once at the lowest threshold, instead of once per threshold, and tag each
+     * itemset with the highest threshold it reaches. The minimum support given to runAlgorithm() is then ignored.
+     * Closed itemsets are the same at every threshold, so they can be swept too, but maximal ones cannot,
+     * and neither can the antecedents kept by consequentIn.
+     *
+     * @param minsupps the thresholds, in any order, or null for a single minimum support
+     */
+    public void setThresholds(double[] minsupps) {
+        if(minsupps == null || minsupps.length == 0) {
+            thresholds = null;
+        } else {
+            thresholds = minsupps.clone();
+            Arrays.sort(thresholds);
+        }
+        thresholdSupports = null;
+        thresholdCounts = null;
+    }
+
+    public double[] getThresholds() {
+        return thresholds;
+    }
+
+    /**
+     * Sweep only: get the number of itemsets found at each threshold, i.e. whose support reaches it.
+     * @return the number of itemsets, by threshold in increasing order.
+     */
+    public long[] getThresholdItemsetCounts() {
+        long[] counts = new long[thresholds.length];
+        long count = 0;
+        for(int k = thresholds.length - 1; k >= 0; k--) {
+            count += thresholdCounts.get(k);
+            counts[k] = count;
+        }
+        return counts;
+    }
+
+    /**
+     * Sweep only: get the minimum support of each threshold, as a number of transactions.
+     * @return the minimum supports, by threshold in increasing order.
+     */
+    public int[] getThresholdSupports() {
+        return thresholdSupports;
+    }
+
+    public int getItemsetCount() {
+        return itemsetCount.get();
+    }
+
+    public int getSingleItemCount() {
+        return singleItemCount.get();
+    }
+
+    public long getTotalAlgoTime() {
+        return totalAlgoTime;
+    }
+
+    public long getTotalDatabaseTime() {
+        return totalDababaseTime;
+    }
+
+    /**
+     * Describe the settings of the algorithm, for the logs.
+     * @return the settings.
+     */
+    public String getSettingsDescription() {
+        return "{tidset}=" + tidsetMode + ", {diffsetDepth}=" + diffsetDepth + ", {parallelism}=" + parallelism
+                + ", {itemsets}=" + itemsetMode + ", {algorithm}=" + minerMode;
+    }
+
+    /**
+     * Print statistics about the algorithm execution to System.out.
+     */
+    public void printStats() {
+        System.out.println("=============  ECLAT STATS =============");
+        long temps = endTime - startTimestamp;
+        System.out.println(" Transactions count from database : "
+                + database.size());
+        System.out.println(" Frequent itemsets count : "
+                + itemsetCount);
+        if(thresholdCounts != null) {
+            long[] counts = getThresholdItemsetCounts();
+            for(int k = 0; k < thresholds.length; k++) {
+                System.out.println(" Itemsets count at minsupp " + thresholds[k] + " (single items included) : " + counts[k]);
+            }
+        }
+        System.out.println(" Total time ~ " + temps + " ms");
+        System.out.println(" Maximum memory usage : "
+                + MemoryLogger.getInstance().getMaxMemory() + " mb");
+        System.out.println("===================================================");
+    }
+}
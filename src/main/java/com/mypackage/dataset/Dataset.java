@@ -0,0 +1,57 @@
+package com.mypackage.dataset;
+
+import com.mypackage.input.TransactionDatabase;
+
+/**
+ * A transaction database loaded once and mined by several procedure calls, e.g. a sweep of minimum supports.
+ * The first ECLAT run also keeps its vertical index, which later runs reuse as long as their minimum support
+ * is not lower: a run at a lower minimum support builds a new index and replaces it.
+ */
+public class Dataset {
+    // the transactions
+    private final TransactionDatabase database;
+    // the vertical index of the last run which built one, or null
+    private volatile VerticalIndex index = null;
+
+    /**
+     * Constructor.
+     * @param database the transactions
+     */
+    public Dataset(TransactionDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Get the transactions.
+     * @return the transaction database.
+     */
+    public TransactionDatabase getDatabase() {
+        return database;
+    }
+
+    /**
+     * Get the vertical index.
+     * @return the index, or null if no run built one.
+     */
+    public VerticalIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Set the vertical index, replacing the previous one.
+     * @param index the index
+     */
+    public void setIndex(VerticalIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Estimate the memory used by the transactions, their dictionary and the vertical index.
+     * @return the number of bytes.
+     */
+    public long estimateBytes() {
+        VerticalIndex current = index;
+        long bytes = database.getTransactions().estimateBytes() + 16L * database.itemSize();
+        return (current == null) ? bytes : bytes + current.estimateBytes();
+    }
+}
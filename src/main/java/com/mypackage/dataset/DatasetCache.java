@@ -0,0 +1,105 @@
+package com.mypackage.dataset;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The datasets kept in memory between procedure calls, by name, within a memory budget. When the estimated
+ * size of the datasets exceeds the budget, the least recently used ones are evicted. The most recently used
+ * dataset is always kept, even if it exceeds the budget by itself.
+ *
+ * Sizes are estimated again at each check, since the vertical index of a dataset grows when it is mined.
+ */
+public class DatasetCache {
+    // the datasets, from the least recently used to the most recently used
+    private final LinkedHashMap<String, Dataset> datasets = new LinkedHashMap<String, Dataset>(16, 0.75f, true);
+    // the memory budget, in bytes
+    private long maxBytes;
+
+    /**
+     * Constructor of an empty cache.
+     * @param maxBytes the memory budget, in bytes
+     */
+    public DatasetCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get a dataset, which becomes the most recently used one.
+     * @param name the name of the dataset
+     * @return the dataset, or null if there is none of this name.
+     */
+    public synchronized Dataset get(String name) {
+        return datasets.get(name);
+    }
+
+    /**
+     * Add a dataset, replacing the one of the same name, then evict datasets if the budget is exceeded.
+     * @param name the name of the dataset
+     * @param dataset the dataset
+     * @return the names of the evicted datasets.
+     */
+    public synchronized List<String> put(String name, Dataset dataset) {
+        datasets.put(name, dataset);
+        return trim();
+    }
+
+    /**
+     * Remove a dataset.
+     * @param name the name of the dataset
+     * @return the dataset, or null if there was none of this name.
+     */
+    public synchronized Dataset remove(String name) {
+        return datasets.remove(name);
+    }
+
+    /**
+     * Set the memory budget, then evict datasets if it is exceeded.
+     * @param maxBytes the memory budget, in bytes
+     * @return the names of the evicted datasets.
+     */
+    public synchronized List<String> setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        return trim();
+    }
+
+    /**
+     * Evict the least recently used datasets until the others fit in the budget, keeping the most recent one.
+     * @return the names of the evicted datasets.
+     */
+    public synchronized List<String> trim() {
+        long bytes = estimateBytes();
+        List<String> evicted = new ArrayList<String>();
+        Iterator<Map.Entry<String, Dataset>> it = datasets.entrySet().iterator();
+        while (bytes > maxBytes && datasets.size() > 1) {
+            Map.Entry<String, Dataset> eldest = it.next();
+            bytes -= eldest.getValue().estimateBytes();
+            evicted.add(eldest.getKey());
+            it.remove();
+        }
+        return evicted;
+    }
+
+    /**
+     * Estimate the memory used by all the datasets.
+     * @return the number of bytes.
+     */
+    public synchronized long estimateBytes() {
+        long bytes = 0L;
+        for (Dataset dataset : datasets.values()) {
+            bytes += dataset.estimateBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Get the number of datasets.
+     * @return the number of datasets.
+     */
+    public synchronized int size() {
+        return datasets.size();
+    }
+}
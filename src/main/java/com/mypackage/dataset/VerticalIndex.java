@@ -0,0 +1,106 @@
+package com.mypackage.dataset;
+
+import java.util.Arrays;
+
+import com.mypackage.datastructures.tidset.Tidset;
+import com.mypackage.datastructures.tidset.TidsetMode;
+import com.mypackage.datastructures.triangularmatrix.AbstractTriangularMatrix;
+import com.mypackage.datastructures.triangularmatrix.OffsetTriangularMatrix;
+import com.mypackage.input.RecodedDatabase;
+
+/**
+ * The vertical representation of a dataset, as built by ECLAT at a minimum support: the recoded database,
+ * the tidset of each frequent item and the triangular matrix of the supports of the pairs. Since codes
+ * are sorted by increasing support, the frequent items at any higher minimum support are the last codes,
+ * so a later run at a higher minimum support takes a suffix of the tidsets and a view of the matrix
+ * instead of scanning the transactions again.
+ *
+ * The tidsets and the matrix are only read by the runs, so several runs can share them.
+ */
+public class VerticalIndex {
+    // the database recoded at the minimum support of the index
+    private final RecodedDatabase recoded;
+    private final int minsupRelative;
+    // the tidset of each code, and their representation
+    private final Tidset[] tidsets;
+    private final TidsetMode tidsetMode;
+
+    // the matrix, built by the first run using it, and its estimated size
+    private volatile AbstractTriangularMatrix matrix = null;
+    private volatile long matrixBytes = 0L;
+
+    /**
+     * Constructor.
+     * @param recoded the database recoded at the minimum support
+     * @param minsupRelative the minimum support, as a number of transactions
+     * @param tidsets the tidset of each code
+     * @param tidsetMode the representation of the tidsets
+     */
+    public VerticalIndex(RecodedDatabase recoded, int minsupRelative, Tidset[] tidsets, TidsetMode tidsetMode) {
+        this.recoded = recoded;
+        this.minsupRelative = minsupRelative;
+        this.tidsets = tidsets;
+        this.tidsetMode = tidsetMode;
+    }
+
+    /**
+     * Check if this index holds the frequent items of a run.
+     * @param minsupRelative the minimum support of the run
+     * @param tidsetMode the representation of the tidsets of the run
+     * @return true if the index was built at a lower or equal minimum support, with the same tidsets.
+     */
+    public boolean covers(int minsupRelative, TidsetMode tidsetMode) {
+        return this.minsupRelative <= minsupRelative && this.tidsetMode == tidsetMode;
+    }
+
+    /**
+     * Get the database recoded at the minimum support of the index.
+     * @return the recoded database.
+     */
+    public RecodedDatabase getRecoded() {
+        return recoded;
+    }
+
+    /**
+     * Get the tidsets of the codes from a given code, renumbered from 0.
+     * @param first the first code
+     * @return the tidsets.
+     */
+    public Tidset[] getTidsets(int first) {
+        return Arrays.copyOfRange(tidsets, first, tidsets.length);
+    }
+
+    /**
+     * Get the matrix of the codes from a given code, renumbered from 0.
+     * @param first the first code
+     * @return the matrix, or null if it was not built yet.
+     */
+    public AbstractTriangularMatrix getMatrix(int first) {
+        AbstractTriangularMatrix all = matrix;
+        if (all == null || first == 0) {
+            return all;
+        }
+        return new OffsetTriangularMatrix(all, first);
+    }
+
+    /**
+     * Set the matrix of all the codes.
+     * @param matrix the matrix
+     * @param bytes the estimated size of the matrix
+     */
+    public void setMatrix(AbstractTriangularMatrix matrix, long bytes) {
+        this.matrixBytes = bytes;
+        this.matrix = matrix;
+    }
+
+    /**
+     * Estimate the memory used by this index. Tidsets hold as many tids as there are codes in the recoded
+     * transactions: 4 bytes each, but several times more for hash sets of boxed tids.
+     * @return the number of bytes.
+     */
+    public long estimateBytes() {
+        long occurrences = recoded.getTransactions().getOccurrenceCount();
+        long bytesPerTid = (tidsetMode == TidsetMode.HASHSET) ? 48 : 4;
+        return recoded.getTransactions().estimateBytes() + occurrences * bytesPerTid + matrixBytes;
+    }
+}
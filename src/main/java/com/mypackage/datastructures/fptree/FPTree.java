@@ -0,0 +1,234 @@
+package com.mypackage.datastructures.fptree;
+
+import java.util.Arrays;
+
+/**
+ * A compact FP-tree (Han, Pei & Yin, 2000), stored as parallel arrays of ints with one entry per node
+ * instead of one object per node.
+ *
+ * The items of a tree are local indexes 0..n-1, in the order of their codes. Paths are inserted from
+ * their last item to their first one, so items of higher code (more frequent) are closer to the root,
+ * and the ancestors of a node always have a higher index. The nodes of each item are chained by node
+ * links from the header table.
+ */
+public class FPTree {
+    /** The root node, which has no item */
+    public static final int ROOT = 0;
+    /** No node (end of a list of nodes) */
+    public static final int NONE = -1;
+
+    // the code of each local item, increasing
+    private final int[] items;
+    // the header table: the support of each local item in this tree, and its first node
+    private final int[] supports;
+    private final int[] heads;
+    // the children of the root, by local item
+    private final int[] rootChildren;
+
+    // the nodes: local item, count, parent, first child, next sibling, and next node of the same item
+    private int[] nodeItems;
+    private int[] nodeCounts;
+    private int[] parents;
+    private int[] children;
+    private int[] siblings;
+    private int[] links;
+    // the number of nodes, including the root
+    private int size = 1;
+    // whether all nodes have at most one child
+    private boolean singlePath = true;
+
+    /**
+     * Constructor of an empty tree.
+     * @param items the code of each local item, increasing
+     * @param capacity the expected number of nodes
+     */
+    public FPTree(int[] items, int capacity) {
+        this.items = items;
+        this.supports = new int[items.length];
+        this.heads = new int[items.length];
+        this.rootChildren = new int[items.length];
+        Arrays.fill(heads, NONE);
+        Arrays.fill(rootChildren, NONE);
+
+        capacity = Math.max(capacity, 16);
+        nodeItems = new int[capacity];
+        nodeCounts = new int[capacity];
+        parents = new int[capacity];
+        children = new int[capacity];
+        siblings = new int[capacity];
+        links = new int[capacity];
+        nodeItems[ROOT] = NONE;
+        parents[ROOT] = NONE;
+        children[ROOT] = NONE;
+        siblings[ROOT] = NONE;
+        links[ROOT] = NONE;
+    }
+
+    /**
+     * Insert a path, sharing the nodes of the paths which start with the same items.
+     * @param path the local items of the path, by increasing index: the last one is inserted first
+     * @param length the number of items of the path
+     * @param count the number of transactions of the path
+     */
+    public void addPath(int[] path, int length, int count) {
+        int node = ROOT;
+        for (int k = length - 1; k >= 0; k--) {
+            int item = path[k];
+            int child = findChild(node, item);
+            if (child == NONE) {
+                child = newNode(node, item);
+            }
+            nodeCounts[child] += count;
+            supports[item] += count;
+            node = child;
+        }
+    }
+
+    /**
+     * Find the child of a node having an item.
+     * @param node the node
+     * @param item the local item
+     * @return the child, or NONE.
+     */
+    private int findChild(int node, int item) {
+        if (node == ROOT) {
+            return rootChildren[item];
+        }
+        for (int child = children[node]; child != NONE; child = siblings[child]) {
+            if (nodeItems[child] == item) {
+                return child;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Create a child of a node, and chain it to the other nodes of its item.
+     * @param parent the parent node
+     * @param item the local item
+     * @return the new node.
+     */
+    private int newNode(int parent, int item) {
+        if (size == nodeItems.length) {
+            int capacity = size * 2;
+            nodeItems = Arrays.copyOf(nodeItems, capacity);
+            nodeCounts = Arrays.copyOf(nodeCounts, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            children = Arrays.copyOf(children, capacity);
+            siblings = Arrays.copyOf(siblings, capacity);
+            links = Arrays.copyOf(links, capacity);
+        }
+        int node = size++;
+        if (children[parent] != NONE) {
+            singlePath = false;
+        }
+        nodeItems[node] = item;
+        nodeCounts[node] = 0;
+        parents[node] = parent;
+        children[node] = NONE;
+        siblings[node] = children[parent];
+        children[parent] = node;
+        links[node] = heads[item];
+        heads[item] = node;
+        if (parent == ROOT) {
+            rootChildren[item] = node;
+        }
+        return node;
+    }
+
+    /**
+     * Get the number of local items of this tree.
+     * @return the number of items.
+     */
+    public int getItemCount() {
+        return items.length;
+    }
+
+    /**
+     * Get the code of a local item.
+     * @param item the local item
+     * @return the code.
+     */
+    public int getItem(int item) {
+        return items[item];
+    }
+
+    /**
+     * Get the support of a local item in this tree.
+     * @param item the local item
+     * @return the sum of the counts of its nodes.
+     */
+    public int getSupport(int item) {
+        return supports[item];
+    }
+
+    /**
+     * Get the first node of a local item.
+     * @param item the local item
+     * @return the node, or NONE.
+     */
+    public int getHead(int item) {
+        return heads[item];
+    }
+
+    /**
+     * Get the next node having the same item as a node.
+     * @param node the node
+     * @return the next node, or NONE.
+     */
+    public int getNext(int node) {
+        return links[node];
+    }
+
+    /**
+     * Get the parent of a node.
+     * @param node the node
+     * @return the parent, ROOT for the children of the root.
+     */
+    public int getParent(int node) {
+        return parents[node];
+    }
+
+    /**
+     * Get the first child of a node.
+     * @param node the node
+     * @return the child, or NONE.
+     */
+    public int getChild(int node) {
+        return children[node];
+    }
+
+    /**
+     * Get the local item of a node.
+     * @param node the node, not the root
+     * @return the local item.
+     */
+    public int getNodeItem(int node) {
+        return nodeItems[node];
+    }
+
+    /**
+     * Get the number of transactions of the paths through a node.
+     * @param node the node
+     * @return the count.
+     */
+    public int getCount(int node) {
+        return nodeCounts[node];
+    }
+
+    /**
+     * Get the number of nodes of this tree, including the root.
+     * @return the number of nodes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if this tree is a single path, i.e. if no node has more than one child.
+     * @return true if it is.
+     */
+    public boolean isSinglePath() {
+        return singlePath;
+    }
+}
@@ -0,0 +1,236 @@
+package com.mypackage.datastructures.hashmap;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from primitive long keys to primitive int values, implemented with open addressing
+ * and linear probing. Keys and values are stored in two parallel arrays so that no object is
+ * allocated per entry (unlike HashMap&lt;Long, Integer&gt;, which boxes both).
+ *
+ * The key 0 is used to mark free slots, so an entry with the key 0 is stored aside in its own field.
+ */
+public class LongIntOpenHashMap {
+    // the key marking a free slot in the table
+    private static final long FREE_KEY = 0L;
+    // the table is grown when it is filled over this ratio
+    private static final float LOAD_FACTOR = 0.5f;
+
+    // the keys of the table
+    private long[] keys;
+    // the values of the table, at the same position as their key
+    private int[] values;
+    // mask used to wrap a hash code into the table (capacity - 1)
+    private int mask;
+    // the number of entries stored in the table (excluding the entry of key 0)
+    private int assigned;
+    // the number of entries that can be stored before the table is grown
+    private int resizeAt;
+
+    // whether an entry with the key 0 exists, and its value
+    private boolean hasFreeKey = false;
+    private int freeKeyValue;
+
+    // the value returned by get() when a key is not found
+    private final int noEntryValue;
+
+    /**
+     * Constructor of an empty map.
+     * @param expectedSize the number of entries expected, used to size the table.
+     * @param noEntryValue the value returned when a key is not found.
+     */
+    public LongIntOpenHashMap(int expectedSize, int noEntryValue) {
+        this.noEntryValue = noEntryValue;
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Get the value associated to a key.
+     * @param key the key
+     * @return the value, or the "no entry" value if the key is not in this map.
+     */
+    public int get(long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : noEntryValue;
+        }
+        int slot = slotOf(key);
+        // probe until the key or a free slot is found
+        while (keys[slot] != FREE_KEY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return noEntryValue;
+    }
+
+    /**
+     * Check if a key is in this map.
+     * @param key the key
+     * @return true if the key is found.
+     */
+    public boolean containsKey(long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != FREE_KEY) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Associate a value to a key, replacing the previous value if any.
+     * @param key the key
+     * @param value the value
+     * @return the previous value, or the "no entry" value if the key was not in this map.
+     */
+    public int put(long key, int value) {
+        if (key == FREE_KEY) {
+            int previous = hasFreeKey ? freeKeyValue : noEntryValue;
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return previous;
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != FREE_KEY) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // the key is new: store it in the free slot that was found
+        keys[slot] = key;
+        values[slot] = value;
+        if (++assigned >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return noEntryValue;
+    }
+
+    /**
+     * Add a delta to the value of a key. A key which is not in this map is added with the delta as value.
+     * @param key the key
+     * @param delta the value to add
+     * @return the new value.
+     */
+    public int addTo(long key, int delta) {
+        if (key == FREE_KEY) {
+            freeKeyValue = hasFreeKey ? freeKeyValue + delta : delta;
+            hasFreeKey = true;
+            return freeKeyValue;
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != FREE_KEY) {
+            if (keys[slot] == key) {
+                return values[slot] += delta;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++assigned >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return delta;
+    }
+
+    /**
+     * Apply an action to each entry of this map, in no particular order.
+     * @param procedure the action
+     */
+    public void forEach(LongIntProcedure procedure) {
+        if (hasFreeKey) {
+            procedure.apply(FREE_KEY, freeKeyValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE_KEY) {
+                procedure.apply(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Get the number of entries in this map.
+     * @return the number of entries.
+     */
+    public int size() {
+        return assigned + (hasFreeKey ? 1 : 0);
+    }
+
+    /**
+     * Remove all entries from this map. The table keeps its current capacity.
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        assigned = 0;
+        hasFreeKey = false;
+    }
+
+    /**
+     * Compute the home slot of a key, by mixing the bits of the key (MurmurHash3 finalizer)
+     * so that sequential ids do not cluster in the table.
+     * @param key the key
+     * @return the slot
+     */
+    private int slotOf(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    /**
+     * Compute the capacity of the table (a power of two) for a given number of entries.
+     * @param expectedSize the number of entries
+     * @return the capacity
+     */
+    private static int capacityFor(int expectedSize) {
+        long required = (long) Math.ceil(Math.max(expectedSize, 4) / LOAD_FACTOR) + 1;
+        long capacity = Long.highestOneBit(required - 1) << 1;
+        if (capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Map too large: " + expectedSize + " entries");
+        }
+        return (int) capacity;
+    }
+
+    /**
+     * Allocate empty arrays for a given capacity.
+     * @param capacity the capacity, a power of two.
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Grow the table and re-insert all the entries.
+     * @param newCapacity the new capacity, a power of two.
+     */
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != FREE_KEY) {
+                int slot = slotOf(key);
+                while (keys[slot] != FREE_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
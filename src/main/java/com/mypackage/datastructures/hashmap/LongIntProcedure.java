@@ -0,0 +1,13 @@
+package com.mypackage.datastructures.hashmap;
+
+/**
+ * An action applied to each entry of a LongIntOpenHashMap.
+ */
+public interface LongIntProcedure {
+    /**
+     * Apply the action to an entry.
+     * @param key the key
+     * @param value the value
+     */
+    public abstract void apply(long key, int value);
+}
@@ -0,0 +1,73 @@
+package com.mypackage.datastructures.itemset;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A store of closed itemsets, i.e. itemsets having no superset of the same support (CHARM).
+ * An itemset is subsumed by a superset of the same support, since both have the same tidset.
+ *
+ * Itemsets are hashed by their support and the hash of their tidset, so that an itemset is only
+ * compared with the few itemsets which may have the same tidset.
+ */
+public class ClosedItemsetStore implements ItemsetStore {
+    // the itemsets, by hash of (support, tidset)
+    private final Map<Long, List<StoredItemset>> buckets;
+    // the number of itemsets stored
+    private int size = 0;
+
+    /**
+     * Constructor of an empty store.
+     * @param expectedSize the number of itemsets expected.
+     */
+    public ClosedItemsetStore(int expectedSize) {
+        buckets = new HashMap<Long, List<StoredItemset>>(Math.max(expectedSize, 16));
+    }
+
+    @Override
+    public synchronized boolean add(int[] itemset, int support, long tidsetHash) {
+        Long key = tidsetHash * 31 + support;
+        List<StoredItemset> bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<StoredItemset>(2);
+            buckets.put(key, bucket);
+        }
+        for (StoredItemset stored : bucket) {
+            // a superset of the same support: the itemset is not closed
+            if (stored.support == support && StoredItemset.containsAll(stored.itemset, itemset)) {
+                return false;
+            }
+        }
+        Iterator<StoredItemset> it = bucket.iterator();
+        while (it.hasNext()) {
+            StoredItemset stored = it.next();
+            // a subset of the same support, added first: it is not closed
+            if (stored.support == support && StoredItemset.containsAll(itemset, stored.itemset)) {
+                it.remove();
+                size--;
+            }
+        }
+        bucket.add(new StoredItemset(itemset, support));
+        size++;
+        return true;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized ItemsetBuffer toBuffer() {
+        ItemsetBuffer buffer = new ItemsetBuffer(Math.max(size, 1));
+        for (List<StoredItemset> bucket : buckets.values()) {
+            for (StoredItemset stored : bucket) {
+                stored.addTo(buffer);
+            }
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,92 @@
+package com.mypackage.datastructures.itemset;
+
+/**
+ * A fixed-size buffer of itemsets waiting to be saved. An itemset is stored as its prefix,
+ * its last item and its support, in parallel arrays so that no object is created per itemset.
+ *
+ * Prefix arrays are shared with the miner and must not be modified once added.
+ */
+public class ItemsetBuffer {
+    // the prefixes of the itemsets
+    private final int[][] prefixes;
+    // the last item of the itemsets
+    private final int[] items;
+    // the supports of the itemsets
+    private final int[] supports;
+    // the number of itemsets in the buffer
+    private int size = 0;
+
+    /**
+     * Constructor of an empty buffer.
+     * @param capacity the maximum number of itemsets in the buffer.
+     */
+    public ItemsetBuffer(int capacity) {
+        prefixes = new int[capacity][];
+        items = new int[capacity];
+        supports = new int[capacity];
+    }
+
+    /**
+     * Add an itemset to the buffer.
+     * @param prefix the prefix of the itemset
+     * @param item the last item of the itemset
+     * @param support the support of the itemset
+     */
+    public void add(int[] prefix, int item, int support) {
+        prefixes[size] = prefix;
+        items[size] = item;
+        supports[size] = support;
+        size++;
+    }
+
+    /**
+     * Check if the buffer is full.
+     * @return true if no more itemset can be added.
+     */
+    public boolean isFull() {
+        return size == items.length;
+    }
+
+    /**
+     * Get the number of itemsets in the buffer.
+     * @return the number of itemsets.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int[] getPrefix(int i) {
+        return prefixes[i];
+    }
+
+    public int getItem(int i) {
+        return items[i];
+    }
+
+    public int getSupport(int i) {
+        return supports[i];
+    }
+
+    /**
+     * Get a copy of this buffer, with the same capacity.
+     * @return the copy.
+     */
+    public ItemsetBuffer copy() {
+        ItemsetBuffer copy = new ItemsetBuffer(items.length);
+        System.arraycopy(prefixes, 0, copy.prefixes, 0, size);
+        System.arraycopy(items, 0, copy.items, 0, size);
+        System.arraycopy(supports, 0, copy.supports, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Remove all itemsets from the buffer.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            prefixes[i] = null;
+        }
+        size = 0;
+    }
+}
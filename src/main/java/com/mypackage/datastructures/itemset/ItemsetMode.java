@@ -0,0 +1,49 @@
+package com.mypackage.datastructures.itemset;
+
+/**
+ * The kinds of frequent itemsets output by the algorithm. Closed and maximal itemsets are condensed
+ * representations: closed itemsets give the support of every frequent itemset (the support of an itemset
+ * is the largest support of its closed supersets), maximal itemsets only give which itemsets are frequent.
+ */
+public enum ItemsetMode {
+    /** all frequent itemsets, saved as they are found */
+    ALL {
+        public ItemsetStore newStore(int itemCount) {
+            return null;
+        }
+    },
+    /** the frequent itemsets having no superset of the same support */
+    CLOSED {
+        public ItemsetStore newStore(int itemCount) {
+            return new ClosedItemsetStore(itemCount * 4);
+        }
+    },
+    /** the frequent itemsets having no frequent superset */
+    MAXIMAL {
+        public ItemsetStore newStore(int itemCount) {
+            return new MaximalItemsetStore(itemCount);
+        }
+    };
+
+    /**
+     * Create the store keeping the candidate itemsets of this mode until the end of the algorithm.
+     * @param itemCount the number of frequent items
+     * @return the store, or null if itemsets are saved as they are found.
+     */
+    public abstract ItemsetStore newStore(int itemCount);
+
+    /**
+     * Get the mode of a given name, ignoring case.
+     * @param name the name of the mode, e.g. 'all', 'closed' or 'maximal'
+     * @return the mode.
+     * @throws IllegalArgumentException if no mode has this name.
+     */
+    public static ItemsetMode fromName(String name) {
+        for (ItemsetMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(name.trim())) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown itemset mode: " + name);
+    }
+}
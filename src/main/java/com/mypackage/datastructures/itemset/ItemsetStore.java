@@ -0,0 +1,29 @@
+package com.mypackage.datastructures.itemset;
+
+/**
+ * A set of candidate itemsets, which only keeps the itemsets that are not subsumed by another candidate
+ * (e.g. closed or maximal itemsets). Candidates can be added in any order, and by several threads.
+ */
+public interface ItemsetStore {
+    /**
+     * Add a candidate itemset, unless it is subsumed by an itemset already stored. The itemsets
+     * it subsumes are removed.
+     * @param itemset the items, sorted by increasing code
+     * @param support the support of the itemset
+     * @param tidsetHash a hash of the tidset of the itemset: the itemsets having the same tidset have the same hash
+     * @return true if the itemset was added.
+     */
+    public abstract boolean add(int[] itemset, int support, long tidsetHash);
+
+    /**
+     * Get the number of itemsets stored.
+     * @return the number of itemsets.
+     */
+    public abstract int size();
+
+    /**
+     * Get the itemsets stored, each one as its prefix and its last item.
+     * @return a buffer holding the itemsets.
+     */
+    public abstract ItemsetBuffer toBuffer();
+}
@@ -0,0 +1,174 @@
+package com.mypackage.datastructures.itemset;
+
+import java.util.Arrays;
+
+import com.mypackage.datastructures.hashmap.LongIntOpenHashMap;
+
+/**
+ * A prefix tree (trie) storing itemsets and their supports. Each itemset is stored as the path of its
+ * items sorted by increasing id, so each of its subsets can be found in time linear in its size.
+ *
+ * Nodes are kept in flat arrays (parent, item, support), and the children of all nodes are indexed
+ * by a single primitive hash map from (node, item) to the child node, so no object is created per node.
+ */
+public class ItemsetTrie {
+    /** The support of a node which is only the prefix of stored itemsets. */
+    public static final int NO_SUPPORT = -1;
+
+    // the root node, i.e. the empty itemset
+    private static final int ROOT = 0;
+
+    // map from (node << 32 | item) to the child of node for item
+    private final LongIntOpenHashMap children;
+    // the parent, item, support and depth of each node
+    private int[] parents;
+    private int[] items;
+    private int[] supports;
+    private int[] depths;
+    // the number of nodes (including the root)
+    private int nodeCount = 1;
+    // the number of itemsets stored
+    private int itemsetCount = 0;
+
+    /**
+     * Constructor of an empty trie.
+     * @param expectedSize the number of itemsets expected.
+     */
+    public ItemsetTrie(int expectedSize) {
+        int capacity = Math.max(expectedSize + 1, 16);
+        children = new LongIntOpenHashMap(capacity, ROOT);
+        parents = new int[capacity];
+        items = new int[capacity];
+        supports = new int[capacity];
+        depths = new int[capacity];
+        supports[ROOT] = NO_SUPPORT;
+    }
+
+    /**
+     * Add an itemset, or update its support.
+     * @param itemset the items, sorted by increasing id
+     * @param support the support of the itemset
+     */
+    public void put(int[] itemset, int support) {
+        int node = ROOT;
+        for (int item : itemset) {
+            int child = children.get(key(node, item));
+            if (child == ROOT) {
+                child = newNode(node, item);
+            }
+            node = child;
+        }
+        if (supports[node] == NO_SUPPORT) {
+            itemsetCount++;
+        }
+        supports[node] = support;
+    }
+
+    /**
+     * Get the support of an itemset.
+     * @param itemset the items, sorted by increasing id
+     * @return the support, or NO_SUPPORT if the itemset is not stored.
+     */
+    public int getSupport(int[] itemset) {
+        return getSupport(itemset, itemset.length);
+    }
+
+    /**
+     * Get the support of the first items of an itemset.
+     * @param itemset the items, sorted by increasing id
+     * @param length the number of items of the itemset to consider
+     * @return the support, or NO_SUPPORT if the itemset is not stored.
+     */
+    public int getSupport(int[] itemset, int length) {
+        int node = ROOT;
+        for (int i = 0; i < length; i++) {
+            node = children.get(key(node, itemset[i]));
+            if (node == ROOT) {
+                return NO_SUPPORT;
+            }
+        }
+        return supports[node];
+    }
+
+    /**
+     * Get the number of itemsets stored.
+     * @return the number of itemsets.
+     */
+    public int size() {
+        return itemsetCount;
+    }
+
+    /**
+     * Get the number of nodes, including the root. Nodes are numbered from 0 (the root) to getNodeCount() - 1,
+     * and a node is always numbered after its parent.
+     * @return the number of nodes.
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Get the support of the itemset ending at a node.
+     * @param node the node
+     * @return the support, or NO_SUPPORT if the node is only a prefix.
+     */
+    public int getSupportAt(int node) {
+        return supports[node];
+    }
+
+    /**
+     * Get the size of the itemset ending at a node.
+     * @param node the node
+     * @return the number of items.
+     */
+    public int getDepth(int node) {
+        return depths[node];
+    }
+
+    /**
+     * Get the itemset ending at a node.
+     * @param node the node
+     * @return the items, sorted by increasing id.
+     */
+    public int[] getItemset(int node) {
+        int[] itemset = new int[depths[node]];
+        for (int i = itemset.length - 1; i >= 0; i--) {
+            itemset[i] = items[node];
+            node = parents[node];
+        }
+        return itemset;
+    }
+
+    /**
+     * Create a child node.
+     * @param parent the parent node
+     * @param item the item of the child
+     * @return the child node.
+     */
+    private int newNode(int parent, int item) {
+        if (nodeCount == parents.length) {
+            int capacity = nodeCount << 1;
+            parents = Arrays.copyOf(parents, capacity);
+            items = Arrays.copyOf(items, capacity);
+            supports = Arrays.copyOf(supports, capacity);
+            depths = Arrays.copyOf(depths, capacity);
+        }
+        int node = nodeCount++;
+        parents[node] = parent;
+        items[node] = item;
+        supports[node] = NO_SUPPORT;
+        depths[node] = depths[parent] + 1;
+        children.put(key(parent, item), node);
+        return node;
+    }
+
+    /**
+     * The key of a child in the hash map.
+     * @param node the parent node
+     * @param item the item of the child
+     * @return the key.
+     */
+    private static long key(int node, int item) {
+        return ((long) node << 32) | (item & 0xffffffffL);
+    }
+}
@@ -0,0 +1,79 @@
+package com.mypackage.datastructures.itemset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A store of maximal itemsets, i.e. frequent itemsets having no frequent superset (MaxEclat).
+ * An itemset is subsumed by any superset, whatever its support.
+ *
+ * Itemsets are indexed by each of their items, so that the supersets of an itemset are only
+ * searched among the itemsets containing its least common item.
+ */
+public class MaximalItemsetStore implements ItemsetStore {
+    // the itemsets containing each item, by item code (including removed itemsets)
+    private final List<List<StoredItemset>> itemsetsByItem;
+    // the number of itemsets stored
+    private int size = 0;
+
+    /**
+     * Constructor of an empty store.
+     * @param itemCount the number of items, coded 0..itemCount-1
+     */
+    public MaximalItemsetStore(int itemCount) {
+        itemsetsByItem = new ArrayList<List<StoredItemset>>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            itemsetsByItem.add(new ArrayList<StoredItemset>(2));
+        }
+    }
+
+    @Override
+    public synchronized boolean add(int[] itemset, int support, long tidsetHash) {
+        // a superset contains every item of the itemset: search the shortest list
+        List<StoredItemset> candidates = itemsetsByItem.get(itemset[0]);
+        for (int item : itemset) {
+            if (itemsetsByItem.get(item).size() < candidates.size()) {
+                candidates = itemsetsByItem.get(item);
+            }
+        }
+        for (StoredItemset stored : candidates) {
+            if (!stored.removed && StoredItemset.containsAll(stored.itemset, itemset)) {
+                return false;
+            }
+        }
+        // remove the subsets added first, each one found in the list of its first item
+        for (int item : itemset) {
+            for (StoredItemset stored : itemsetsByItem.get(item)) {
+                if (!stored.removed && stored.itemset[0] == item && StoredItemset.containsAll(itemset, stored.itemset)) {
+                    stored.removed = true;
+                    size--;
+                }
+            }
+        }
+        StoredItemset added = new StoredItemset(itemset, support);
+        for (int item : itemset) {
+            itemsetsByItem.get(item).add(added);
+        }
+        size++;
+        return true;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized ItemsetBuffer toBuffer() {
+        ItemsetBuffer buffer = new ItemsetBuffer(Math.max(size, 1));
+        for (int item = 0; item < itemsetsByItem.size(); item++) {
+            for (StoredItemset stored : itemsetsByItem.get(item)) {
+                // each itemset is listed once, under its first item
+                if (!stored.removed && stored.itemset[0] == item) {
+                    stored.addTo(buffer);
+                }
+            }
+        }
+        return buffer;
+    }
+}
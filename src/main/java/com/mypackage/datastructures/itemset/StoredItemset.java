@@ -0,0 +1,52 @@
+package com.mypackage.datastructures.itemset;
+
+import java.util.Arrays;
+
+/**
+ * An itemset kept by an ItemsetStore, with its support.
+ */
+class StoredItemset {
+    // the items, sorted by increasing code
+    final int[] itemset;
+    // the support of the itemset
+    final int support;
+    // whether the itemset was subsumed by an itemset added later
+    boolean removed = false;
+
+    StoredItemset(int[] itemset, int support) {
+        this.itemset = itemset;
+        this.support = support;
+    }
+
+    /**
+     * Add this itemset to a buffer, as its prefix and its last item.
+     * @param buffer the buffer
+     */
+    void addTo(ItemsetBuffer buffer) {
+        buffer.add(Arrays.copyOf(itemset, itemset.length - 1), itemset[itemset.length - 1], support);
+    }
+
+    /**
+     * Check if an itemset contains all the items of another itemset.
+     * @param itemset the items of the first itemset, sorted
+     * @param subset the items of the other itemset, sorted
+     * @return true if the other itemset is a subset of the first one.
+     */
+    static boolean containsAll(int[] itemset, int[] subset) {
+        if (subset.length > itemset.length) {
+            return false;
+        }
+        int i = 0;
+        for (int item : subset) {
+            // both itemsets are sorted: skip the smaller items of the first itemset
+            while (i < itemset.length && itemset[i] < item) {
+                i++;
+            }
+            if (i == itemset.length || itemset[i] != item) {
+                return false;
+            }
+            i++;
+        }
+        return true;
+    }
+}
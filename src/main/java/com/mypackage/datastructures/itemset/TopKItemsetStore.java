@@ -0,0 +1,73 @@
+package com.mypackage.datastructures.itemset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A store of the K itemsets of highest support found so far, in a min-heap ordered by support.
+ * Once K itemsets are stored, an itemset is only added if its support is higher than the lowest one,
+ * which it replaces.
+ */
+public class TopKItemsetStore implements ItemsetStore {
+    // orders the itemsets by increasing support
+    private static final Comparator<StoredItemset> BY_SUPPORT = new Comparator<StoredItemset>() {
+        @Override
+        public int compare(StoredItemset a, StoredItemset b) {
+            return Integer.compare(a.support, b.support);
+        }
+    };
+
+    // the number of itemsets kept
+    private final int k;
+    // the itemsets, the one of lowest support first
+    private final PriorityQueue<StoredItemset> heap;
+
+    /**
+     * Constructor of an empty store.
+     * @param k the number of itemsets kept
+     */
+    public TopKItemsetStore(int k) {
+        this.k = k;
+        heap = new PriorityQueue<StoredItemset>(Math.min(k, 1 << 16), BY_SUPPORT);
+    }
+
+    @Override
+    public synchronized boolean add(int[] itemset, int support, long tidsetHash) {
+        if (heap.size() == k) {
+            if (support <= heap.peek().support) {
+                return false;
+            }
+            heap.poll();
+        }
+        heap.add(new StoredItemset(itemset, support));
+        return true;
+    }
+
+    /**
+     * Get the support that an itemset must exceed to be added.
+     * @return the lowest support stored if K itemsets are stored, or 0.
+     */
+    public synchronized int getMinSupport() {
+        return heap.size() < k ? 0 : heap.peek().support;
+    }
+
+    @Override
+    public synchronized int size() {
+        return heap.size();
+    }
+
+    @Override
+    public synchronized ItemsetBuffer toBuffer() {
+        // by decreasing support
+        List<StoredItemset> itemsets = new ArrayList<StoredItemset>(heap);
+        Collections.sort(itemsets, Collections.reverseOrder(BY_SUPPORT));
+        ItemsetBuffer buffer = new ItemsetBuffer(Math.max(itemsets.size(), 1));
+        for (StoredItemset stored : itemsets) {
+            stored.addTo(buffer);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,205 @@
+package com.mypackage.datastructures.tidset;
+
+import java.util.Arrays;
+
+/**
+ * A tidset stored as a bitset of all transactions: one bit per transaction, set if the transaction
+ * is in the tidset. This is the most compact representation of dense tidsets (n / 8 bytes for n
+ * transactions), and an intersection is a word-wise AND followed by a population count.
+ *
+ * The result of an operation is a bitset only if it is still dense; otherwise it is narrowed into
+ * a sorted array, so that the recursion continues on small tidsets.
+ */
+public class BitSetTidset implements Tidset {
+    /** a tidset holding at least one transaction in DENSITY is stored as a bitset, smaller than an array */
+    public static final int DENSITY = 32;
+
+    // the bits of the transactions, 64 per word
+    private final long[] words;
+    // the number of bits set
+    private int cardinality;
+    // the number of transactions of the database
+    private final int transactionCount;
+
+    /**
+     * Constructor of an empty tidset.
+     * @param transactionCount the number of transactions of the database
+     */
+    public BitSetTidset(int transactionCount) {
+        this(new long[(transactionCount + 63) >>> 6], 0, transactionCount);
+    }
+
+    /**
+     * Constructor of a tidset wrapping existing words.
+     * @param words the bits of the transactions
+     * @param cardinality the number of bits set
+     * @param transactionCount the number of transactions of the database
+     */
+    private BitSetTidset(long[] words, int cardinality, int transactionCount) {
+        this.words = words;
+        this.cardinality = cardinality;
+        this.transactionCount = transactionCount;
+    }
+
+    /**
+     * Check if a tidset is dense enough to be stored as a bitset.
+     * @param cardinality the number of transaction ids of the tidset
+     * @param transactionCount the number of transactions of the database
+     * @return true if a bitset is smaller than a sorted array.
+     */
+    public static boolean isDense(int cardinality, int transactionCount) {
+        return (long) cardinality * DENSITY >= transactionCount;
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public void add(int tid) {
+        long bit = 1L << tid;
+        if ((words[tid >>> 6] & bit) == 0) {
+            words[tid >>> 6] |= bit;
+            cardinality++;
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public boolean contains(int tid) {
+        return (words[tid >>> 6] & (1L << tid)) != 0;
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public int size() {
+        return cardinality;
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public int[] toArray() {
+        int[] tids = new int[cardinality];
+        int count = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                tids[count++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return tids;
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public Tidset and(Tidset other) {
+        return and(other, 0);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public Tidset and(Tidset other, int minSize) {
+        if (!(other instanceof BitSetTidset)) {
+            // the result is not larger than the other tidset: filter it
+            return IntArrayTidset.copyOf(other).and(this, minSize);
+        }
+        long[] otherWords = ((BitSetTidset) other).words;
+        // count first, so that an infrequent intersection allocates nothing
+        int count = 0;
+        for (int w = 0; w < words.length; w++) {
+            count += Long.bitCount(words[w] & otherWords[w]);
+        }
+        if (count < minSize) {
+            return null;
+        }
+        if (isDense(count, transactionCount)) {
+            long[] result = new long[words.length];
+            for (int w = 0; w < words.length; w++) {
+                result[w] = words[w] & otherWords[w];
+            }
+            return new BitSetTidset(result, count, transactionCount);
+        }
+        // narrow the intersection into a sorted array
+        int[] result = new int[count];
+        int k = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w] & otherWords[w];
+            while (word != 0) {
+                result[k++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return new IntArrayTidset(result, count);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public int andCardinality(Tidset other) {
+        return andCardinality(other, 0);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public int andCardinality(Tidset other, int minSize) {
+        if (!(other instanceof BitSetTidset)) {
+            return IntArrayTidset.copyOf(other).andCardinality(this, minSize);
+        }
+        long[] otherWords = ((BitSetTidset) other).words;
+        int count = 0;
+        for (int w = 0; w < words.length; w++) {
+            count += Long.bitCount(words[w] & otherWords[w]);
+        }
+        return count;
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public Tidset andNot(Tidset other) {
+        return andNot(other, Integer.MAX_VALUE);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public Tidset andNot(Tidset other, int maxSize) {
+        // the difference has at least |this| - |other| tids
+        if (cardinality - other.size() > maxSize) {
+            return null;
+        }
+        long[] result;
+        int count;
+        if (other instanceof BitSetTidset) {
+            long[] otherWords = ((BitSetTidset) other).words;
+            result = new long[words.length];
+            count = 0;
+            for (int w = 0; w < words.length; w++) {
+                result[w] = words[w] & ~otherWords[w];
+                count += Long.bitCount(result[w]);
+            }
+        } else {
+            // clear the bits of the tids of the other tidset
+            int[] otherTids = other.toArray();
+            result = Arrays.copyOf(words, words.length);
+            count = cardinality;
+            for (int tid : otherTids) {
+                long bit = 1L << tid;
+                if (tid < transactionCount && (result[tid >>> 6] & bit) != 0) {
+                    result[tid >>> 6] &= ~bit;
+                    count--;
+                }
+            }
+        }
+        if (count > maxSize) {
+            return null;
+        }
+        BitSetTidset difference = new BitSetTidset(result, count, transactionCount);
+        return isDense(count, transactionCount) ? difference : new IntArrayTidset(difference.toArray(), count);
+    }
+}
@@ -0,0 +1,201 @@
+package com.mypackage.datastructures.tidset;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A tidset stored as a hash set of transaction ids.
+ */
+public class HashSetTidset implements Tidset {
+
+    // the transaction ids
+    private final Set<Integer> tids;
+
+    /**
+     * Constructor of an empty tidset.
+     */
+    public HashSetTidset() {
+        tids = new HashSet<Integer>();
+    }
+
+    /**
+     * Constructor of an empty tidset.
+     * @param expectedSize the number of transaction ids expected.
+     */
+    public HashSetTidset(int expectedSize) {
+        tids = new HashSet<Integer>(Math.max((int) (expectedSize / .75f) + 1, 16));
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public void add(int tid) {
+        tids.add(tid);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public boolean contains(int tid) {
+        return tids.contains(tid);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public int size() {
+        return tids.size();
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public int[] toArray() {
+        int[] array = new int[tids.size()];
+        int k = 0;
+        for (Integer tid : tids) {
+            array[k++] = tid;
+        }
+        Arrays.sort(array);
+        return array;
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public Tidset and(Tidset other) {
+        if (!(other instanceof HashSetTidset)) {
+            return IntArrayTidset.copyOf(this).and(other);
+        }
+        Set<Integer> otherTids = ((HashSetTidset) other).tids;
+        // To reduce the number of comparisons of the two tidsets,
+        // we loop on the smallest tidset and look up the tids in the largest one.
+        Set<Integer> smallest = tids.size() > otherTids.size() ? otherTids : tids;
+        Set<Integer> largest = smallest == tids ? otherTids : tids;
+
+        HashSetTidset tidsetIJ = new HashSetTidset(smallest.size());
+        for (Integer tid : smallest) {
+            // if the transaction is also in the other tidset, add it to the intersection
+            if (largest.contains(tid)) {
+                tidsetIJ.tids.add(tid);
+            }
+        }
+        return tidsetIJ;
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public Tidset and(Tidset other, int minSize) {
+        if (!(other instanceof HashSetTidset)) {
+            return IntArrayTidset.copyOf(this).and(other, minSize);
+        }
+        Set<Integer> otherTids = ((HashSetTidset) other).tids;
+        Set<Integer> smallest = tids.size() > otherTids.size() ? otherTids : tids;
+        Set<Integer> largest = smallest == tids ? otherTids : tids;
+
+        // the number of tids of the smallest tidset not checked yet
+        int remaining = smallest.size();
+        if (remaining < minSize) {
+            return null;
+        }
+        HashSetTidset tidsetIJ = new HashSetTidset(smallest.size());
+        for (Integer tid : smallest) {
+            remaining--;
+            if (largest.contains(tid)) {
+                tidsetIJ.tids.add(tid);
+            } else if (tidsetIJ.tids.size() + remaining < minSize) {
+                // even if all remaining tids were found, the intersection would be too small
+                return null;
+            }
+        }
+        return tidsetIJ;
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public int andCardinality(Tidset other) {
+        if (!(other instanceof HashSetTidset)) {
+            return IntArrayTidset.copyOf(this).andCardinality(other);
+        }
+        Set<Integer> otherTids = ((HashSetTidset) other).tids;
+        Set<Integer> smallest = tids.size() > otherTids.size() ? otherTids : tids;
+        Set<Integer> largest = smallest == tids ? otherTids : tids;
+
+        int count = 0;
+        for (Integer tid : smallest) {
+            if (largest.contains(tid)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public int andCardinality(Tidset other, int minSize) {
+        if (!(other instanceof HashSetTidset)) {
+            return IntArrayTidset.copyOf(this).andCardinality(other, minSize);
+        }
+        Set<Integer> otherTids = ((HashSetTidset) other).tids;
+        Set<Integer> smallest = tids.size() > otherTids.size() ? otherTids : tids;
+        Set<Integer> largest = smallest == tids ? otherTids : tids;
+
+        int remaining = smallest.size();
+        int count = 0;
+        for (Integer tid : smallest) {
+            remaining--;
+            if (largest.contains(tid)) {
+                count++;
+            } else if (count + remaining < minSize) {
+                return count + remaining;
+            }
+        }
+        return count;
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public Tidset andNot(Tidset other) {
+        if (!(other instanceof HashSetTidset)) {
+            return IntArrayTidset.copyOf(this).andNot(other);
+        }
+        Set<Integer> otherTids = ((HashSetTidset) other).tids;
+        HashSetTidset difference = new HashSetTidset();
+        for (Integer tid : tids) {
+            // keep the transactions that are not in the other tidset
+            if (!otherTids.contains(tid)) {
+                difference.tids.add(tid);
+            }
+        }
+        return difference;
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public Tidset andNot(Tidset other, int maxSize) {
+        if (!(other instanceof HashSetTidset)) {
+            return IntArrayTidset.copyOf(this).andNot(other, maxSize);
+        }
+        Set<Integer> otherTids = ((HashSetTidset) other).tids;
+        // the difference has at least |this| - |other| tids
+        if (tids.size() - otherTids.size() > maxSize) {
+            return null;
+        }
+        HashSetTidset difference = new HashSetTidset();
+        for (Integer tid : tids) {
+            if (!otherTids.contains(tid)) {
+                difference.tids.add(tid);
+                if (difference.tids.size() > maxSize) {
+                    return null;
+                }
+            }
+        }
+        return difference;
+    }
+}
@@ -0,0 +1,292 @@
+package com.mypackage.datastructures.tidset;
+
+import java.util.Arrays;
+
+/**
+ * A tidset stored as a sorted array of transaction ids. This is the most compact representation of
+ * sparse tidsets (4 bytes per tid), and intersections are merges of two sorted arrays, or galloping
+ * searches when one array is much smaller than the other.
+ *
+ * Transaction ids are expected to be added by increasing order, as the database is scanned.
+ */
+public class IntArrayTidset implements Tidset {
+    // galloping is used when an array is at least this many times larger than the other
+    private static final int GALLOP_RATIO = 16;
+
+    // the transaction ids, sorted, in the first positions of the array
+    private int[] tids;
+    // the number of transaction ids
+    private int size;
+
+    /**
+     * Constructor of an empty tidset.
+     */
+    public IntArrayTidset() {
+        this(16);
+    }
+
+    /**
+     * Constructor of an empty tidset.
+     * @param expectedSize the number of transaction ids expected.
+     */
+    public IntArrayTidset(int expectedSize) {
+        tids = new int[Math.max(expectedSize, 1)];
+    }
+
+    /**
+     * Constructor of a tidset wrapping an existing array.
+     * @param tids the transaction ids, sorted, without duplicates
+     * @param size the number of transaction ids in the array
+     */
+    public IntArrayTidset(int[] tids, int size) {
+        this.tids = tids;
+        this.size = size;
+    }
+
+    /**
+     * Copy a tidset of any implementation into a sorted array.
+     * @param tidset the tidset
+     * @return the copy, or the tidset itself if it is already a sorted array.
+     */
+    public static IntArrayTidset copyOf(Tidset tidset) {
+        if (tidset instanceof IntArrayTidset) {
+            return (IntArrayTidset) tidset;
+        }
+        int[] array = tidset.toArray();
+        return new IntArrayTidset(array, array.length);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public void add(int tid) {
+        if (size > 0 && tids[size - 1] >= tid) {
+            // not added by increasing order: insert at the right position
+            int position = Arrays.binarySearch(tids, 0, size, tid);
+            if (position >= 0) {
+                return;
+            }
+            insert(-position - 1, tid);
+            return;
+        }
+        insert(size, tid);
+    }
+
+    /**
+     * Insert a transaction id at a given position of the array.
+     * @param position the position
+     * @param tid the transaction id
+     */
+    private void insert(int position, int tid) {
+        if (size == tids.length) {
+            tids = Arrays.copyOf(tids, size + (size >> 1) + 1);
+        }
+        System.arraycopy(tids, position, tids, position + 1, size - position);
+        tids[position] = tid;
+        size++;
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public boolean contains(int tid) {
+        return Arrays.binarySearch(tids, 0, size, tid) >= 0;
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public int size() {
+        return size;
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(tids, size);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public Tidset and(Tidset other) {
+        return and(other, 0);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public Tidset and(Tidset other, int minSize) {
+        if (other instanceof BitSetTidset) {
+            return filter((BitSetTidset) other, true, minSize, Integer.MAX_VALUE);
+        }
+        IntArrayTidset array = copyOf(other);
+        int[] result = new int[Math.min(size, array.size)];
+        int count = intersect(array, result, minSize);
+        return count < 0 ? null : new IntArrayTidset(result, count);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public int andCardinality(Tidset other) {
+        return andCardinality(other, 0);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public int andCardinality(Tidset other, int minSize) {
+        if (other instanceof BitSetTidset) {
+            BitSetTidset bitset = (BitSetTidset) other;
+            int count = 0;
+            for (int k = 0; k < size; k++) {
+                if (bitset.contains(tids[k])) {
+                    count++;
+                } else if (count + size - k - 1 < minSize) {
+                    return count + size - k - 1;
+                }
+            }
+            return count;
+        }
+        int count = intersect(copyOf(other), null, minSize);
+        return count < 0 ? 0 : count;
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public Tidset andNot(Tidset other) {
+        return andNot(other, Integer.MAX_VALUE);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public Tidset andNot(Tidset other, int maxSize) {
+        // the difference has at least |this| - |other| tids
+        if (size - other.size() > maxSize) {
+            return null;
+        }
+        if (other instanceof BitSetTidset) {
+            return filter((BitSetTidset) other, false, 0, maxSize);
+        }
+        IntArrayTidset array = copyOf(other);
+        int[] result = new int[size];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        // merge both arrays, keeping the tids of this array which are not in the other one
+        while (i < size) {
+            if (j == array.size || tids[i] < array.tids[j]) {
+                if (count == maxSize) {
+                    return null;
+                }
+                result[count++] = tids[i++];
+            } else if (tids[i] > array.tids[j]) {
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+        return new IntArrayTidset(result, count);
+    }
+
+    /**
+     * Keep the transaction ids of this array which are (or are not) in a bitset.
+     * @param bitset the bitset
+     * @param inBitset true to keep the tids found in the bitset, false to keep the others
+     * @param minSize the minimum number of tids kept
+     * @param maxSize the maximum number of tids kept
+     * @return the tids kept, or null if there are less than minSize or more than maxSize of them.
+     */
+    private Tidset filter(BitSetTidset bitset, boolean inBitset, int minSize, int maxSize) {
+        int[] result = new int[size];
+        int count = 0;
+        for (int k = 0; k < size; k++) {
+            if (bitset.contains(tids[k]) == inBitset) {
+                if (count == maxSize) {
+                    return null;
+                }
+                result[count++] = tids[k];
+            } else if (count + size - k - 1 < minSize) {
+                return null;
+            }
+        }
+        return count < minSize ? null : new IntArrayTidset(result, count);
+    }
+
+    /**
+     * Intersect this array with another one, giving up as soon as the intersection cannot
+     * reach a minimum cardinality anymore.
+     * @param other the other array
+     * @param result the array receiving the intersection, or null to only count it
+     * @param minSize the minimum cardinality of the intersection
+     * @return the cardinality of the intersection, or -1 if it is lower than minSize.
+     */
+    private int intersect(IntArrayTidset other, int[] result, int minSize) {
+        // a is the smallest array, b the largest one
+        int[] a = size <= other.size ? tids : other.tids;
+        int sizeA = size <= other.size ? size : other.size;
+        int[] b = a == tids ? other.tids : tids;
+        int sizeB = a == tids ? other.size : size;
+        if (sizeA < minSize) {
+            return -1;
+        }
+
+        int count = 0;
+        int j = 0;
+        if (sizeB / Math.max(sizeA, 1) >= GALLOP_RATIO) {
+            // galloping: search each tid of the small array in the large one,
+            // by exponential steps from the last position found
+            for (int i = 0; i < sizeA && j < sizeB; i++) {
+                int tid = a[i];
+                int step = 1;
+                int high = j;
+                while (high < sizeB && b[high] < tid) {
+                    j = high + 1;
+                    high += step;
+                    step <<= 1;
+                }
+                int position = Arrays.binarySearch(b, j, Math.min(high + 1, sizeB), tid);
+                if (position >= 0) {
+                    if (result != null) {
+                        result[count] = tid;
+                    }
+                    count++;
+                    j = position + 1;
+                } else {
+                    j = -position - 1;
+                    if (count + sizeA - i - 1 < minSize) {
+                        return -1;
+                    }
+                }
+            }
+        } else {
+            // merge both arrays
+            int i = 0;
+            while (i < sizeA && j < sizeB) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    if (result != null) {
+                        result[count] = a[i];
+                    }
+                    count++;
+                    i++;
+                    j++;
+                    continue;
+                }
+                // even if all remaining tids were found, the intersection would be too small
+                if (count + Math.min(sizeA - i, sizeB - j) < minSize) {
+                    return -1;
+                }
+            }
+        }
+        return count < minSize ? -1 : count;
+    }
+}
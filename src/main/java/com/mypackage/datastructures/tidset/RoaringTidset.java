@@ -0,0 +1,142 @@
+package com.mypackage.datastructures.tidset;
+
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * A tidset stored as a compressed bitmap (Roaring bitmap). Transaction ids are kept unboxed
+ * in sorted containers, so an intersection is a merge of containers rather than a hash lookup
+ * per transaction id.
+ */
+public class RoaringTidset implements Tidset {
+
+    // the transaction ids
+    private final RoaringBitmap tids;
+
+    /**
+     * Constructor of an empty tidset.
+     */
+    public RoaringTidset() {
+        this(new RoaringBitmap());
+    }
+
+    /**
+     * Constructor of a tidset wrapping an existing bitmap.
+     * @param tids the bitmap of transaction ids
+     */
+    public RoaringTidset(RoaringBitmap tids) {
+        this.tids = tids;
+    }
+
+    /**
+     * Get the underlying bitmap.
+     * @return the bitmap of transaction ids.
+     */
+    public RoaringBitmap getBitmap() {
+        return tids;
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public void add(int tid) {
+        tids.add(tid);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public boolean contains(int tid) {
+        return tids.contains(tid);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public int size() {
+        return tids.getCardinality();
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public int[] toArray() {
+        return tids.toArray();
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public Tidset and(Tidset other) {
+        if (!(other instanceof RoaringTidset)) {
+            return IntArrayTidset.copyOf(this).and(other);
+        }
+        return new RoaringTidset(RoaringBitmap.and(tids, ((RoaringTidset) other).tids));
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public Tidset and(Tidset other, int minSize) {
+        if (!(other instanceof RoaringTidset)) {
+            return IntArrayTidset.copyOf(this).and(other, minSize);
+        }
+        RoaringBitmap otherTids = ((RoaringTidset) other).tids;
+        // Roaring intersects whole containers, so the intersection is only skipped
+        // when one of the bitmaps is too small.
+        if (tids.getCardinality() < minSize || otherTids.getCardinality() < minSize) {
+            return null;
+        }
+        RoaringBitmap tidsIJ = RoaringBitmap.and(tids, otherTids);
+        return tidsIJ.getCardinality() < minSize ? null : new RoaringTidset(tidsIJ);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public int andCardinality(Tidset other, int minSize) {
+        if (!(other instanceof RoaringTidset)) {
+            return IntArrayTidset.copyOf(this).andCardinality(other, minSize);
+        }
+        RoaringBitmap otherTids = ((RoaringTidset) other).tids;
+        if (tids.getCardinality() < minSize || otherTids.getCardinality() < minSize) {
+            return Math.min(tids.getCardinality(), otherTids.getCardinality());
+        }
+        return RoaringBitmap.andCardinality(tids, otherTids);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public int andCardinality(Tidset other) {
+        if (!(other instanceof RoaringTidset)) {
+            return IntArrayTidset.copyOf(this).andCardinality(other);
+        }
+        return RoaringBitmap.andCardinality(tids, ((RoaringTidset) other).tids);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public Tidset andNot(Tidset other) {
+        if (!(other instanceof RoaringTidset)) {
+            return IntArrayTidset.copyOf(this).andNot(other);
+        }
+        return new RoaringTidset(RoaringBitmap.andNot(tids, ((RoaringTidset) other).tids));
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public Tidset andNot(Tidset other, int maxSize) {
+        if (!(other instanceof RoaringTidset)) {
+            return IntArrayTidset.copyOf(this).andNot(other, maxSize);
+        }
+        RoaringBitmap otherTids = ((RoaringTidset) other).tids;
+        // the difference has at least |this| - |other| tids
+        if (tids.getCardinality() - otherTids.getCardinality() > maxSize) {
+            return null;
+        }
+        RoaringBitmap difference = RoaringBitmap.andNot(tids, otherTids);
+        return difference.getCardinality() > maxSize ? null : new RoaringTidset(difference);
+    }
+}
@@ -0,0 +1,88 @@
+package com.mypackage.datastructures.tidset;
+
+/**
+ * A set of transaction ids (tidset), i.e. the ids of the transactions containing an itemset.
+ * The support of an itemset is the cardinality of its tidset.
+ *
+ * Tidsets of different implementations can be combined together: operations between two tidsets
+ * of the same implementation use its own algorithm, while mixed operations go through sorted arrays.
+ */
+public interface Tidset {
+    /**
+     * Add a transaction id to this tidset.
+     * @param tid a transaction id
+     */
+    public abstract void add(int tid);
+
+    /**
+     * Check if this tidset contains a transaction id.
+     * @param tid a transaction id
+     * @return true if found.
+     */
+    public abstract boolean contains(int tid);
+
+    /**
+     * Get the cardinality of this tidset.
+     * @return the number of transaction ids.
+     */
+    public abstract int size();
+
+    /**
+     * Get the transaction ids of this tidset.
+     * @return a new array of the transaction ids, sorted by increasing order.
+     */
+    public abstract int[] toArray();
+
+    /**
+     * Intersect this tidset with another tidset. Neither tidset is modified.
+     * @param other the other tidset
+     * @return a new tidset containing the transaction ids found in both tidsets.
+     */
+    public abstract Tidset and(Tidset other);
+
+    /**
+     * Intersect this tidset with another tidset, giving up as soon as the intersection cannot
+     * reach a minimum cardinality anymore. Neither tidset is modified.
+     * @param other the other tidset
+     * @param minSize the minimum cardinality of the intersection
+     * @return a new tidset containing the transaction ids found in both tidsets,
+     *         or null if there are less than minSize of them.
+     */
+    public abstract Tidset and(Tidset other, int minSize);
+
+    /**
+     * Get the cardinality of the intersection of this tidset with another tidset,
+     * without creating the intersection.
+     * @param other the other tidset
+     * @return the number of transaction ids found in both tidsets.
+     */
+    public abstract int andCardinality(Tidset other);
+
+    /**
+     * Get the cardinality of the intersection of this tidset with another tidset, without creating
+     * the intersection, and giving up as soon as it cannot reach a minimum cardinality anymore.
+     * @param other the other tidset
+     * @param minSize the minimum cardinality of the intersection
+     * @return the number of transaction ids found in both tidsets if it is at least minSize,
+     *         or some number lower than minSize otherwise.
+     */
+    public abstract int andCardinality(Tidset other, int minSize);
+
+    /**
+     * Subtract another tidset from this tidset (used by dEclat to compute diffsets).
+     * Neither tidset is modified.
+     * @param other the other tidset
+     * @return a new tidset containing the transaction ids of this tidset that are not in the other tidset.
+     */
+    public abstract Tidset andNot(Tidset other);
+
+    /**
+     * Subtract another tidset from this tidset, giving up as soon as the difference exceeds
+     * a maximum cardinality. Neither tidset is modified.
+     * @param other the other tidset
+     * @param maxSize the maximum cardinality of the difference
+     * @return a new tidset containing the transaction ids of this tidset that are not in the other tidset,
+     *         or null if there are more than maxSize of them.
+     */
+    public abstract Tidset andNot(Tidset other, int maxSize);
+}
@@ -0,0 +1,88 @@
+package com.mypackage.datastructures.tidset;
+
+/**
+ * The available representations of tidsets. Each mode creates the tidsets of one implementation.
+ */
+public enum TidsetMode {
+    /** tidsets are hash sets of boxed transaction ids */
+    HASHSET {
+        public Tidset newTidset() {
+            return new HashSetTidset();
+        }
+    },
+    /** tidsets are Roaring compressed bitmaps */
+    ROARING {
+        public Tidset newTidset() {
+            return new RoaringTidset();
+        }
+    },
+    /** tidsets are sorted arrays when they are sparse, bitsets when they are dense, and Roaring
+     *  compressed bitmaps when they are sparse but large. Intersections narrow them into arrays. */
+    ADAPTIVE {
+        public Tidset newTidset() {
+            return new IntArrayTidset();
+        }
+
+        public Tidset newTidset(int cardinality, int transactionCount) {
+            if (BitSetTidset.isDense(cardinality, transactionCount)) {
+                return new BitSetTidset(transactionCount);
+            }
+            if (cardinality >= COMPRESSED_MIN_SIZE) {
+                return new RoaringTidset();
+            }
+            return new IntArrayTidset(cardinality);
+        }
+
+        public Tidset adapt(Tidset tidset, int transactionCount) {
+            // bitsets and arrays narrow by themselves, bitmaps are converted once small enough
+            if (tidset instanceof RoaringTidset && tidset.size() < COMPRESSED_MIN_SIZE) {
+                return IntArrayTidset.copyOf(tidset);
+            }
+            return tidset;
+        }
+    };
+
+    /** in ADAPTIVE mode, a sparse tidset with at least this many tids is compressed */
+    public static final int COMPRESSED_MIN_SIZE = 1 << 16;
+
+    /**
+     * Create an empty tidset of this mode.
+     * @return the tidset.
+     */
+    public abstract Tidset newTidset();
+
+    /**
+     * Create an empty tidset of this mode, for a known number of transaction ids.
+     * @param cardinality the number of transaction ids that will be added
+     * @param transactionCount the number of transactions of the database
+     * @return the tidset.
+     */
+    public Tidset newTidset(int cardinality, int transactionCount) {
+        return newTidset();
+    }
+
+    /**
+     * Convert a tidset resulting from an operation to the representation this mode prefers for its size.
+     * @param tidset the tidset
+     * @param transactionCount the number of transactions of the database
+     * @return the tidset, or a copy in another representation.
+     */
+    public Tidset adapt(Tidset tidset, int transactionCount) {
+        return tidset;
+    }
+
+    /**
+     * Get the mode of a given name, ignoring case.
+     * @param name the name of the mode, e.g. 'hashset', 'roaring' or 'adaptive'
+     * @return the mode.
+     * @throws IllegalArgumentException if no mode has this name.
+     */
+    public static TidsetMode fromName(String name) {
+        for (TidsetMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(name.trim())) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown tidset mode: " + name);
+    }
+}
@@ -22,4 +22,17 @@ public interface AbstractTriangularMatrix {
     public abstract int getSupportForItems(int i, int j);
 
     public abstract void setSupport(Integer i, Integer j, int support);
+
+    /**
+     * Increment the values of all pairs of elements of a transaction.
+     * @param elements the elements of the transaction, sorted by increasing order and without duplicates
+     * @param length the number of elements
+     */
+    public abstract void incrementCounts(int[] elements, int length);
+
+    /**
+     * Add the values of another matrix of the same implementation and size to this matrix.
+     * @param other the other matrix
+     */
+    public abstract void addAll(AbstractTriangularMatrix other);
 }
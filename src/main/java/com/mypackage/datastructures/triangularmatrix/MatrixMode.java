@@ -0,0 +1,93 @@
+package com.mypackage.datastructures.triangularmatrix;
+
+/**
+ * The available implementations of the triangular matrix counting the pairs of frequent items.
+ * A dense matrix takes 4 bytes for every possible pair, which is the fastest when most pairs occur.
+ * A sparse matrix takes about 24 bytes (a long key and an int value in a table at most half full)
+ * for each pair that occurs, which is smaller when the item universe is large and few pairs occur.
+ */
+public enum MatrixMode {
+    /** choose the dense or the sparse matrix from the estimated number of pairs */
+    AUTO {
+        public AbstractTriangularMatrix newMatrix(int itemCount, long pairEstimate) {
+            return resolve(itemCount, pairEstimate).newMatrix(itemCount, pairEstimate);
+        }
+    },
+    /** an int array with one cell per pair */
+    DENSE {
+        public AbstractTriangularMatrix newMatrix(int itemCount, long pairEstimate) {
+            return new TriangularMatrix(itemCount);
+        }
+    },
+    /** a primitive hash map with one entry per pair that occurs */
+    SPARSE {
+        public AbstractTriangularMatrix newMatrix(int itemCount, long pairEstimate) {
+            // the estimate is an upper bound: start smaller and let the table grow
+            return new SparseTriangularMatrix((int) Math.min(pairEstimate, MAX_INITIAL_PAIRS));
+        }
+    };
+
+    /** the approximate number of bytes taken by a pair in a sparse matrix */
+    private static final long SPARSE_BYTES_PER_PAIR = 24;
+    /** the largest number of pairs for which a sparse matrix is sized up front */
+    private static final long MAX_INITIAL_PAIRS = 1 << 20;
+
+    /**
+     * Create an empty matrix of this mode.
+     * @param itemCount the number of lines of the matrix
+     * @param pairEstimate an upper bound of the number of distinct pairs that will be counted
+     * @return the matrix.
+     */
+    public abstract AbstractTriangularMatrix newMatrix(int itemCount, long pairEstimate);
+
+    /**
+     * Get the mode actually used for a matrix: DENSE or SPARSE. AUTO selects the sparse matrix when a
+     * dense one cannot be held in one array, or when it would take more memory than the sparse one,
+     * i.e. when less than about one pair in six occurs.
+     * @param itemCount the number of lines of the matrix
+     * @param pairEstimate an upper bound of the number of distinct pairs that will be counted
+     * @return the mode.
+     */
+    public MatrixMode resolve(int itemCount, long pairEstimate) {
+        if (this != AUTO) {
+            return this;
+        }
+        long cellCount = TriangularMatrix.getCellCount(itemCount);
+        if (cellCount > TriangularMatrix.MAX_CELL_COUNT) {
+            return SPARSE;
+        }
+        long pairCount = Math.min(cellCount, pairEstimate);
+        return pairCount * SPARSE_BYTES_PER_PAIR < cellCount * 4 ? SPARSE : DENSE;
+    }
+
+    /**
+     * Estimate the memory taken by a matrix of this mode.
+     * @param itemCount the number of lines of the matrix
+     * @param pairEstimate an upper bound of the number of distinct pairs that will be counted
+     * @return the number of bytes.
+     */
+    public long estimateBytes(int itemCount, long pairEstimate) {
+        long cellCount = TriangularMatrix.getCellCount(itemCount);
+        switch (resolve(itemCount, pairEstimate)) {
+            case DENSE:
+                return cellCount * 4;
+            default:
+                return Math.min(cellCount, pairEstimate) * SPARSE_BYTES_PER_PAIR;
+        }
+    }
+
+    /**
+     * Get the mode of a given name, ignoring case.
+     * @param name the name of the mode, e.g. 'auto', 'dense' or 'sparse'
+     * @return the mode.
+     * @throws IllegalArgumentException if no mode has this name.
+     */
+    public static MatrixMode fromName(String name) {
+        for (MatrixMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(name.trim())) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown matrix mode: " + name);
+    }
+}
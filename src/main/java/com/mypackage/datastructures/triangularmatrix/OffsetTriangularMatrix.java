@@ -0,0 +1,71 @@
+package com.mypackage.datastructures.triangularmatrix;
+
+/**
+ * A read-only view of the lines of a triangular matrix from a given line, renumbered from 0. When the
+ * frequent items at a higher minimum support are the last codes of a matrix built at a lower one, the view
+ * gives the supports of their pairs by their new codes, without counting them again.
+ */
+public class OffsetTriangularMatrix implements AbstractTriangularMatrix {
+
+    // the matrix of all the lines, and the first line of the view
+    private final AbstractTriangularMatrix matrix;
+    private final int offset;
+
+    /**
+     * Constructor.
+     * @param matrix the matrix of all the lines
+     * @param offset the line of the matrix seen as line 0
+     */
+    public OffsetTriangularMatrix(AbstractTriangularMatrix matrix, int offset) {
+        this.matrix = matrix;
+        this.offset = offset;
+    }
+
+    /* (non-Javadoc)
+     * @see com.mypackage.datastructures.triangularmatrix.AbstractTriangularMatrix#getSupportForItems(int, int)
+     */
+    @Override
+    public int getSupportForItems(int i, int j) {
+        return matrix.getSupportForItems(i + offset, j + offset);
+    }
+
+    /* (non-Javadoc)
+     * @see com.mypackage.datastructures.triangularmatrix.AbstractTriangularMatrix#incrementCount(int, int)
+     */
+    @Override
+    public void incrementCount(int i, int j) {
+        throw new UnsupportedOperationException("The view of a matrix is read-only");
+    }
+
+    /* (non-Javadoc)
+     * @see com.mypackage.datastructures.triangularmatrix.AbstractTriangularMatrix#setSupport(java.lang.Integer, java.lang.Integer, int)
+     */
+    @Override
+    public void setSupport(Integer i, Integer j, int support) {
+        throw new UnsupportedOperationException("The view of a matrix is read-only");
+    }
+
+    /* (non-Javadoc)
+     * @see com.mypackage.datastructures.triangularmatrix.AbstractTriangularMatrix#incrementCounts(int[], int)
+     */
+    @Override
+    public void incrementCounts(int[] elements, int length) {
+        throw new UnsupportedOperationException("The view of a matrix is read-only");
+    }
+
+    /* (non-Javadoc)
+     * @see com.mypackage.datastructures.triangularmatrix.AbstractTriangularMatrix#addAll(com.mypackage.datastructures.triangularmatrix.AbstractTriangularMatrix)
+     */
+    @Override
+    public void addAll(AbstractTriangularMatrix other) {
+        throw new UnsupportedOperationException("The view of a matrix is read-only");
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "view from line " + offset + " of " + matrix;
+    }
+}
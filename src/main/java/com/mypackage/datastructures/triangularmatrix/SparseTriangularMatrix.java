@@ -1,30 +1,46 @@
 package com.mypackage.datastructures.triangularmatrix;
 
-import java.util.HashMap;
-import java.util.Map;
+import com.mypackage.datastructures.hashmap.LongIntOpenHashMap;
+import com.mypackage.datastructures.hashmap.LongIntProcedure;
 
 public class SparseTriangularMatrix implements AbstractTriangularMatrix {
 
-    // the triangular matrix is a hashmap of hashmaps
-    // where the key is an item I, then the value is a map where each entry is a key representing an item J
-    // and a value representing the count of {I, J}.
-    private Map<Integer, Map<Integer, Integer>> matrix = new HashMap<Integer, Map<Integer, Integer>>();
+    // the triangular matrix is a primitive hash map where the key packs a pair of items {I, J}, I < J,
+    // as I << 32 | J, and the value is the count of {I, J}. Only the pairs that occur take space.
+    private final LongIntOpenHashMap matrix;
 
     /**
      * Constructor of a new triangular matrix.
-     * @param : the desired number of lines in the matrix.
      */
     public SparseTriangularMatrix(){
+        this(1024);
+    }
 
+    /**
+     * Constructor of a new triangular matrix.
+     * @param expectedPairCount the number of distinct pairs expected, used to size the matrix.
+     */
+    public SparseTriangularMatrix(int expectedPairCount){
+        matrix = new LongIntOpenHashMap(expectedPairCount, 0);
     }
 
     /**
-     * This constructor is for compatibility with the other TriangularMatrix implementation.
-     * The parameter "itemCount" is not used.
-     * @param itemCount
+     * Get the key of a pair of items.
+     * @param i a row id
+     * @param j a column id
+     * @return the key.
      */
-    public SparseTriangularMatrix(int itemCount){
+    private static long keyOf(int i, int j) {
+        // so that i is always smaller than j
+        return (i < j) ? ((long) i << 32) | j : ((long) j << 32) | i;
+    }
 
+    /**
+     * Get the number of distinct pairs stored.
+     * @return the number of pairs.
+     */
+    public int size() {
+        return matrix.size();
     }
 
     /* (non-Javadoc)
@@ -32,18 +48,19 @@ public class SparseTriangularMatrix implements AbstractTriangularMatrix {
      */
     public String toString() {
         // create a string buffer
-        StringBuffer temp = new StringBuffer();
-        // for each row
-        for (int i = 0; i < matrix.keySet().size(); i++) {
-            temp.append(i);
-            temp.append(": ");
-            // for each column
-            for (int j = 0; j < matrix.get(i).size(); j++) {
-                temp.append(matrix.get(i).get(j)); // add the value at position i,j
-                temp.append(" ");
+        final StringBuffer temp = new StringBuffer();
+        // for each pair
+        matrix.forEach(new LongIntProcedure() {
+            @Override
+            public void apply(long key, int value) {
+                temp.append(key >>> 32);
+                temp.append(",");
+                temp.append(key & 0xffffffffL);
+                temp.append(": ");
+                temp.append(value); // add the value at position i,j
+                temp.append("\n");
             }
-            temp.append("\n");
-        }
+        });
         return temp.toString();
     }
 
@@ -51,37 +68,17 @@ public class SparseTriangularMatrix implements AbstractTriangularMatrix {
      * @see
      */
     public void incrementCount(int i, int j) {
-        if(i < j) {
-            // First get the map of i
-            Map<Integer, Integer> mapCount = matrix.get(i);
-            if(mapCount == null) {
-                mapCount = new HashMap<Integer,Integer>();
-                matrix.put(i, mapCount);
-                mapCount.put(j, 1);
-            }else {
-                // Second, get the count of i,j
-                Integer count = mapCount.get(j);
-                if(count == null) {
-                    mapCount.put(j, 1);
-                }else {
-                    mapCount.put(j, ++count);
-                }
-            }
-        }else {
-            // First get the map of j
-            Map<Integer, Integer> mapCount = matrix.get(j);
-            if(mapCount == null) {
-                mapCount = new HashMap<Integer,Integer>();
-                matrix.put(j, mapCount);
-                mapCount.put(i, 1);
-            }else {
-                // Second, get the count of i,j
-                Integer count = mapCount.get(i);
-                if(count == null) {
-                    mapCount.put(i, 1);
-                }else {
-                    mapCount.put(i, ++count);
-                }
+        matrix.addTo(keyOf(i, j), 1);
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public void incrementCounts(int[] elements, int length) {
+        for (int i = 0; i < length - 1; i++) {
+            long row = (long) elements[i] << 32;
+            for (int j = i + 1; j < length; j++) {
+                matrix.addTo(row | elements[j], 1);
             }
         }
     }
@@ -89,64 +86,26 @@ public class SparseTriangularMatrix implements AbstractTriangularMatrix {
     /* (non-Javadoc)
      * @see
      */
-    public int getSupportForItems(int i, int j){
-        if(i < j) {
-            // First get the map of i
-            Map<Integer, Integer> mapCount = matrix.get(i);
-            if(mapCount == null) {
-                return 0;
-            }else {
-                // Second, get the count of i,j
-                Integer count = mapCount.get(j);
-                if(count == null) {
-                    return 0;
-                }else {
-                    return count;
-                }
+    public void addAll(AbstractTriangularMatrix other) {
+        ((SparseTriangularMatrix) other).matrix.forEach(new LongIntProcedure() {
+            @Override
+            public void apply(long key, int value) {
+                matrix.addTo(key, value);
             }
-        }else {
-            // First get the map of i
-            Map<Integer, Integer> mapCount = matrix.get(j);
-            if(mapCount == null) {
-                return 0;
-            }else {
-                // Second, get the count of i,j
-                Integer count = mapCount.get(i);
-                if(count == null) {
-                    return 0;
-                }else {
-                    return count;
-                }
-            }
-        }
+        });
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public int getSupportForItems(int i, int j){
+        return matrix.get(keyOf(i, j));
     }
 
     /* (non-Javadoc)
      * @see
      */
     public void setSupport(Integer i, Integer j, int support) {
-        if(i < j) {
-            // First get the map of i
-            Map<Integer, Integer> mapCount = matrix.get(i);
-            if(mapCount == null) {
-                mapCount = new HashMap<Integer,Integer>();
-                matrix.put(i, mapCount);
-                mapCount.put(j, support);
-            }else {
-                // Second, set the count of i,j
-                mapCount.put(j, support);
-            }
-        }else {
-            // First get the map of j
-            Map<Integer, Integer> mapCount = matrix.get(j);
-            if(mapCount == null) {
-                mapCount = new HashMap<Integer,Integer>();
-                matrix.put(j, mapCount);
-                mapCount.put(i, support);
-            }else {
-                // Second, set the count of i,j
-                mapCount.put(i, support);
-            }
-        }
+        matrix.put(keyOf(i, j), support);
     }
 }
@@ -2,35 +2,59 @@ package com.mypackage.datastructures.triangularmatrix;
 
 public class TriangularMatrix implements AbstractTriangularMatrix {
 
-    // the triangular matrix is a two dimension array of integers
-    private int[][] matrix;
+    /** the largest number of cells that a dense matrix can hold in one array */
+    public static final long MAX_CELL_COUNT = Integer.MAX_VALUE - 8;
+
+    // the triangular matrix, packed row after row in a one dimension array of integers:
+    // row i holds the counts of (i, j) for j = i+1 .. elementCount-1
+    private int[] matrix;
     // the number of lines in the matrix
     private int elementCount;
 
     /**
      * Constructor of a new triangular matrix.
      * @param elementCount the desired number of lines in the matrix.
+     * @throws IllegalArgumentException if the matrix cannot be held in one array.
      */
     public TriangularMatrix(int elementCount){
         // save the number of lines
         this.elementCount = elementCount;
         // initialize the matrix
-        matrix = new int[elementCount-1][]; // -1 cause we want it shorter of 1 element
-        for(int i=0; i< elementCount-1; i++){ // -1 cause we want it shorter of 1 element
-            // allocate an array for each row
-            matrix[i] = new int[elementCount - i -1];
+        long cellCount = getCellCount(elementCount);
+        if(cellCount > MAX_CELL_COUNT) {
+            throw new IllegalArgumentException("Too many elements for a dense triangular matrix: " + elementCount);
         }
+        matrix = new int[(int) cellCount];
+    }
+
+    /**
+     * Get the number of cells of a triangular matrix, without its diagonal.
+     * @param elementCount the number of lines of the matrix
+     * @return the number of cells.
+     */
+    public static long getCellCount(int elementCount) {
+        return (long) elementCount * (elementCount - 1) / 2;
+    }
 
+    /**
+     * Get the position in the array of the cell (i, j - i - 1) minus j, i.e. the
+     * cell of (i, j) is at rowStart(i) + j, for i < j.
+     * @param i the row
+     * @return the position.
+     */
+    private int rowStart(int i){
+        return (int) ((long) i * (2L * elementCount - i - 1) / 2) - i - 1;
     }
 
     /**
-     * Get the value at a given position in the matrix
+     * Get the position of the value of (i, j) in the array.
      * @param i  the row
      * @param j  the column
-     * @return the value
+     * @return the position
      */
-    private int get(int i, int j){
-        return matrix[i][j];
+    private int indexOf(int i, int j){
+        // so that i is always smaller than j
+        return (i < j) ? rowStart(i) + j : rowStart(j) + i;
     }
 
     /**
@@ -64,12 +88,12 @@ public class TriangularMatrix implements AbstractTriangularMatrix {
         // create a string buffer
         StringBuffer temp = new StringBuffer();
         // for each row
-        for (int i = 0; i < matrix.length; i++) {
+        for (int i = 0; i < elementCount - 1; i++) {
             temp.append(i);
             temp.append(": ");
             // for each column
-            for (int j = 0; j < matrix[i].length; j++) {
-                temp.append(matrix[i][j]); // add the value at position i,j
+            for (int j = i + 1; j < elementCount; j++) {
+                temp.append(matrix[rowStart(i) + j]); // add the value at position i,j
                 temp.append(" ");
             }
             temp.append("\n");
@@ -81,33 +105,44 @@ public class TriangularMatrix implements AbstractTriangularMatrix {
      * @see
      */
     public void incrementCount(int i, int j) {
-        if(j < i){
-            matrix[elementCount - i -1][j]++;  // so that id is always smaller than j
-        }else{
-            matrix[elementCount - j -1][i]++;
+        matrix[indexOf(i, j)]++;
+    }
+
+    /* (non-Javadoc)
+     * @see
+     */
+    public void incrementCounts(int[] elements, int length) {
+        // for each element i of the transaction
+        for (int i = 0; i < length - 1; i++) {
+            int start = rowStart(elements[i]);
+            // the pairs (i, j) for each following element j are all in the row of i
+            for (int j = i + 1; j < length; j++) {
+                matrix[start + elements[j]]++;
+            }
         }
     }
 
     /* (non-Javadoc)
      * @see
      */
-    public int getSupportForItems(int i, int j){
-        if(j < i){
-            return matrix[elementCount - i -1][j];  // so that id is always smaller than id2
-        }else{
-            return matrix[elementCount - j -1][i];
+    public void addAll(AbstractTriangularMatrix other) {
+        int[] otherMatrix = ((TriangularMatrix) other).matrix;
+        for (int k = 0; k < matrix.length; k++) {
+            matrix[k] += otherMatrix[k];
         }
     }
 
+    /* (non-Javadoc)
+     * @see
+     */
+    public int getSupportForItems(int i, int j){
+        return matrix[indexOf(i, j)];
+    }
+
     /* (non-Javadoc)
      * @see
      */
     public void setSupport(Integer i, Integer j, int support) {
-        if(j < i){
-            matrix[elementCount - i -1][j] = support;  // so that id is always smaller than j
-        }else {
-            matrix[elementCount - j - 1][i] = support;
-        }
+        matrix[indexOf(i, j)] = support;
     }
 }
-
@@ -0,0 +1,531 @@
+package com.mypackage.incremental;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import com.mypackage.datastructures.hashmap.LongIntOpenHashMap;
+import com.mypackage.datastructures.itemset.ItemsetTrie;
+import com.mypackage.input.ItemDictionary;
+import com.mypackage.input.TransactionDatabase;
+import com.mypackage.input.TransactionIterator;
+import com.mypackage.input.TransactionStore;
+
+/**
+ * A transaction database kept in memory between mining calls, with its vertical index: the tidset of every
+ * item (a Roaring bitmap, also for infrequent items, which may become frequent), the support of every pair
+ * of items, and the frequent itemsets found by the last update.
+ *
+ * Transactions are added and removed in batches. The support of an itemset only changes if one of the
+ * transactions of the batch contains it, so an update only mines the equivalence classes of the items of
+ * the batch, with the tids of the batch instead of the tidsets: an itemset which no transaction of the batch
+ * contains is pruned, since it keeps its support, and the new support of an itemset which was frequent is its
+ * previous support, plus its added tids, minus its removed tids. Only the itemsets which were not frequent
+ * need their tidset, and only if their added tids are enough for them to reach the minimum support.
+ * This is the FUP approach (Cheung et al., 1996) applied to ECLAT. If the minimum support decreases, itemsets
+ * outside of the batch may become frequent, so all the items are mined again, still from the tidsets in memory.
+ *
+ * A removed transaction is found by its items, and keeps its tid: tids are never reused.
+ */
+public class IncrementalDatabase {
+    /** The support of an itemset which is not frequent. */
+    public static final int NO_SUPPORT = ItemsetTrie.NO_SUPPORT;
+
+    // the end of a list of tids
+    private static final int NONE = -1;
+
+    // the dictionary of items: the tidsets are indexed by item index
+    private final ItemDictionary dictionary = new ItemDictionary();
+    // all the transactions added, as sorted item indexes, and the tids of those removed since
+    private final TransactionStore transactions = new TransactionStore();
+    private final BitSet removedTids = new BitSet();
+    // the number of transactions not removed
+    private int size = 0;
+    // the transactions by a hash of their items: the last tid of each hash, and the previous tid of each tid
+    private final LongIntOpenHashMap lastTidOfHash = new LongIntOpenHashMap(1024, NONE);
+    private int[] previousTidOfHash = new int[1024];
+
+    // the tidset of each item, by index (null if the item has no transaction yet)
+    private RoaringBitmap[] tidsets = new RoaringBitmap[1024];
+    // the support of each pair of items, by (i << 32 | j) with i < j
+    private final LongIntOpenHashMap pairSupports = new LongIntOpenHashMap(1024, 0);
+
+    // the frequent itemsets (item indexes) found by the last update, and their minimum support
+    private ItemsetTrie frequentItemsets = null;
+    private int minsupRelative = 0;
+
+    // an empty set of tids, never modified
+    private static final RoaringBitmap NO_TIDS = new RoaringBitmap();
+
+    // during an update only: the tids added and removed by the batch, by item (null for the items out of the batch),
+    // the itemsets before the update and their minimum support, and the sink of the changes
+    private RoaringBitmap[] batchAdded = new RoaringBitmap[1024];
+    private RoaringBitmap[] batchRemoved = new RoaringBitmap[1024];
+    private ItemsetTrie previousItemsets = null;
+    private int previousMinsup = 0;
+    private ItemsetChangeSink changeSink = null;
+
+    // the items of the transaction being added or removed
+    private int[] buffer = new int[16];
+
+    /**
+     * Add and remove transactions, then update the frequent itemsets and report the itemsets whose support changed.
+     * The first update reports all the frequent itemsets.
+     *
+     * @param added the transactions to add, or null
+     * @param removed the transactions to remove, or null. They may be among the transactions added by this update.
+     *                A transaction which is not found is ignored.
+     * @param minsupp the minimum support, as a ratio of the number of transactions after the update
+     * @param sink receives the changes
+     * @return the number of transactions removed.
+     */
+    public synchronized int update(TransactionDatabase added, TransactionDatabase removed, double minsupp,
+                                   ItemsetChangeSink sink) throws Exception {
+        if (added != null) {
+            apply(added, true);
+        }
+        int removedCount = (removed == null) ? 0 : apply(removed, false);
+
+        previousMinsup = minsupRelative;
+        minsupRelative = Math.max(1, (int) Math.ceil(minsupp * size));
+        // with a lower minimum support, itemsets out of the batch may become frequent
+        boolean allItems = frequentItemsets == null || minsupRelative < previousMinsup;
+
+        previousItemsets = frequentItemsets;
+        changeSink = sink;
+        try {
+            ItemsetTrie current = new ItemsetTrie(previousItemsets == null ? 1024 : previousItemsets.size());
+            mine(current, allItems);
+
+            // the previous itemsets which were not found again kept their support, unless the batch contains them
+            if (previousItemsets != null) {
+                for (int node = 1; node < previousItemsets.getNodeCount(); node++) {
+                    int support = previousItemsets.getSupportAt(node);
+                    if (support == NO_SUPPORT) {
+                        continue;
+                    }
+                    int[] itemset = previousItemsets.getItemset(node);
+                    if (current.getSupport(itemset) != NO_SUPPORT) {
+                        continue;
+                    }
+                    if (!allItems && support >= minsupRelative && !inBatch(itemset)) {
+                        current.put(itemset, support);
+                    } else {
+                        sink.change(toItems(itemset), NO_SUPPORT, support);
+                    }
+                }
+            }
+            frequentItemsets = current;
+        } finally {
+            previousItemsets = null;
+            changeSink = null;
+            Arrays.fill(batchAdded, null);
+            Arrays.fill(batchRemoved, null);
+        }
+        return removedCount;
+    }
+
+    /**
+     * Add or remove the transactions of a database.
+     * @param batch the transactions
+     * @param add true to add them, false to remove them
+     * @return the number of transactions added or removed.
+     */
+    private int apply(TransactionDatabase batch, boolean add) {
+        // the index of each item of the batch in this database
+        ItemDictionary batchDictionary = batch.getDictionary();
+        int[] indexes = new int[batchDictionary.size()];
+        for (int k = 0; k < indexes.length; k++) {
+            long item = batchDictionary.itemAt(k);
+            indexes[k] = add ? dictionary.encode(item) : dictionary.indexOf(item);
+        }
+        ensureItemCapacity(dictionary.size());
+
+        int count = 0;
+        TransactionIterator it = batch.getTransactions().iterator();
+        while (it.next()) {
+            int length = 0;
+            boolean known = true;
+            if (buffer.length < it.getLength()) {
+                buffer = new int[it.getLength()];
+            }
+            for (int k = 0; k < it.getLength(); k++) {
+                int index = indexes[it.getItems()[k]];
+                known &= index != ItemDictionary.NOT_FOUND;
+                buffer[length++] = index;
+            }
+            if (!known || length == 0) {
+                continue;
+            }
+            // sort the items and remove the duplicates
+            Arrays.sort(buffer, 0, length);
+            int distinct = 0;
+            for (int k = 0; k < length; k++) {
+                if (distinct == 0 || buffer[distinct - 1] != buffer[k]) {
+                    buffer[distinct++] = buffer[k];
+                }
+            }
+            if (add) {
+                addTransaction(buffer, distinct);
+                count++;
+            } else if (removeTransaction(buffer, distinct)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Add a transaction to the store, the hash index, the tidsets and the pair supports.
+     * @param items the item indexes, sorted
+     * @param length the number of items
+     */
+    private void addTransaction(int[] items, int length) {
+        int tid = transactions.size();
+        transactions.add(items, length);
+        if (tid == previousTidOfHash.length) {
+            previousTidOfHash = Arrays.copyOf(previousTidOfHash, tid * 2);
+        }
+        previousTidOfHash[tid] = lastTidOfHash.put(hash(items, length), tid);
+
+        for (int a = 0; a < length; a++) {
+            int item = items[a];
+            if (tidsets[item] == null) {
+                tidsets[item] = new RoaringBitmap();
+            }
+            tidsets[item].add(tid);
+            batchAdded[item] = add(batchAdded[item], tid);
+            for (int b = a + 1; b < length; b++) {
+                pairSupports.addTo(pairKey(item, items[b]), 1);
+            }
+        }
+        size++;
+    }
+
+    /**
+     * Remove a transaction having some items from the tidsets and the pair supports.
+     * @param items the item indexes, sorted
+     * @param length the number of items
+     * @return true if such a transaction was found.
+     */
+    private boolean removeTransaction(int[] items, int length) {
+        int tid = lastTidOfHash.get(hash(items, length));
+        while (tid != NONE && (removedTids.get(tid) || !sameItems(tid, items, length))) {
+            tid = previousTidOfHash[tid];
+        }
+        if (tid == NONE) {
+            return false;
+        }
+        removedTids.set(tid);
+
+        for (int a = 0; a < length; a++) {
+            int item = items[a];
+            tidsets[item].remove(tid);
+            batchRemoved[item] = add(batchRemoved[item], tid);
+            for (int b = a + 1; b < length; b++) {
+                pairSupports.addTo(pairKey(item, items[b]), -1);
+            }
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Find the frequent itemsets, either all of them or only those contained in the batch.
+     * @param current receives the frequent itemsets
+     * @param allItems true to mine all the items, false to mine only the items of the batch
+     */
+    private void mine(ItemsetTrie current, boolean allItems) throws Exception {
+        // the frequent items, by increasing support
+        long[] order = new long[dictionary.size()];
+        int count = 0;
+        for (int item = 0; item < dictionary.size(); item++) {
+            int support = (tidsets[item] == null) ? 0 : tidsets[item].getCardinality();
+            if (support >= minsupRelative && (allItems || batchAdded[item] != null || batchRemoved[item] != null)) {
+                order[count++] = ((long) support << 32) | item;
+            }
+        }
+        Arrays.sort(order, 0, count);
+        int[] items = new int[count];
+        int[] supports = new int[count];
+        RoaringBitmap[] classTidsets = new RoaringBitmap[count];
+        RoaringBitmap[] classAdded = allItems ? null : new RoaringBitmap[count];
+        RoaringBitmap[] classRemoved = allItems ? null : new RoaringBitmap[count];
+        for (int k = 0; k < count; k++) {
+            items[k] = (int) order[k];
+            supports[k] = (int) (order[k] >>> 32);
+            classTidsets[k] = tidsets[items[k]];
+            if (!allItems) {
+                classAdded[k] = (batchAdded[items[k]] == null) ? NO_TIDS : batchAdded[items[k]];
+                classRemoved[k] = (batchRemoved[items[k]] == null) ? NO_TIDS : batchRemoved[items[k]];
+            }
+        }
+        processEquivalenceClass(new int[0], items, supports, classTidsets, classAdded, classRemoved, count, current);
+    }
+
+    /**
+     * Save the itemsets of an equivalence class, and process the classes of their extensions.
+     * @param prefix the item indexes of the prefix of the class
+     * @param items the last item of each itemset of the class
+     * @param supports the support of each itemset
+     * @param classTidsets the tidset of each itemset, or null if it was not needed yet
+     * @param classAdded the tids added by the batch in each itemset, or null to mine all the itemsets
+     * @param classRemoved the tids removed by the batch in each itemset, or null to mine all the itemsets
+     * @param count the number of itemsets of the class
+     * @param current receives the frequent itemsets
+     */
+    private void processEquivalenceClass(int[] prefix, int[] items, int[] supports, RoaringBitmap[] classTidsets,
+                                         RoaringBitmap[] classAdded, RoaringBitmap[] classRemoved, int count,
+                                         ItemsetTrie current) throws Exception {
+        boolean allItems = classAdded == null;
+        for (int i = 0; i < count; i++) {
+            int[] itemset = Arrays.copyOf(prefix, prefix.length + 1);
+            itemset[prefix.length] = items[i];
+            save(itemset, supports[i], current);
+            RoaringBitmap tidsetI = classTidsets[i];
+
+            int[] itemsI = new int[count - i - 1];
+            int[] supportsI = new int[count - i - 1];
+            RoaringBitmap[] tidsetsI = new RoaringBitmap[count - i - 1];
+            RoaringBitmap[] addedI = allItems ? null : new RoaringBitmap[count - i - 1];
+            RoaringBitmap[] removedI = allItems ? null : new RoaringBitmap[count - i - 1];
+            int countI = 0;
+            for (int j = i + 1; j < count; j++) {
+                int supportIJ;
+                RoaringBitmap tidsetIJ = null;
+                RoaringBitmap addedIJ = null;
+                RoaringBitmap removedIJ = null;
+                if (!allItems) {
+                    // the itemsets out of the batch keep their support
+                    addedIJ = RoaringBitmap.and(classAdded[i], classAdded[j]);
+                    removedIJ = RoaringBitmap.and(classRemoved[i], classRemoved[j]);
+                    if (addedIJ.isEmpty() && removedIJ.isEmpty()) {
+                        continue;
+                    }
+                }
+                if (prefix.length == 0) {
+                    // the support of the 2-itemsets is kept up to date
+                    supportIJ = pairSupports.get(pairKey(items[i], items[j]));
+                } else if (allItems) {
+                    supportIJ = RoaringBitmap.andCardinality(tidsetI, tidsets[items[j]]);
+                } else {
+                    int previousSupport = previousItemsets.getSupport(sortedItemset(itemset, items[j]));
+                    if (previousSupport != NO_SUPPORT) {
+                        supportIJ = previousSupport + addedIJ.getCardinality() - removedIJ.getCardinality();
+                    } else if (previousMinsup - 1 + addedIJ.getCardinality() < minsupRelative) {
+                        // it was not frequent, and its new transactions are not enough
+                        continue;
+                    } else {
+                        if (tidsetI == null) {
+                            tidsetI = tidsetOf(itemset);
+                        }
+                        tidsetIJ = RoaringBitmap.and(tidsetI, tidsets[items[j]]);
+                        supportIJ = tidsetIJ.getCardinality();
+                    }
+                }
+                if (supportIJ < minsupRelative) {
+                    continue;
+                }
+                if (allItems) {
+                    // all the extensions are mined from the tidsets
+                    tidsetIJ = RoaringBitmap.and(tidsetI, tidsets[items[j]]);
+                } else {
+                    addedI[countI] = addedIJ;
+                    removedI[countI] = removedIJ;
+                }
+                itemsI[countI] = items[j];
+                supportsI[countI] = supportIJ;
+                tidsetsI[countI] = tidsetIJ;
+                countI++;
+            }
+            if (countI > 0) {
+                processEquivalenceClass(itemset, itemsI, supportsI, tidsetsI, addedI, removedI, countI, current);
+            }
+        }
+    }
+
+    /**
+     * Keep a frequent itemset, and report it if its support changed.
+     * @param itemset the item indexes, in the order of the search
+     * @param support the support
+     * @param current receives the frequent itemsets
+     */
+    private void save(int[] itemset, int support, ItemsetTrie current) throws Exception {
+        int[] sorted = itemset.clone();
+        Arrays.sort(sorted);
+        current.put(sorted, support);
+        int previousSupport = (previousItemsets == null) ? NO_SUPPORT : previousItemsets.getSupport(sorted);
+        if (previousSupport != support) {
+            changeSink.change(toItems(sorted), support, previousSupport);
+        }
+    }
+
+    /**
+     * Compute the tidset of an itemset, from the tidsets of its items.
+     * @param itemset the item indexes
+     * @return the tidset.
+     */
+    private RoaringBitmap tidsetOf(int[] itemset) {
+        RoaringBitmap tids = tidsets[itemset[0]];
+        for (int k = 1; k < itemset.length; k++) {
+            tids = RoaringBitmap.and(tids, tidsets[itemset[k]]);
+        }
+        return tids;
+    }
+
+    /**
+     * Check if a transaction of the batch contains an itemset.
+     * @param itemset the item indexes
+     * @return true if one does.
+     */
+    private boolean inBatch(int[] itemset) {
+        RoaringBitmap added = null;
+        RoaringBitmap removed = null;
+        for (int item : itemset) {
+            if (batchAdded[item] == null && batchRemoved[item] == null) {
+                return false;
+            }
+            added = and(added, batchAdded[item]);
+            removed = and(removed, batchRemoved[item]);
+            if (added.isEmpty() && removed.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Intersect two sets of tids, either of which may be missing.
+     * @param tids the first set, or null for all the tids
+     * @param other the second set, or null for none
+     * @return the intersection.
+     */
+    private static RoaringBitmap and(RoaringBitmap tids, RoaringBitmap other) {
+        if (other == null) {
+            return NO_TIDS;
+        }
+        return (tids == null) ? other : RoaringBitmap.and(tids, other);
+    }
+
+    /**
+     * Add a tid to a set of tids, creating the set if needed.
+     * @param tids the set, or null
+     * @param tid the tid
+     * @return the set.
+     */
+    private static RoaringBitmap add(RoaringBitmap tids, int tid) {
+        if (tids == null) {
+            tids = new RoaringBitmap();
+        }
+        tids.add(tid);
+        return tids;
+    }
+
+    /**
+     * Create the sorted item indexes of an itemset extended by one item.
+     * @param itemset the item indexes, in the order of the search
+     * @param item the item index
+     * @return the sorted item indexes.
+     */
+    private static int[] sortedItemset(int[] itemset, int item) {
+        int[] sorted = Arrays.copyOf(itemset, itemset.length + 1);
+        sorted[itemset.length] = item;
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Grow the arrays indexed by item.
+     * @param itemCount the number of items
+     */
+    private void ensureItemCapacity(int itemCount) {
+        if (itemCount > tidsets.length) {
+            int capacity = Math.max(itemCount, tidsets.length * 2);
+            tidsets = Arrays.copyOf(tidsets, capacity);
+            batchAdded = Arrays.copyOf(batchAdded, capacity);
+            batchRemoved = Arrays.copyOf(batchRemoved, capacity);
+        }
+    }
+
+    /**
+     * Check if a transaction has some items.
+     * @param tid the transaction
+     * @param items the item indexes, sorted
+     * @param length the number of items
+     * @return true if the transaction has exactly these items.
+     */
+    private boolean sameItems(int tid, int[] items, int length) {
+        if (transactions.getLength(tid) != length) {
+            return false;
+        }
+        for (int k = 0; k < length; k++) {
+            if (transactions.get(tid, k) != items[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hash the items of a transaction.
+     * @param items the item indexes, sorted
+     * @param length the number of items
+     * @return the hash.
+     */
+    private static long hash(int[] items, int length) {
+        long hash = length;
+        for (int k = 0; k < length; k++) {
+            hash = hash * 0x9E3779B97F4A7C15L + items[k];
+        }
+        return hash;
+    }
+
+    /**
+     * Get the key of a pair of items in the pair supports.
+     * @param i an item index
+     * @param j another item index
+     * @return the key.
+     */
+    private static long pairKey(int i, int j) {
+        return (i < j) ? ((long) i << 32) | j : ((long) j << 32) | i;
+    }
+
+    /**
+     * Convert item indexes into items.
+     * @param itemset the item indexes
+     * @return the items, sorted by increasing id.
+     */
+    private long[] toItems(int[] itemset) {
+        long[] items = new long[itemset.length];
+        for (int k = 0; k < itemset.length; k++) {
+            items[k] = dictionary.itemAt(itemset[k]);
+        }
+        Arrays.sort(items);
+        return items;
+    }
+
+    /**
+     * Get the number of transactions, without those removed.
+     * @return the number of transactions.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Get the minimum support of the last update.
+     * @return the minimum support, as a number of transactions.
+     */
+    public synchronized int getMinSupport() {
+        return minsupRelative;
+    }
+
+    /**
+     * Get the number of frequent itemsets found by the last update.
+     * @return the number of itemsets.
+     */
+    public synchronized int getFrequentItemsetCount() {
+        return frequentItemsets == null ? 0 : frequentItemsets.size();
+    }
+}
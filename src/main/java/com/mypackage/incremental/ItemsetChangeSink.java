@@ -0,0 +1,14 @@
+package com.mypackage.incremental;
+
+/**
+ * Receives the frequent itemsets whose support changed during an update of an IncrementalDatabase.
+ */
+public interface ItemsetChangeSink {
+    /**
+     * Save a change.
+     * @param items the items of the itemset, sorted by increasing id
+     * @param support the new support, or NO_SUPPORT if the itemset is no longer frequent
+     * @param previousSupport the support before the update, or NO_SUPPORT if the itemset was not frequent
+     */
+    public abstract void change(long[] items, int support, int previousSupport) throws Exception;
+}
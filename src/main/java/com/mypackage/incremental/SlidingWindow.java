@@ -0,0 +1,228 @@
+package com.mypackage.incremental;
+
+import java.util.Arrays;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import com.mypackage.datastructures.itemset.ItemsetTrie;
+import com.mypackage.input.ItemDictionary;
+import com.mypackage.input.TransactionDatabase;
+import com.mypackage.input.TransactionIterator;
+
+/**
+ * A sliding window over the most recent transactions of a stream, bounded by a number of transactions
+ * and optionally by an age. The transactions are stored in a ring buffer, whose slots are their tids:
+ * a new transaction takes the slot of the oldest one when the window is full, so tids stay below the
+ * capacity. The tidset of every item (a Roaring bitmap) is updated when a transaction enters or leaves
+ * the window, so the frequent itemsets of the window are found by ECLAT from the tidsets alone, without
+ * reading the transactions again.
+ */
+public class SlidingWindow {
+    // the largest number of transactions, and their largest age in milliseconds (0 = no limit)
+    private final int capacity;
+    private final long spanMillis;
+
+    // the ring buffer: the item indexes of the transaction in each slot, sorted, and the time it was added
+    private final int[][] slotItems;
+    private final long[] slotTimes;
+    // the slot of the oldest transaction, and the number of transactions
+    private int head = 0;
+    private int size = 0;
+
+    // the dictionary of items: the tidsets are indexed by item index
+    private final ItemDictionary dictionary = new ItemDictionary();
+    // the tidset of each item, by index (null if the item never was in the window)
+    private RoaringBitmap[] tidsets = new RoaringBitmap[1024];
+
+    // the items of the transaction being added
+    private int[] buffer = new int[16];
+
+    /**
+     * Constructor of an empty window.
+     * @param capacity the largest number of transactions
+     * @param spanMillis the largest age of a transaction, in milliseconds, or 0 if unlimited
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public SlidingWindow(int capacity, long spanMillis) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The window size must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.spanMillis = spanMillis;
+        this.slotItems = new int[capacity][];
+        this.slotTimes = new long[capacity];
+    }
+
+    /**
+     * Add the transactions of a database to the window, after expiring the transactions which are too old.
+     * When the window is full, each new transaction replaces the oldest one.
+     * @param batch the transactions
+     * @param now the time of the new transactions, in milliseconds
+     * @return the number of transactions added.
+     */
+    public synchronized int add(TransactionDatabase batch, long now) {
+        expire(now);
+
+        // the index of each item of the batch in this window
+        ItemDictionary batchDictionary = batch.getDictionary();
+        int[] indexes = new int[batchDictionary.size()];
+        for (int k = 0; k < indexes.length; k++) {
+            indexes[k] = dictionary.encode(batchDictionary.itemAt(k));
+        }
+        if (dictionary.size() > tidsets.length) {
+            tidsets = Arrays.copyOf(tidsets, Math.max(dictionary.size(), tidsets.length * 2));
+        }
+
+        int count = 0;
+        TransactionIterator it = batch.getTransactions().iterator();
+        while (it.next()) {
+            if (it.getLength() == 0) {
+                continue;
+            }
+            if (buffer.length < it.getLength()) {
+                buffer = new int[it.getLength()];
+            }
+            for (int k = 0; k < it.getLength(); k++) {
+                buffer[k] = indexes[it.getItems()[k]];
+            }
+            // sort the items and remove the duplicates
+            Arrays.sort(buffer, 0, it.getLength());
+            int distinct = 0;
+            for (int k = 0; k < it.getLength(); k++) {
+                if (distinct == 0 || buffer[distinct - 1] != buffer[k]) {
+                    buffer[distinct++] = buffer[k];
+                }
+            }
+
+            if (size == capacity) {
+                removeOldest();
+            }
+            int tid = (head + size) % capacity;
+            slotItems[tid] = Arrays.copyOf(buffer, distinct);
+            slotTimes[tid] = now;
+            for (int k = 0; k < distinct; k++) {
+                if (tidsets[buffer[k]] == null) {
+                    tidsets[buffer[k]] = new RoaringBitmap();
+                }
+                tidsets[buffer[k]].add(tid);
+            }
+            size++;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Remove the transactions which are too old.
+     * @param now the current time, in milliseconds
+     * @return the number of transactions removed.
+     */
+    public synchronized int expire(long now) {
+        int count = 0;
+        while (size > 0 && spanMillis > 0 && slotTimes[head] <= now - spanMillis) {
+            removeOldest();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Remove the oldest transaction from its slot and from the tidsets.
+     */
+    private void removeOldest() {
+        for (int item : slotItems[head]) {
+            tidsets[item].remove(head);
+        }
+        slotItems[head] = null;
+        head = (head + 1) % capacity;
+        size--;
+    }
+
+    /**
+     * Find the frequent itemsets of the window, after expiring the transactions which are too old.
+     * @param minsupp the minimum support, as a ratio of the number of transactions in the window
+     * @param maxLength the largest number of items of an itemset, or 0 if unlimited
+     * @param now the current time, in milliseconds
+     * @return the frequent itemsets, as sorted item indexes (see itemAt()).
+     */
+    public synchronized ItemsetTrie mine(double minsupp, int maxLength, long now) {
+        expire(now);
+        int minsupRelative = Math.max(1, (int) Math.ceil(minsupp * size));
+        ItemsetTrie itemsets = new ItemsetTrie(1024);
+
+        // the frequent items, by increasing support
+        long[] order = new long[dictionary.size()];
+        int count = 0;
+        for (int item = 0; item < dictionary.size(); item++) {
+            int support = (tidsets[item] == null) ? 0 : tidsets[item].getCardinality();
+            if (support >= minsupRelative) {
+                order[count++] = ((long) support << 32) | item;
+            }
+        }
+        Arrays.sort(order, 0, count);
+        int[] items = new int[count];
+        RoaringBitmap[] classTidsets = new RoaringBitmap[count];
+        for (int k = 0; k < count; k++) {
+            items[k] = (int) order[k];
+            classTidsets[k] = tidsets[items[k]];
+        }
+        processEquivalenceClass(new int[0], items, classTidsets, count, minsupRelative, maxLength, itemsets);
+        return itemsets;
+    }
+
+    /**
+     * Save the itemsets of an equivalence class, and process the classes of their extensions.
+     * @param prefix the item indexes of the prefix of the class
+     * @param items the last item of each itemset of the class
+     * @param classTidsets the tidset of each itemset
+     * @param count the number of itemsets of the class
+     * @param minsupRelative the minimum support
+     * @param maxLength the largest number of items of an itemset, or 0 if unlimited
+     * @param itemsets receives the frequent itemsets
+     */
+    private void processEquivalenceClass(int[] prefix, int[] items, RoaringBitmap[] classTidsets, int count,
+                                         int minsupRelative, int maxLength, ItemsetTrie itemsets) {
+        for (int i = 0; i < count; i++) {
+            int[] itemset = Arrays.copyOf(prefix, prefix.length + 1);
+            itemset[prefix.length] = items[i];
+            int[] sorted = itemset.clone();
+            Arrays.sort(sorted);
+            itemsets.put(sorted, classTidsets[i].getCardinality());
+            if (maxLength > 0 && itemset.length >= maxLength) {
+                continue;
+            }
+
+            int[] itemsI = new int[count - i - 1];
+            RoaringBitmap[] tidsetsI = new RoaringBitmap[count - i - 1];
+            int countI = 0;
+            for (int j = i + 1; j < count; j++) {
+                if (RoaringBitmap.andCardinality(classTidsets[i], classTidsets[j]) < minsupRelative) {
+                    continue;
+                }
+                itemsI[countI] = items[j];
+                tidsetsI[countI] = RoaringBitmap.and(classTidsets[i], classTidsets[j]);
+                countI++;
+            }
+            if (countI > 0) {
+                processEquivalenceClass(itemset, itemsI, tidsetsI, countI, minsupRelative, maxLength, itemsets);
+            }
+        }
+    }
+
+    /**
+     * Get the item at an index.
+     * @param index the item index
+     * @return the item.
+     */
+    public synchronized long itemAt(int index) {
+        return dictionary.itemAt(index);
+    }
+
+    /**
+     * Get the number of transactions in the window.
+     * @return the number of transactions.
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,194 @@
+package com.mypackage.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A binary file format for transaction databases, which can be memory-mapped instead of parsed.
+ * All values are little-endian:
+ * <pre>
+ * header      int magic ('ECLT'), int version, int itemCount, int transactionCount, long occurrenceCount
+ * dictionary  long[itemCount]            the item of each index
+ * offsets     int[transactionCount + 1]  the offset of each transaction in the items, then occurrenceCount
+ * items       int[occurrenceCount]       the indexes of the items of all transactions, one after the other
+ * </pre>
+ * The offsets and items sections are the buffers of a TransactionStore, so loading a file maps them
+ * directly, without copying. Only the dictionary is read, to rebuild its hash map.
+ *
+ * A text file can be converted with:
+ * java com.mypackage.input.BinaryTransactionFile input.txt output.bin [separator]
+ *
+ * @author JY, LX
+ */
+public class BinaryTransactionFile {
+    // the first int of a file
+    private static final int MAGIC = 0x45434C54;
+    // the version of the format
+    private static final int VERSION = 1;
+    // the size of the header, in bytes
+    private static final int HEADER_SIZE = 24;
+    // the size of the buffer used for writing
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Convert a text file of transactions into a binary file.
+     * @param args the input text file, the output binary file, and optionally the separator of items (default ',')
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BinaryTransactionFile <input.txt> <output.bin> [separator]");
+            return;
+        }
+        TransactionDatabase database = new TransactionDatabase();
+        database.loadFile(args[0], args.length > 2 ? args[2] : ",");
+        write(database, args[1]);
+        System.out.println("Wrote " + database.size() + " transactions, " + database.itemSize() + " items");
+    }
+
+    /**
+     * Write a transaction database into a binary file.
+     * @param database the database, e.g. loaded from a text file or by loadResult()
+     * @param path the path of the file
+     * @throws IOException exception if error writing the file
+     */
+    public static void write(TransactionDatabase database, String path) throws IOException {
+        TransactionStore transactions = database.getTransactions();
+        long[] items = database.getDictionary().toArray();
+
+        try (RandomAccessFile file = new RandomAccessFile(path, "rw");
+             FileChannel channel = file.getChannel()) {
+            channel.truncate(0);
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            // header
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(items.length);
+            buffer.putInt(transactions.size());
+            buffer.putLong(transactions.getOccurrenceCount());
+
+            // dictionary
+            for (long item : items) {
+                buffer = ensureRemaining(channel, buffer, 8);
+                buffer.putLong(item);
+            }
+
+            // offsets
+            int offset = 0;
+            for (int tid = 0; tid < transactions.size(); tid++) {
+                buffer = ensureRemaining(channel, buffer, 4);
+                buffer.putInt(offset);
+                offset += transactions.getLength(tid);
+            }
+            buffer = ensureRemaining(channel, buffer, 4);
+            buffer.putInt(offset);
+
+            // items
+            TransactionIterator it = transactions.iterator();
+            while (it.next()) {
+                int[] itemset = it.getItems();
+                for (int k = 0; k < it.getLength(); k++) {
+                    buffer = ensureRemaining(channel, buffer, 4);
+                    buffer.putInt(itemset[k]);
+                }
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * Load a transaction database from a binary file. The transactions are mapped in memory and
+     * read-only: they are paged in by the operating system when mining reads them.
+     * @param path the path of the file
+     * @return the database.
+     * @throws IOException exception if error reading the file, or if it is not a valid file.
+     */
+    public static TransactionDatabase load(String path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(new File(path), "r");
+             FileChannel channel = file.getChannel()) {
+            // header
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read until the header is complete
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                throw new IOException("Not a binary transaction file: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + " of binary transaction file: " + path);
+            }
+            int itemCount = header.getInt();
+            int transactionCount = header.getInt();
+            long occurrenceCount = header.getLong();
+
+            long dictionaryStart = HEADER_SIZE;
+            long offsetsStart = dictionaryStart + 8L * itemCount;
+            long itemsStart = offsetsStart + 4L * (transactionCount + 1);
+            if (channel.size() < itemsStart + 4L * occurrenceCount) {
+                throw new IOException("Truncated binary transaction file: " + path);
+            }
+
+            // dictionary: rebuild the map from items to indexes
+            LongBuffer dictionaryItems = map(channel, dictionaryStart, 8L * itemCount).asLongBuffer();
+            ItemDictionary dictionary = new ItemDictionary(itemCount);
+            for (int index = 0; index < itemCount; index++) {
+                dictionary.encode(dictionaryItems.get(index));
+            }
+
+            // transactions: map the offsets and the items
+            IntBuffer offsets = map(channel, offsetsStart, 4L * (transactionCount + 1)).asIntBuffer();
+            IntBuffer items = map(channel, itemsStart, 4L * occurrenceCount).asIntBuffer();
+            return new TransactionDatabase(dictionary, new TransactionStore(items, offsets));
+        }
+    }
+
+    /**
+     * Map a section of a file in memory, read-only.
+     * @param channel the channel of the file
+     * @param position the position of the section
+     * @param size the size of the section, in bytes
+     * @return the little-endian buffer of the section.
+     * @throws IOException if the section cannot be mapped in one buffer.
+     */
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Section too large to be mapped: " + size + " bytes");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Make room in the write buffer, writing its content to the file if needed.
+     * @param channel the channel of the file
+     * @param buffer the buffer
+     * @param bytes the number of bytes needed
+     * @return the buffer.
+     */
+    private static ByteBuffer ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Write the content of the write buffer to the file, and clear it.
+     * @param channel the channel of the file
+     * @param buffer the buffer
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,105 @@
+package com.mypackage.input;
+
+import java.util.Arrays;
+
+import com.mypackage.datastructures.hashmap.LongIntOpenHashMap;
+
+/**
+ * The dictionary of items of a transaction database. It encodes each item (a long, e.g. the
+ * internal id of a Neo4j node) into a dense int index, assigned in first-seen order, and decodes
+ * an index back into the item.
+ *
+ * Both directions take constant time: items are looked up in a primitive open-addressing hash map,
+ * and indexes are looked up in a dense array of items.
+ *
+ * @author JY, LX
+ */
+public class ItemDictionary {
+    // the value returned when an item is not in the dictionary
+    public static final int NOT_FOUND = -1;
+
+    // map from an item to its index
+    private final LongIntOpenHashMap indexes;
+    // the items, at the position of their index
+    private long[] items;
+    // the number of items in the dictionary
+    private int size = 0;
+
+    /**
+     * Constructor of an empty dictionary.
+     */
+    public ItemDictionary() {
+        this(1024);
+    }
+
+    /**
+     * Constructor of an empty dictionary.
+     * @param expectedSize the number of distinct items expected.
+     */
+    public ItemDictionary(int expectedSize) {
+        indexes = new LongIntOpenHashMap(expectedSize, NOT_FOUND);
+        items = new long[Math.max(expectedSize, 16)];
+    }
+
+    /**
+     * Get the index of an item, adding the item to the dictionary if it is not found.
+     * @param item the item
+     * @return the index of the item.
+     */
+    public int encode(long item) {
+        int index = indexes.get(item);
+        if (index == NOT_FOUND) {
+            // the item is new: give it the next index
+            index = size;
+            indexes.put(item, index);
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size << 1);
+            }
+            items[size++] = item;
+        }
+        return index;
+    }
+
+    /**
+     * Get the index of an item, without adding it to the dictionary.
+     * @param item the item
+     * @return the index of the item, or NOT_FOUND.
+     */
+    public int indexOf(long item) {
+        return indexes.get(item);
+    }
+
+    /**
+     * Get the item at a given index.
+     * @param index the index
+     * @return the item.
+     */
+    public long itemAt(int index) {
+        return items[index];
+    }
+
+    /**
+     * Check if an index is assigned to an item.
+     * @param index the index
+     * @return true if there is an item at this index.
+     */
+    public boolean contains(int index) {
+        return index >= 0 && index < size;
+    }
+
+    /**
+     * Get the number of items in the dictionary.
+     * @return the number of items.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get a copy of the items of this dictionary, ordered by index.
+     * @return the items.
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(items, size);
+    }
+}
@@ -0,0 +1,227 @@
+package com.mypackage.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A loader of text files of transactions (one transaction per line, items separated by commas, spaces,
+ * tabs or semicolons) which parses the file with several threads.
+ *
+ * The file is split into byte ranges aligned on line ends, and each range is memory-mapped and parsed
+ * by a thread with a hand-written tokenizer that allocates nothing per item. Each range has its own
+ * dictionary and transaction store. The ranges are then merged in file order into the database: the
+ * items of each partial dictionary are encoded into the dictionary of the database, and transactions
+ * are copied with their items translated. Transactions and item indexes are thus the same as with
+ * a sequential load. Lines starting with '#', '%' or '@' are skipped, as are empty lines.
+ *
+ * @author JY, LX
+ */
+public class ParallelTextLoader {
+    // the largest range of bytes parsed by a task, so that a range can be mapped in one buffer
+    private static final long MAX_RANGE_SIZE = 256L * 1024 * 1024;
+    // the number of ranges per thread, so that threads finishing early can take another range
+    private static final int RANGES_PER_THREAD = 4;
+
+    // the path of the file
+    private final String path;
+    // the number of threads
+    private final int threads;
+
+    /**
+     * Constructor.
+     * @param path the path of the file
+     * @param threads the number of threads parsing the file
+     */
+    public ParallelTextLoader(String path, int threads) {
+        this.path = path;
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Load the transactions of the file at the end of a database.
+     * @param database the database
+     * @throws IOException exception if error reading the file, or if it contains something else than items
+     */
+    public void loadInto(TransactionDatabase database) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(new File(path), "r");
+             FileChannel channel = file.getChannel()) {
+            long[] boundaries = split(channel);
+
+            // parse the ranges
+            List<Future<Partial>> partials = new ArrayList<Future<Partial>>();
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, boundaries.length - 1));
+            try {
+                for (int r = 0; r + 1 < boundaries.length; r++) {
+                    final ByteBuffer range = channel.map(FileChannel.MapMode.READ_ONLY,
+                            boundaries[r], boundaries[r + 1] - boundaries[r]);
+                    final long start = boundaries[r];
+                    partials.add(executor.submit(new Callable<Partial>() {
+                        @Override
+                        public Partial call() throws IOException {
+                            return parse(range, start);
+                        }
+                    }));
+                }
+                // merge the ranges in file order
+                for (Future<Partial> partial : partials) {
+                    merge(partial.get(), database);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while loading " + path, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Error while loading " + path, e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Split the file into ranges of bytes, each starting at the beginning of a line.
+     * @param channel the channel of the file
+     * @return the start of each range, followed by the size of the file.
+     */
+    private long[] split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int count = (int) Math.max(Math.min((long) threads * RANGES_PER_THREAD, size / 4096 + 1),
+                (size + MAX_RANGE_SIZE - 1) / MAX_RANGE_SIZE);
+        long[] boundaries = new long[count + 1];
+        boundaries[count] = size;
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        for (int r = 1; r < count; r++) {
+            // move the boundary after the next line end
+            long position = Math.max(size * r / count, boundaries[r - 1]);
+            long boundary = size;
+            search:
+            while (position < size) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int k = 0; k < read; k++) {
+                    if (buffer.get(k) == '\n') {
+                        boundary = position + k + 1;
+                        break search;
+                    }
+                }
+                position += read;
+            }
+            boundaries[r] = boundary;
+        }
+        return boundaries;
+    }
+
+    /**
+     * Parse a range of the file.
+     * @param range the bytes of the range, starting at the beginning of a line
+     * @param start the position of the range in the file, for error messages
+     * @return the transactions of the range, with their own dictionary.
+     * @throws IOException if the range contains something else than items
+     */
+    private static Partial parse(ByteBuffer range, long start) throws IOException {
+        Partial partial = new Partial();
+        int[] transaction = new int[16];
+        int length = 0;
+        long value = 0;
+        boolean inNumber = false;
+        boolean negative = false;
+        boolean lineStart = true;
+        boolean comment = false;
+
+        int limit = range.limit();
+        for (int i = 0; i <= limit; i++) {
+            // the end of the range ends the last line
+            byte b = (i < limit) ? range.get(i) : (byte) '\n';
+            if (comment && b != '\n') {
+                continue;
+            }
+            if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                inNumber = true;
+                lineStart = false;
+                continue;
+            }
+            if (b == '-' && !inNumber && !negative) {
+                negative = true;
+                lineStart = false;
+                continue;
+            }
+            if (lineStart && (b == '#' || b == '%' || b == '@')) {
+                comment = true;
+                continue;
+            }
+            if (b != '\n' && b != '\r' && b != ',' && b != ' ' && b != '\t' && b != ';') {
+                throw new IOException("Invalid character '" + (char) b + "' at byte " + (start + i));
+            }
+            // the end of a number
+            if (inNumber) {
+                if (length == transaction.length) {
+                    transaction = Arrays.copyOf(transaction, length * 2);
+                }
+                transaction[length++] = partial.dictionary.encode(negative ? -value : value);
+            }
+            value = 0;
+            inNumber = false;
+            negative = false;
+            lineStart = false;
+            // the end of a line
+            if (b == '\n') {
+                if (length > 0) {
+                    partial.transactions.add(transaction, length);
+                    length = 0;
+                }
+                lineStart = true;
+                comment = false;
+            }
+        }
+        return partial;
+    }
+
+    /**
+     * Append the transactions of a range to a database.
+     * @param partial the transactions of the range
+     * @param database the database
+     */
+    private static void merge(Partial partial, TransactionDatabase database) {
+        // translate the partial dictionary into the dictionary of the database
+        long[] items = partial.dictionary.toArray();
+        int[] indexes = new int[items.length];
+        for (int k = 0; k < items.length; k++) {
+            indexes[k] = database.getDictionary().encode(items[k]);
+        }
+        // copy the transactions with their items translated
+        TransactionStore transactions = database.getTransactions();
+        TransactionIterator it = partial.transactions.iterator();
+        while (it.next()) {
+            int[] itemset = it.getItems();
+            for (int k = 0; k < it.getLength(); k++) {
+                itemset[k] = indexes[itemset[k]];
+            }
+            transactions.add(itemset, it.getLength());
+        }
+    }
+
+    /**
+     * The transactions of a range of the file, with their own dictionary.
+     */
+    private static class Partial {
+        final ItemDictionary dictionary = new ItemDictionary();
+        final TransactionStore transactions = new TransactionStore();
+    }
+}
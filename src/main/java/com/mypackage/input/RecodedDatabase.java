@@ -0,0 +1,254 @@
+package com.mypackage.input;
+
+import java.util.Arrays;
+
+/**
+ * The transactions of a database restricted to their frequent items, as mined by the algorithm.
+ *
+ * Frequent items are recoded to dense codes 0 .. n-1 by increasing order of support (ties are broken by
+ * their index in the dictionary). This is the total order suggested by Zaki, so the code of an item is
+ * also its position in the triangular matrix and the order of the equivalence classes. Each transaction
+ * is rewritten as a sorted array of codes without duplicates, and infrequent items are dropped.
+ * Transactions keep their position, so transaction ids (tids) are those of the original database.
+ *
+ * Items may also be split into groups coded one after the other (e.g. to enumerate the items required by
+ * a constraint first), each group being sorted by increasing support.
+ *
+ * @author JY, LX
+ */
+public class RecodedDatabase {
+    /** The group of the items coded first */
+    public static final byte FIRST = 0;
+    /** The group of the items coded after the first ones, and before the last ones */
+    public static final byte MIDDLE = 1;
+    /** The group of the items coded last */
+    public static final byte LAST = 2;
+
+    // the transactions, as sorted arrays of codes
+    private final TransactionStore transactions;
+    // the index in the dictionary of the original database of the item of each code
+    private final int[] itemOfCode;
+    // the support of the item of each code
+    private final int[] supportOfCode;
+
+    /**
+     * Constructor, scanning the database twice: once to count the support of each item, and once
+     * to rewrite the transactions.
+     * @param database the transaction database
+     * @param minsupRelative the minimum support, as a number of transactions
+     * @param offHeap if true, the recoded transactions are stored outside of the Java heap.
+     */
+    public RecodedDatabase(TransactionDatabase database, int minsupRelative, boolean offHeap) {
+        this(database, minsupRelative, offHeap, null);
+    }
+
+    /**
+     * Constructor, scanning the database twice: once to count the support of each item, and once
+     * to rewrite the transactions.
+     * @param database the transaction database
+     * @param minsupRelative the minimum support, as a number of transactions
+     * @param offHeap if true, the recoded transactions are stored outside of the Java heap.
+     * @param groupOfItem the group of each item (FIRST, MIDDLE or LAST), by index in the dictionary,
+     *                    or null if all items are in the same group
+     */
+    public RecodedDatabase(TransactionDatabase database, int minsupRelative, boolean offHeap, byte[] groupOfItem) {
+        TransactionStore original = database.getTransactions();
+        int itemSize = database.itemSize();
+
+        // (1) count the support of each item. An item is counted once per transaction,
+        // even if it appears several times in it.
+        int[] support = new int[itemSize];
+        int[] lastTid = new int[itemSize];
+        Arrays.fill(lastTid, -1);
+        TransactionIterator it = original.iterator();
+        while (it.next()) {
+            int tid = it.getTid();
+            int[] itemset = it.getItems();
+            for (int k = 0; k < it.getLength(); k++) {
+                int item = itemset[k];
+                if (lastTid[item] != tid) {
+                    lastTid[item] = tid;
+                    support[item]++;
+                }
+            }
+        }
+
+        // (2) sort the frequent items by group, then by increasing support, then by index,
+        // as (support << 32 | index) within the range of their group
+        int[] groupStarts = new int[LAST + 2];
+        for (int item = 0; item < itemSize; item++) {
+            if (support[item] >= minsupRelative) {
+                groupStarts[groupOf(groupOfItem, item) + 1]++;
+            }
+        }
+        for (int group = FIRST; group <= LAST; group++) {
+            groupStarts[group + 1] += groupStarts[group];
+        }
+        int frequentCount = groupStarts[LAST + 1];
+        long[] order = new long[frequentCount];
+        int[] positions = Arrays.copyOf(groupStarts, LAST + 1);
+        for (int item = 0; item < itemSize; item++) {
+            if (support[item] >= minsupRelative) {
+                order[positions[groupOf(groupOfItem, item)]++] = ((long) support[item] << 32) | item;
+            }
+        }
+        for (int group = FIRST; group <= LAST; group++) {
+            Arrays.sort(order, groupStarts[group], groupStarts[group + 1]);
+        }
+        itemOfCode = new int[frequentCount];
+        supportOfCode = new int[frequentCount];
+        int[] codeOfItem = lastTid; // reused: -1 for infrequent items
+        Arrays.fill(codeOfItem, -1);
+        for (int code = 0; code < frequentCount; code++) {
+            itemOfCode[code] = (int) order[code];
+            supportOfCode[code] = (int) (order[code] >>> 32);
+            codeOfItem[itemOfCode[code]] = code;
+        }
+
+        // (3) rewrite each transaction with the codes of its frequent items
+        long occurrences = 0;
+        for (int code = 0; code < frequentCount; code++) {
+            occurrences += supportOfCode[code];
+        }
+        transactions = new TransactionStore(original.size(), (int) Math.min(occurrences, Integer.MAX_VALUE - 8));
+        it = original.iterator();
+        while (it.next()) {
+            int[] buffer = it.getItems();
+            int length = 0;
+            for (int k = 0; k < it.getLength(); k++) {
+                int code = codeOfItem[buffer[k]];
+                if (code >= 0) {
+                    buffer[length++] = code;
+                }
+            }
+            Arrays.sort(buffer, 0, length);
+            // remove the duplicates
+            int distinct = 0;
+            for (int k = 0; k < length; k++) {
+                if (distinct == 0 || buffer[distinct - 1] != buffer[k]) {
+                    buffer[distinct++] = buffer[k];
+                }
+            }
+            transactions.add(buffer, distinct);
+        }
+        transactions.compact(offHeap);
+    }
+
+    /**
+     * Constructor of a database with given codes and transactions.
+     * @param transactions the transactions, as sorted arrays of codes
+     * @param itemOfCode the index in the dictionary of the item of each code
+     * @param supportOfCode the support of the item of each code
+     */
+    private RecodedDatabase(TransactionStore transactions, int[] itemOfCode, int[] supportOfCode) {
+        this.transactions = transactions;
+        this.itemOfCode = itemOfCode;
+        this.supportOfCode = supportOfCode;
+    }
+
+    /**
+     * Restrict this database to the items of a higher minimum support, without scanning the original database.
+     * Since codes are sorted by increasing support, these items are the last codes from getFirstCode(),
+     * and their new codes are shifted by it. This requires a database recoded without groups.
+     * @param minsupRelative the minimum support, as a number of transactions
+     * @param offHeap if true, the recoded transactions are stored outside of the Java heap.
+     * @return the restricted database, or this database if all its items have the minimum support.
+     */
+    public RecodedDatabase restrict(int minsupRelative, boolean offHeap) {
+        int first = getFirstCode(minsupRelative);
+        if (first == 0) {
+            return this;
+        }
+        int[] items = Arrays.copyOfRange(itemOfCode, first, itemOfCode.length);
+        int[] supports = Arrays.copyOfRange(supportOfCode, first, supportOfCode.length);
+        long occurrences = 0;
+        for (int support : supports) {
+            occurrences += support;
+        }
+        TransactionStore restricted = new TransactionStore(transactions.size(), (int) Math.min(occurrences, Integer.MAX_VALUE - 8));
+        TransactionIterator it = transactions.iterator();
+        while (it.next()) {
+            int[] buffer = it.getItems();
+            int length = 0;
+            for (int k = 0; k < it.getLength(); k++) {
+                if (buffer[k] >= first) {
+                    buffer[length++] = buffer[k] - first;
+                }
+            }
+            restricted.add(buffer, length);
+        }
+        restricted.compact(offHeap);
+        return new RecodedDatabase(restricted, items, supports);
+    }
+
+    /**
+     * Get the first code of the items of a minimum support, in a database recoded without groups.
+     * @param minsupRelative the minimum support, as a number of transactions
+     * @return the first code whose support is at least minsupRelative, or getItemCount() if there is none.
+     */
+    public int getFirstCode(int minsupRelative) {
+        int low = 0;
+        int high = supportOfCode.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (supportOfCode[middle] < minsupRelative) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get the group of an item.
+     * @param groupOfItem the group of each item, or null
+     * @param item the index of the item in the dictionary
+     * @return the group, MIDDLE if there are no groups.
+     */
+    private static int groupOf(byte[] groupOfItem, int item) {
+        return groupOfItem == null ? MIDDLE : groupOfItem[item];
+    }
+
+    /**
+     * Get the number of transactions, including those without frequent items.
+     * @return the number of transactions.
+     */
+    public int size() {
+        return transactions.size();
+    }
+
+    /**
+     * Get the number of frequent items.
+     * @return the number of codes.
+     */
+    public int getItemCount() {
+        return itemOfCode.length;
+    }
+
+    /**
+     * Get the transactions, as the codes of their frequent items sorted by increasing order.
+     * @return the store of transactions.
+     */
+    public TransactionStore getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * Get the item of a code.
+     * @param code the code
+     * @return the index of the item in the dictionary of the original database.
+     */
+    public int getItem(int code) {
+        return itemOfCode[code];
+    }
+
+    /**
+     * Get the support of the item of a code.
+     * @param code the code
+     * @return the number of transactions containing the item.
+     */
+    public int getSupport(int code) {
+        return supportOfCode[code];
+    }
+}
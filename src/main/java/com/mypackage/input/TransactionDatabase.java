@@ -5,24 +5,49 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
-import java.util.LinkedHashSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Result;
 
+import com.mypackage.datastructures.hashmap.LongIntOpenHashMap;
+
 /**
  * The main class for storing transactions in memory. A transaction contains a list of items.
  *
  * @author JY, LX
  */
 public class TransactionDatabase {
-    // The list of items in this database
-    private final Set<Long> items = new LinkedHashSet<Long>();
-    private Object itemsArray[] = null;
-    // the list of transactions
-    private final List<List<Integer>> transactions = new ArrayList<List<Integer>>();
+    /** The default column of item sets in a Cypher result */
+    public static final String DEFAULT_ITEMSET_COLUMN = "itemSet";
+
+    // The dictionary of items in this database
+    private final ItemDictionary dictionary;
+    // the transactions, as the indexes of their items in the dictionary
+    private final TransactionStore transactions;
+    // the buffer of the transaction being added, and its number of items
+    private int[] transactionBuffer = new int[16];
+    private int transactionLength = 0;
+
+    /**
+     * Constructor of an empty database.
+     */
+    public TransactionDatabase() {
+        this(new ItemDictionary(), new TransactionStore());
+    }
+
+    /**
+     * Constructor of a database over existing transactions, e.g. mapped from a binary file.
+     * @param dictionary the dictionary of items
+     * @param transactions the transactions, as indexes in the dictionary
+     */
+    TransactionDatabase(ItemDictionary dictionary, TransactionStore transactions) {
+        this.dictionary = dictionary;
+        this.transactions = transactions;
+    }
 
     /**
      * Method to load Result set containing a transaction database into memory
@@ -31,29 +56,160 @@ public class TransactionDatabase {
      * @throws IOException exception if error reading the file
      */
     public void loadResult(Result result, String separator) throws IOException {
-        String thisLine; // variable to read each line
-        String del = separator == null? " " : separator;
-
         try {
-            // for each line
-            while (result.hasNext()) {
-                // if the line is not a comment, is not empty or is not other
-                // kind of metadata
-                thisLine = result.columnAs("itemSet").next().toString();
-                if (!thisLine.isEmpty()) {
-                    // remove leading '[' and ending ']'
-                    thisLine = thisLine.substring(1,thisLine.length()-1);
-                    // System.out.println(thisLine);
-                    addTransaction(thisLine.split(del));
+            loadItemSets(result, DEFAULT_ITEMSET_COLUMN, separator == null? " " : separator);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Method to load a Result set with one transaction per row into memory. The items of a row are read
+     * from one column, as a list of numbers (e.g. collect(id(n))), of nodes (e.g. collect(n)) or an array
+     * of longs, without converting them to text. Rows with an empty item set are skipped.
+     * @param result the result of a Cypher query
+     * @param column the column of the item sets
+     * @throws IllegalArgumentException if the column contains something else than items
+     */
+    public void loadItemSets(Result result, String column) {
+        loadItemSets(result, column, ",");
+    }
+
+    /**
+     * Method to load a Result set with one transaction per row into memory.
+     * @param result the result of a Cypher query
+     * @param column the column of the item sets
+     * @param separator the separator of items, only used if an item set was converted to text
+     */
+    private void loadItemSets(Result result, String column, String separator) {
+        // for each row
+        while (result.hasNext()) {
+            Object itemSet = result.next().get(column);
+            if (itemSet instanceof Collection) {
+                for (Object item : (Collection<?>) itemSet) {
+                    addItem(toLong(item));
+                }
+            } else if (itemSet instanceof long[]) {
+                for (long item : (long[]) itemSet) {
+                    addItem(item);
+                }
+            } else if (itemSet instanceof int[]) {
+                for (int item : (int[]) itemSet) {
+                    addItem(item);
+                }
+            } else if (itemSet instanceof Object[]) {
+                for (Object item : (Object[]) itemSet) {
+                    addItem(toLong(item));
+                }
+            } else if (itemSet != null) {
+                // an item set converted to text, e.g. "[1, 2, 3]": remove leading '[' and ending ']'
+                String thisLine = itemSet.toString().trim();
+                if (thisLine.startsWith("[") && thisLine.endsWith("]")) {
+                    thisLine = thisLine.substring(1, thisLine.length() - 1);
+                }
+                if (!thisLine.trim().isEmpty()) {
+                    for (String attribute : thisLine.split(separator)) {
+                        addItem(Long.parseLong(attribute.trim()));
+                    }
                 }
             }
+            if (transactionLength > 0) {
+                endTransaction();
+            }
+        }
+    }
 
-            itemsArray = items.toArray();
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
+    /**
+     * Method to load a Result set with one (transaction, item) pair per row into memory, e.g.
+     * MATCH (o:Order)-[:CONTAINS]->(p:Product) RETURN id(o) AS txId, id(p) AS itemId.
+     * Rows do not need to be grouped by transaction: pairs are buffered in two arrays of ints and
+     * grouped at the end, and transactions are added in the order of their first row.
+     * @param result the result of a Cypher query
+     * @param transactionColumn the column of the transaction ids: numbers, nodes or any other values
+     * @param itemColumn the column of the items: numbers or nodes
+     * @throws IllegalArgumentException if the item column contains something else than items
+     */
+    public void loadPairs(Result result, String transactionColumn, String itemColumn) {
+        // the index of each transaction, by numeric id, or by value for other ids
+        LongIntOpenHashMap numericTransactions = new LongIntOpenHashMap(1024, -1);
+        Map<Object, Integer> otherTransactions = new HashMap<Object, Integer>();
+        int transactionCount = 0;
+
+        // the pairs, as the index of the transaction and the index of the item in the dictionary
+        int[] pairTransactions = new int[1024];
+        int[] pairItems = new int[1024];
+        int pairCount = 0;
+
+        // for each row
+        while (result.hasNext()) {
+            Map<String, Object> row = result.next();
+            Object transaction = row.get(transactionColumn);
+            Object item = row.get(itemColumn);
+            if (transaction == null || item == null) {
+                continue;
+            }
+            // get the index of the transaction, giving the next index to a new transaction
+            int index;
+            if (transaction instanceof Number || transaction instanceof Node) {
+                long id = toLong(transaction);
+                index = numericTransactions.get(id);
+                if (index < 0) {
+                    index = transactionCount++;
+                    numericTransactions.put(id, index);
+                }
+            } else {
+                Integer known = otherTransactions.get(transaction);
+                if (known == null) {
+                    known = transactionCount++;
+                    otherTransactions.put(transaction, known);
+                }
+                index = known;
+            }
+            if (pairCount == pairItems.length) {
+                pairTransactions = Arrays.copyOf(pairTransactions, pairCount * 2);
+                pairItems = Arrays.copyOf(pairItems, pairCount * 2);
+            }
+            pairTransactions[pairCount] = index;
+            pairItems[pairCount] = dictionary.encode(toLong(item));
+            pairCount++;
+        }
+
+        // group the items by transaction (counting sort)
+        int[] starts = new int[transactionCount + 1];
+        for (int k = 0; k < pairCount; k++) {
+            starts[pairTransactions[k] + 1]++;
+        }
+        for (int t = 0; t < transactionCount; t++) {
+            starts[t + 1] += starts[t];
+        }
+        int[] positions = Arrays.copyOf(starts, transactionCount);
+        int[] groupedItems = new int[pairCount];
+        for (int k = 0; k < pairCount; k++) {
+            groupedItems[positions[pairTransactions[k]]++] = pairItems[k];
+        }
+        // add the transactions to the list of all transactions in this database.
+        for (int t = 0; t < transactionCount; t++) {
+            transactions.add(groupedItems, starts[t], starts[t + 1] - starts[t]);
+        }
+    }
 
+    /**
+     * Convert a value of a Cypher result into an item.
+     * @param value a number, a node, or the text of a number
+     * @return the item.
+     * @throws IllegalArgumentException if the value is not an item
+     */
+    private static long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Node) {
+            return ((Node) value).getId();
+        }
+        if (value instanceof String) {
+            return Long.parseLong(((String) value).trim());
         }
+        throw new IllegalArgumentException("Not an item: " + value);
     }
 
     /**
@@ -82,8 +238,6 @@ public class TransactionDatabase {
                     addTransaction(thisLine.split(del));
                 }
             }
-
-            itemsArray = items.toArray();
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
@@ -93,50 +247,49 @@ public class TransactionDatabase {
         }
     }
 
+    /**
+     * Method to load a file containing a transaction database into memory, parsing it with several
+     * threads. Items may be separated by commas, spaces, tabs or semicolons.
+     * @param path the path of the file
+     * @param threads the number of threads
+     * @throws IOException exception if error reading the file, or if it contains something else than items
+     */
+    public void loadFileParallel(String path, int threads) throws IOException {
+        new ParallelTextLoader(path, threads).loadInto(this);
+    }
+
     /**
      * This method process a line from a file that is read.
      * @param itemsString the items contained in this line
      */
     private void addTransaction(String itemsString[]) {
-        // create an empty transaction
-        List<Integer> itemset = new ArrayList<Integer>();
-        Integer index = 0;
-
         // for each item in this line
         for (String attribute : itemsString) {
-            // convert from string to int
-            Long item = Long.parseLong(attribute.trim());
-
-            // add item to the set of all items in this database
-            items.add(item);
-
-            // add the index of item in items(LinkedHashSet) to current transaction
-            index = findItemIndex(item);
-            itemset.add(index);
+            // convert from string to long
+            addItem(Long.parseLong(attribute.trim()));
         }
-        // add the transactions to the list of all transactions in this database.
-        transactions.add(itemset);
+        endTransaction();
     }
 
     /**
-     * This method searches an item in items and return its location if found.
-     * @param item the item to find
+     * Add an item to the transaction being added.
+     * @param item the item
      */
-    private Integer findItemIndex(Long item){
-
-        if(items == null || items.size() == 0)
-            return -1;
-
-        // Iterator it = items.iterator();
-        Integer  index = 0;
-
-        for(Long i:items){
-            if(i.equals(item))
-                return index;
-            index++;
+    private void addItem(long item) {
+        if (transactionLength == transactionBuffer.length) {
+            transactionBuffer = Arrays.copyOf(transactionBuffer, transactionLength * 2);
         }
+        // add the item to the dictionary of this database (if new),
+        // and add its index in the dictionary to the current transaction
+        transactionBuffer[transactionLength++] = dictionary.encode(item);
+    }
 
-        return -1;      // not found
+    /**
+     * Add the transaction being added to the list of all transactions in this database, and start a new one.
+     */
+    private void endTransaction() {
+        transactions.add(transactionBuffer, transactionLength);
+        transactionLength = 0;
     }
 
     /**
@@ -145,26 +298,26 @@ public class TransactionDatabase {
     public void printDatabase() {
         System.out
                 .println("===================  TRANSACTION DATABASE ===================");
-        int count = 0;
         // for each transaction
-        for (List<Integer> itemset : transactions) { // pour chaque objet
-            System.out.print("0" + count + ":  ");
-            print(itemset); // print the transaction
+        TransactionIterator it = transactions.iterator();
+        while (it.next()) { // pour chaque objet
+            System.out.print("0" + it.getTid() + ":  ");
+            print(it.getItems(), it.getLength()); // print the transaction
             System.out.println("");
-            count++;
         }
     }
 
     /**
      * Method to print a transaction to System.out.
      * @param itemset a transaction
+     * @param length the number of items of the transaction
      */
-    private void print(List<Integer> itemset){
+    private void print(int[] itemset, int length){
         StringBuffer r = new StringBuffer();
         // for each item in this transaction
-        for (Integer item : itemset) {
+        for (int k = 0; k < length; k++) {
             // append the item to the stringbuffer
-            r.append(item.toString());
+            r.append(itemset[k]);
             r.append(' ');
         }
         System.out.println(r); // print to System.out
@@ -183,33 +336,43 @@ public class TransactionDatabase {
      * @return the number of transactions.
      */
     public int itemSize() {
-        return items.size();
+        return dictionary.size();
     }
 
     /**
-     * Get the list of transactions in this database
-     * @return A list of transactions (a transaction is a list of Integer).
+     * Get the transactions in this database
+     * @return The store of transactions (a transaction is a list of indexes in the dictionary).
      */
-    public List<List<Integer>> getTransactions() {
+    public TransactionStore getTransactions() {
         return transactions;
     }
 
     /**
-     * Get the set of items contained in this database.
-     * @return The set of items.
+     * Trim the storage of the transactions to their size once loading is complete.
+     * No transaction can be added afterwards.
+     * @param offHeap if true, the transactions are moved outside of the Java heap.
+     */
+    public void compact(boolean offHeap) {
+        transactions.compact(offHeap);
+    }
+
+    /**
+     * Get the dictionary of items contained in this database.
+     * @return The dictionary of items.
      */
-    public Set<Long> getItems() {
-        return items;
+    public ItemDictionary getDictionary() {
+        return dictionary;
     }
 
     /**
-     * Get the set of items contained in this database.
-     * @return The set of items.
+     * Get the item at a given index of the dictionary of this database.
+     * @param pos the index of the item
+     * @return The item, or -1 if there is no item at this index.
      */
     public Long getItemAt(Integer pos) {
-        if(items == null || items.size() ==0 || pos < 0)
+        if(pos == null || !dictionary.contains(pos))
             return -1L;
 
-        return (Long)itemsArray[pos];
+        return dictionary.itemAt(pos);
     }
 }
@@ -0,0 +1,90 @@
+package com.mypackage.input;
+
+import java.nio.IntBuffer;
+
+/**
+ * An iterator over a range of transactions of a TransactionStore. The items of the current transaction
+ * are copied into a buffer owned by the iterator, which is reused for every transaction, so that
+ * iterating allocates nothing. An iterator must not be shared between threads.
+ *
+ * Usage:
+ * <pre>
+ * TransactionIterator it = store.iterator();
+ * while (it.next()) {
+ *     int[] items = it.getItems();
+ *     for (int k = 0; k < it.getLength(); k++) { ... items[k] ... }
+ * }
+ * </pre>
+ *
+ * @author JY, LX
+ */
+public class TransactionIterator {
+    // a view of the items of the store, whose position is moved by this iterator
+    private final IntBuffer items;
+    // the offsets of the transactions in the items
+    private final IntBuffer offsets;
+    // the transaction after the last one
+    private final int to;
+    // the current transaction id
+    private int tid;
+    // the items of the current transaction, and their number
+    private final int[] buffer;
+    private int length;
+
+    /**
+     * Constructor.
+     * @param items a view of the items of the store, owned by this iterator
+     * @param offsets the offsets of the transactions in the items
+     * @param from the first transaction
+     * @param to the transaction after the last one
+     * @param maxLength the number of items of the longest transaction
+     */
+    TransactionIterator(IntBuffer items, IntBuffer offsets, int from, int to, int maxLength) {
+        this.items = items;
+        this.offsets = offsets;
+        this.to = to;
+        this.tid = from - 1;
+        this.buffer = new int[maxLength];
+    }
+
+    /**
+     * Move to the next transaction.
+     * @return true if there is a next transaction, false if the end of the range is reached.
+     */
+    public boolean next() {
+        if (tid + 1 >= to) {
+            return false;
+        }
+        tid++;
+        int start = offsets.get(tid);
+        length = offsets.get(tid + 1) - start;
+        items.position(start);
+        items.get(buffer, 0, length);
+        return true;
+    }
+
+    /**
+     * Get the id of the current transaction.
+     * @return the transaction id.
+     */
+    public int getTid() {
+        return tid;
+    }
+
+    /**
+     * Get the items of the current transaction. Only the first getLength() values are valid,
+     * and they are overwritten by the next call to next().
+     * @return the items.
+     */
+    public int[] getItems() {
+        return buffer;
+    }
+
+    /**
+     * Get the number of items of the current transaction.
+     * @return the number of items.
+     */
+    public int getLength() {
+        return length;
+    }
+}
@@ -0,0 +1,227 @@
+package com.mypackage.input;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * A compact store of transactions, in compressed sparse row (CSR) layout: the items of all
+ * transactions are stored one after the other in one buffer of ints, and a second buffer holds
+ * the offset of each transaction in the first one. The items of the transaction t are at the
+ * positions offsets[t] .. offsets[t + 1] - 1.
+ *
+ * This takes 4 bytes per item occurrence and 4 bytes per transaction, instead of a boxed Integer
+ * and a reference per occurrence and a list per transaction. The buffers are on the Java heap while
+ * transactions are added, and can be moved off-heap into direct buffers once the store is complete.
+ *
+ * @author JY, LX
+ */
+public class TransactionStore {
+    // the items of all transactions
+    private IntBuffer items;
+    // the offset of each transaction in the items, followed by the number of items
+    private IntBuffer offsets;
+    // the number of transactions
+    private int size;
+    // the number of items of the longest transaction
+    private int maxLength;
+    // the arrays behind the buffers while transactions can be added, null once the store is read-only
+    private int[] itemArray;
+    private int[] offsetArray;
+
+    /**
+     * Constructor of an empty store on the heap.
+     */
+    public TransactionStore() {
+        this(1024, 16 * 1024);
+    }
+
+    /**
+     * Constructor of an empty store on the heap.
+     * @param expectedSize the number of transactions expected, used to size the store.
+     * @param expectedOccurrences the number of item occurrences expected, used to size the store.
+     */
+    public TransactionStore(int expectedSize, int expectedOccurrences) {
+        itemArray = new int[Math.max(expectedOccurrences, 16)];
+        offsetArray = new int[Math.max(expectedSize, 16) + 1];
+        items = IntBuffer.wrap(itemArray);
+        offsets = IntBuffer.wrap(offsetArray);
+    }
+
+    /**
+     * Constructor of a read-only store over existing buffers, e.g. mapped from a file.
+     * @param items the items of all transactions
+     * @param offsets the offset of each transaction in the items, followed by the number of items
+     */
+    public TransactionStore(IntBuffer items, IntBuffer offsets) {
+        this.items = items;
+        this.offsets = offsets;
+        this.size = offsets.limit() - 1;
+        for (int t = 0; t < size; t++) {
+            maxLength = Math.max(maxLength, offsets.get(t + 1) - offsets.get(t));
+        }
+    }
+
+    /**
+     * Add a transaction at the end of this store.
+     * @param transaction the items of the transaction
+     * @param length the number of items
+     * @throws IllegalStateException if the store is read-only.
+     */
+    public void add(int[] transaction, int length) {
+        add(transaction, 0, length);
+    }
+
+    /**
+     * Add a transaction at the end of this store.
+     * @param transaction an array holding the items of the transaction
+     * @param from the position of the first item in the array
+     * @param length the number of items
+     * @throws IllegalStateException if the store is read-only.
+     */
+    public void add(int[] transaction, int from, int length) {
+        if (itemArray == null) {
+            throw new IllegalStateException("Transactions cannot be added to a read-only store");
+        }
+        int start = offsetArray[size];
+        if ((long) start + length > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many item occurrences for one store: " + ((long) start + length));
+        }
+        // grow the arrays if needed
+        if (start + length > itemArray.length) {
+            itemArray = Arrays.copyOf(itemArray,
+                    (int) Math.min(Integer.MAX_VALUE - 8, Math.max((long) itemArray.length * 3 / 2, start + length)));
+            items = IntBuffer.wrap(itemArray);
+        }
+        if (size + 2 > offsetArray.length) {
+            offsetArray = Arrays.copyOf(offsetArray, offsetArray.length * 3 / 2 + 2);
+            offsets = IntBuffer.wrap(offsetArray);
+        }
+        System.arraycopy(transaction, from, itemArray, start, length);
+        size++;
+        offsetArray[size] = start + length;
+        maxLength = Math.max(maxLength, length);
+    }
+
+    /**
+     * Trim the buffers to the transactions stored, and make this store read-only.
+     * @param offHeap if true, the transactions are moved into direct buffers, outside of the Java heap.
+     * @throws IllegalStateException if the transactions are moved off-heap but do not fit in direct buffers,
+     *                               in which case the store is left unchanged.
+     */
+    public void compact(boolean offHeap) {
+        int occurrences = getOccurrenceCount();
+        if (offHeap) {
+            directBytes(occurrences, "item occurrences");
+            directBytes(size + 1, "transactions");
+        }
+        items = copyOf(items, occurrences, offHeap);
+        offsets = copyOf(offsets, size + 1, offHeap);
+        itemArray = null;
+        offsetArray = null;
+    }
+
+    /**
+     * Copy the first values of a buffer into a new buffer of their exact size.
+     * @param buffer the buffer
+     * @param length the number of values
+     * @param direct if true, the new buffer is allocated outside of the Java heap
+     * @return the new buffer.
+     */
+    private static IntBuffer copyOf(IntBuffer buffer, int length, boolean direct) {
+        IntBuffer copy = direct
+                ? ByteBuffer.allocateDirect(directBytes(length, "values")).order(ByteOrder.nativeOrder()).asIntBuffer()
+                : IntBuffer.allocate(length);
+        IntBuffer source = buffer.duplicate();
+        source.position(0).limit(length);
+        copy.put(source);
+        copy.flip();
+        return copy;
+    }
+
+    /**
+     * Get the size of a direct buffer of ints, which is indexed by an int of bytes.
+     * @param length the number of values
+     * @param values what the values are, for the error message
+     * @return the number of bytes.
+     * @throws IllegalStateException if the values do not fit in one direct buffer.
+     */
+    static int directBytes(int length, String values) {
+        long bytes = 4L * length;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many " + values + " for off-heap storage: " + length
+                    + ", at most " + Integer.MAX_VALUE / 4 + " fit in a direct buffer");
+        }
+        return (int) bytes;
+    }
+
+    /**
+     * Get the number of transactions.
+     * @return the number of transactions.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the number of item occurrences of all transactions.
+     * @return the number of item occurrences.
+     */
+    public int getOccurrenceCount() {
+        return offsets.get(size);
+    }
+
+    /**
+     * Get the number of items of the longest transaction.
+     * @return the number of items.
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Get the number of items of a transaction.
+     * @param tid the transaction id
+     * @return the number of items.
+     */
+    public int getLength(int tid) {
+        return offsets.get(tid + 1) - offsets.get(tid);
+    }
+
+    /**
+     * Get an item of a transaction.
+     * @param tid the transaction id
+     * @param k the position of the item in the transaction
+     * @return the item.
+     */
+    public int get(int tid, int k) {
+        return items.get(offsets.get(tid) + k);
+    }
+
+    /**
+     * Estimate the memory used by this store.
+     * @return the number of bytes.
+     */
+    public long estimateBytes() {
+        return 4L * (items.capacity() + offsets.capacity());
+    }
+
+    /**
+     * Get an iterator over all transactions.
+     * @return the iterator.
+     */
+    public TransactionIterator iterator() {
+        return iterator(0, size);
+    }
+
+    /**
+     * Get an iterator over a range of transactions.
+     * @param from the first transaction
+     * @param to the transaction after the last one
+     * @return the iterator.
+     */
+    public TransactionIterator iterator(int from, int to) {
+        return new TransactionIterator(items.duplicate(), offsets, from, to, maxLength);
+    }
+}
@@ -0,0 +1,222 @@
+package com.mypackage.miner;
+
+import java.util.Arrays;
+
+import com.mypackage.datastructures.fptree.FPTree;
+import com.mypackage.input.RecodedDatabase;
+import com.mypackage.input.TransactionIterator;
+
+/**
+ * FP-Growth, from Han, J., Pei, J. and Yin, Y. (2000). "Mining frequent patterns without candidate
+ * generation". Proceedings of the 2000 ACM SIGMOD: 1–12.
+ *
+ * The transactions are compressed into an FP-tree, where transactions sharing their most frequent items
+ * share a path. For each item of a tree, the paths from its nodes to the root form its conditional pattern
+ * base, which is compressed again into a conditional FP-tree of its frequent items, and mined recursively.
+ * A tree made of a single path gives all combinations of its items directly.
+ *
+ * Items keep their codes (by increasing support) in every tree, so the itemsets grow by items of higher
+ * code, and are saved as a prefix of increasing codes followed by their last item, like ECLAT's.
+ */
+public class FPGrowthMiner implements FrequentItemsetMiner {
+    // the largest number of items of an itemset, or 0 if unlimited
+    private final int maxLength;
+    // the support of each item in the conditional pattern base being counted, by code (0 when not counting)
+    private int[] baseSupports;
+    // the local index of each item in the conditional tree being built, by code (-1 when not building)
+    private int[] localItems;
+    // the items of a conditional pattern base, and a path being inserted
+    private int[] baseItems;
+    private int[] path;
+
+    /**
+     * Constructor.
+     * @param maxLength the largest number of items of an itemset, or 0 if unlimited
+     */
+    public FPGrowthMiner(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    /* (non-Javadoc)
+     * @see com.mypackage.miner.FrequentItemsetMiner#mine(com.mypackage.input.RecodedDatabase, com.mypackage.miner.ItemsetSink)
+     */
+    public void mine(RecodedDatabase recoded, ItemsetSink sink) throws Exception {
+        int itemCount = recoded.getItemCount();
+        if (itemCount == 0 || maxLength == 1) {
+            return;
+        }
+        baseSupports = new int[itemCount];
+        localItems = new int[itemCount];
+        Arrays.fill(localItems, -1);
+        baseItems = new int[itemCount];
+        path = new int[itemCount];
+
+        // the transactions are sorted arrays of codes: local items and codes are the same in the first tree
+        int[] items = new int[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            items[i] = i;
+        }
+        FPTree tree = new FPTree(items, (int) Math.min(recoded.size() * 4L, 1 << 20));
+        TransactionIterator it = recoded.getTransactions().iterator();
+        while (it.next()) {
+            if (it.getLength() > 0) {
+                tree.addPath(it.getItems(), it.getLength(), 1);
+            }
+        }
+
+        mineTree(tree, new int[0], sink);
+    }
+
+    /**
+     * Find the frequent itemsets of a (conditional) FP-tree.
+     * @param tree the tree
+     * @param prefix the codes of the itemset whose conditional tree this is (empty for the first tree)
+     * @param sink receives the itemsets
+     */
+    private void mineTree(FPTree tree, int[] prefix, ItemsetSink sink) throws Exception {
+        if (tree.isSinglePath()) {
+            mineSinglePath(tree, prefix, sink);
+            return;
+        }
+        // the most frequent items first, so that top-K mining raises the minimum support early
+        for (int item = tree.getItemCount() - 1; item >= 0; item--) {
+            int support = tree.getSupport(item);
+            if (support < sink.getMinSupport()) {
+                continue;
+            }
+            // the single items are saved by the caller
+            if (prefix.length > 0) {
+                sink.save(prefix, tree.getItem(item), support);
+            }
+            if (maxLength > 0 && prefix.length + 1 >= maxLength) {
+                continue;
+            }
+            FPTree conditional = buildConditionalTree(tree, item, sink.getMinSupport());
+            if (conditional != null) {
+                mineTree(conditional, append(prefix, tree.getItem(item)), sink);
+            }
+        }
+    }
+
+    /**
+     * Find the frequent itemsets of an FP-tree made of a single path: any combination of the items
+     * of the path, whose support is the count of its deepest node.
+     * @param tree the tree
+     * @param prefix the codes of the itemset whose conditional tree this is
+     * @param sink receives the itemsets
+     */
+    private void mineSinglePath(FPTree tree, int[] prefix, ItemsetSink sink) throws Exception {
+        // the nodes of the path, from the deepest one: the codes increase and the counts do not decrease
+        int length = 0;
+        for (int node = tree.getChild(FPTree.ROOT); node != FPTree.NONE; node = tree.getChild(node)) {
+            length++;
+        }
+        int[] codes = new int[length];
+        int[] counts = new int[length];
+        int k = length;
+        for (int node = tree.getChild(FPTree.ROOT); node != FPTree.NONE; node = tree.getChild(node)) {
+            k--;
+            codes[k] = tree.getItem(tree.getNodeItem(node));
+            counts[k] = tree.getCount(node);
+        }
+        saveCombinations(prefix, -1, codes, counts, 0, sink);
+    }
+
+    /**
+     * Save the itemsets made of an itemset and of a combination of the items of a single path.
+     * @param itemset the codes of the itemset
+     * @param support its support, or -1 if no item of the path was added to it yet
+     * @param codes the items of the path, from the deepest one
+     * @param counts the count of each node of the path
+     * @param from the first item of the path which may be added
+     * @param sink receives the itemsets
+     */
+    private void saveCombinations(int[] itemset, int support, int[] codes, int[] counts, int from,
+                                  ItemsetSink sink) throws Exception {
+        for (int k = from; k < codes.length; k++) {
+            // the deepest item of a combination gives its support
+            int supportK = (support < 0) ? counts[k] : support;
+            if (supportK < sink.getMinSupport()) {
+                continue;
+            }
+            if (itemset.length > 0) {
+                sink.save(itemset, codes[k], supportK);
+            }
+            if (maxLength == 0 || itemset.length + 1 < maxLength) {
+                saveCombinations(append(itemset, codes[k]), supportK, codes, counts, k + 1, sink);
+            }
+        }
+    }
+
+    /**
+     * Build the conditional FP-tree of an item: the paths from its nodes to the root, restricted to
+     * the items which are frequent in them.
+     * @param tree the tree
+     * @param item the local item
+     * @param minSupport the minimum support
+     * @return the conditional tree, or null if no item is frequent with the item.
+     */
+    private FPTree buildConditionalTree(FPTree tree, int item, int minSupport) {
+        // (1) count the support of each item of the conditional pattern base
+        int baseCount = 0;
+        for (int node = tree.getHead(item); node != FPTree.NONE; node = tree.getNext(node)) {
+            int count = tree.getCount(node);
+            for (int parent = tree.getParent(node); parent != FPTree.ROOT; parent = tree.getParent(parent)) {
+                int code = tree.getItem(tree.getNodeItem(parent));
+                if (baseSupports[code] == 0) {
+                    baseItems[baseCount++] = code;
+                }
+                baseSupports[code] += count;
+            }
+        }
+
+        // (2) the frequent items become the local items of the conditional tree, in the order of their codes
+        int frequentCount = 0;
+        for (int k = 0; k < baseCount; k++) {
+            int code = baseItems[k];
+            if (baseSupports[code] >= minSupport) {
+                baseItems[frequentCount++] = code;
+            }
+            baseSupports[code] = 0;
+        }
+        if (frequentCount == 0) {
+            return null;
+        }
+        int[] items = Arrays.copyOf(baseItems, frequentCount);
+        Arrays.sort(items);
+        for (int k = 0; k < items.length; k++) {
+            localItems[items[k]] = k;
+        }
+
+        // (3) insert the paths, restricted to the frequent items. Going up, the codes increase.
+        FPTree conditional = new FPTree(items, 64);
+        for (int node = tree.getHead(item); node != FPTree.NONE; node = tree.getNext(node)) {
+            int length = 0;
+            for (int parent = tree.getParent(node); parent != FPTree.ROOT; parent = tree.getParent(parent)) {
+                int local = localItems[tree.getItem(tree.getNodeItem(parent))];
+                if (local >= 0) {
+                    path[length++] = local;
+                }
+            }
+            if (length > 0) {
+                conditional.addPath(path, length, tree.getCount(node));
+            }
+        }
+        for (int code : items) {
+            localItems[code] = -1;
+        }
+        return conditional;
+    }
+
+    /**
+     * Create a new itemset from an itemset and one more item.
+     * @param itemset the codes of the itemset
+     * @param item the code of the item
+     * @return the new itemset.
+     */
+    private static int[] append(int[] itemset, int item) {
+        int[] result = Arrays.copyOf(itemset, itemset.length + 1);
+        result[itemset.length] = item;
+        return result;
+    }
+}
@@ -0,0 +1,16 @@
+package com.mypackage.miner;
+
+import com.mypackage.input.RecodedDatabase;
+
+/**
+ * An algorithm finding the frequent itemsets of a recoded database. The frequent single items are known
+ * from the recoding, so they are saved by the caller: a miner only saves the itemsets of 2 items or more.
+ */
+public interface FrequentItemsetMiner {
+    /**
+     * Find the frequent itemsets of 2 items or more.
+     * @param recoded the transactions restricted to their frequent items
+     * @param sink receives the itemsets, and gives the minimum support
+     */
+    public abstract void mine(RecodedDatabase recoded, ItemsetSink sink) throws Exception;
+}
@@ -0,0 +1,21 @@
+package com.mypackage.miner;
+
+/**
+ * Receives the frequent itemsets found by a FrequentItemsetMiner, and gives it the minimum support,
+ * which may rise during the search (e.g. for top-K mining).
+ */
+public interface ItemsetSink {
+    /**
+     * Save an itemset.
+     * @param prefix the codes of the first items of the itemset, increasing
+     * @param item the code of its last item, higher than those of the prefix
+     * @param support the support of the itemset
+     */
+    public abstract void save(int[] prefix, int item, int support) throws Exception;
+
+    /**
+     * Get the current minimum support: itemsets with a lower support are not saved, nor searched.
+     * @return the minimum support, as a number of transactions.
+     */
+    public abstract int getMinSupport();
+}
@@ -0,0 +1,43 @@
+package com.mypackage.miner;
+
+/**
+ * The algorithms finding the frequent itemsets. ECLAT intersects the tidsets of the items; FP-Growth
+ * compresses the transactions into a prefix tree, which is usually faster on very dense data.
+ */
+public enum MinerMode {
+    /** ECLAT (or dEclat), run by the procedure itself */
+    ECLAT {
+        public FrequentItemsetMiner newMiner(int maxLength) {
+            return null;
+        }
+    },
+    /** FP-Growth, on an array-based FP-tree */
+    FPGROWTH {
+        public FrequentItemsetMiner newMiner(int maxLength) {
+            return new FPGrowthMiner(maxLength);
+        }
+    };
+
+    /**
+     * Create the miner of this mode.
+     * @param maxLength the largest number of items of an itemset, or 0 if unlimited
+     * @return the miner, or null if the itemsets are mined by the procedure itself.
+     */
+    public abstract FrequentItemsetMiner newMiner(int maxLength);
+
+    /**
+     * Get the mode of a given name, ignoring case and dashes.
+     * @param name the name of the mode, e.g. 'eclat' or 'fpgrowth'
+     * @return the mode.
+     * @throws IllegalArgumentException if no mode has this name.
+     */
+    public static MinerMode fromName(String name) {
+        String key = name.trim().replace("-", "");
+        for (MinerMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(key)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown algorithm: " + name);
+    }
+}
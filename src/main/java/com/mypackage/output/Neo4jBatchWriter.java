@@ -0,0 +1,276 @@
+package com.mypackage.output;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+
+/**
+ * Writes itemsets into Neo4j as ARItem nodes connected by ASSOCIATES_WITH relationships.
+ *
+ * Itemsets are accumulated as parameter maps and written in batches, by one parameterized statement
+ * per batch (UNWIND $rows AS result ...), so the statement is planned only once. Batches are executed
+ * in order by a dedicated thread, in transactions committed every commitSize rows; the caller goes on
+ * mining while the previous batch is written.
+ *
+ * The Cypher of an itemset matches the node of its prefix, so an itemset must be written after its prefix.
+ * Rows are therefore buffered by itemset size, and the buffers of smaller itemsets are always flushed first.
+ *
+ * @author JY, LX
+ */
+public class Neo4jBatchWriter {
+
+    /** Cypher used to create rules, run for each row of a batch */
+    public static final String CYPHER_TEMPLATE =
+            "WITH apoc.coll.sort(result.itemSet) AS itemSet, result.item AS item, result.support AS support\n" +
+            "MATCH (t) WHERE id(t) = item\n" +
+            "MERGE (ar:ARItem{id:[item]})\n" +
+            "  ON CREATE SET ar.title = t.name, ar.support = support\n" +
+            "WITH item, itemSet, support, ar, apoc.coll.sort(itemSet+item) AS itemSetSorted\n" +
+            "WHERE size(itemSet) > 0\n" +
+            "MATCH (ar2:ARItem{id:itemSet})\n" +
+            "MERGE (ar3:ARItem{id:itemSetSorted})\n" +
+            "  ON CREATE SET ar3.support = support\n" +
+            "MERGE (ar) -[r1:ASSOCIATES_WITH]-> (ar3)\n" +
+            "  ON CREATE SET r1.confidence = toFloat(ar3.support) / ar.support, r1.assocItemIds = itemSet, r1.level = size(itemSet) + 1\n" +
+            "MERGE (ar2) -[r2:ASSOCIATES_WITH]-> (ar3)\n" +
+            "  ON CREATE SET r2.confidence = toFloat(ar3.support) / ar2.support, r2.assocItemIds = [item], r2.level = size(itemSet) + 1\n" +
+            "RETURN count(*) AS count";
+
+    /** The statement executed for each batch */
+    public static final String CYPHER_BATCH = "UNWIND $rows AS result\n" + CYPHER_TEMPLATE;
+
+    // the database
+    private final GraphDatabaseService db;
+    // the number of rows per statement
+    private final int batchSize;
+    // the number of rows per transaction
+    private final int commitSize;
+    // if not null, statements are written to this log instead of being executed (debugging ONLY)
+    private final BufferedWriter queryLogWriter;
+
+    // the rows waiting to be written, by itemset size - 1
+    private final List<List<Map<String, Object>>> levels = new ArrayList<List<Map<String, Object>>>();
+
+    // the thread executing the batches, and the batch being executed
+    private final ExecutorService executor;
+    private Future<?> pending = null;
+
+    // accessed by the writing thread only: the open transaction, and the number of rows written in it
+    private Transaction transaction = null;
+    private int rowsInTransaction = 0;
+
+    // statistics
+    private volatile long databaseTime = 0L;
+    private volatile long rowCount = 0L;
+
+    /**
+     * Constructor.
+     * @param db the database
+     * @param batchSize the number of rows per statement
+     * @param commitSize the number of rows per transaction
+     * @param queryLogWriter if not null, statements are written to this log instead of being executed.
+     */
+    public Neo4jBatchWriter(GraphDatabaseService db, int batchSize, int commitSize, BufferedWriter queryLogWriter) {
+        this.db = db;
+        this.batchSize = Math.max(batchSize, 1);
+        this.commitSize = Math.max(commitSize, this.batchSize);
+        this.queryLogWriter = queryLogWriter;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "assocrule-neo4j-writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Add an itemset to be written.
+     * @param itemSet the prefix of the itemset (empty for a single item)
+     * @param item the last item of the itemset
+     * @param support the support of the itemset
+     */
+    public void add(List<Long> itemSet, long item, int support) throws Exception {
+        Map<String, Object> row = new HashMap<String, Object>(4);
+        row.put("itemSet", itemSet);
+        row.put("item", item);
+        row.put("support", (long) support);
+
+        int level = itemSet.size();
+        while (levels.size() <= level) {
+            levels.add(new ArrayList<Map<String, Object>>(batchSize));
+        }
+        List<Map<String, Object>> rows = levels.get(level);
+        rows.add(row);
+
+        if (rows.size() >= batchSize) {
+            // the prefixes of these itemsets may still be buffered: write them first
+            for (int i = 0; i <= level; i++) {
+                flush(i);
+            }
+        }
+    }
+
+    /**
+     * Write all buffered rows, wait until they are written and commit the transaction.
+     */
+    public void close() throws Exception {
+        try {
+            for (int i = 0; i < levels.size(); i++) {
+                flush(i);
+            }
+            submit(new Runnable() {
+                @Override
+                public void run() {
+                    commit();
+                }
+            });
+            waitPending();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Discard the buffered rows and roll back the open transaction.
+     */
+    public void abort() {
+        for (List<Map<String, Object>> rows : levels) {
+            rows.clear();
+        }
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (transaction != null) {
+                    transaction.failure();
+                    transaction.close();
+                    transaction = null;
+                }
+            }
+        });
+        executor.shutdown();
+    }
+
+    /**
+     * Get the time spent executing statements.
+     * @return the time in milliseconds.
+     */
+    public long getDatabaseTime() {
+        return databaseTime;
+    }
+
+    /**
+     * Get the number of rows written.
+     * @return the number of rows.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Send the buffered rows of a level to the writing thread.
+     * @param level the itemset size - 1
+     */
+    private void flush(int level) throws Exception {
+        List<Map<String, Object>> rows = levels.get(level);
+        if (rows.isEmpty()) {
+            return;
+        }
+        levels.set(level, new ArrayList<Map<String, Object>>(batchSize));
+
+        final Map<String, Object> parameters = Collections.<String, Object>singletonMap("rows", rows);
+        final int size = rows.size();
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                write(parameters, size);
+            }
+        });
+    }
+
+    /**
+     * Execute a task in the writing thread, after the previous task has completed.
+     * @param task the task
+     */
+    private void submit(Runnable task) throws Exception {
+        waitPending();
+        pending = executor.submit(task);
+    }
+
+    /**
+     * Wait for the previous task, and throw its exception if it failed.
+     */
+    private void waitPending() throws Exception {
+        if (pending != null) {
+            Future<?> previous = pending;
+            pending = null;
+            previous.get();
+        }
+    }
+
+    /**
+     * Writing thread: execute the statement for a batch of rows, and commit every commitSize rows.
+     * @param parameters the rows
+     * @param size the number of rows
+     */
+    private void write(Map<String, Object> parameters, int size) {
+        long currentTime = System.currentTimeMillis();
+        if (queryLogWriter != null) {
+            try {
+                queryLogWriter.write(CYPHER_BATCH);
+                queryLogWriter.newLine();
+                queryLogWriter.write(parameters.toString());
+                queryLogWriter.newLine();
+                queryLogWriter.newLine();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        } else {
+            if (transaction == null) {
+                transaction = db.beginTx();
+            }
+            try {
+                Result result = db.execute(CYPHER_BATCH, parameters);
+                result.close();
+            } catch (RuntimeException e) {
+                transaction.failure();
+                transaction.close();
+                transaction = null;
+                throw e;
+            }
+            rowsInTransaction += size;
+            if (rowsInTransaction >= commitSize) {
+                commit();
+            }
+        }
+        rowCount += size;
+        databaseTime += (System.currentTimeMillis() - currentTime);
+    }
+
+    /**
+     * Writing thread: commit the open transaction, if any.
+     */
+    private void commit() {
+        if (transaction != null) {
+            long currentTime = System.currentTimeMillis();
+            transaction.success();
+            transaction.close();
+            transaction = null;
+            rowsInTransaction = 0;
+            databaseTime += (System.currentTimeMillis() - currentTime);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.mypackage.output;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A bounded queue handing over results (itemsets, rules) from a miner thread to the consumer of a procedure's Stream.
+ *
+ * The miner blocks when the queue is full, so results are only produced as fast as they are consumed,
+ * and at most "capacity" results are held in memory. When the consumer closes the stream early
+ * (e.g. because of a LIMIT), the queue is cancelled and the miner is stopped at its next put().
+ *
+ * @author JY, LX
+ */
+public class ResultQueue<T> {
+    // marks the end of the results
+    private static final Object END = new Object();
+
+    // the results, followed by END or by the Throwable that stopped the miner
+    private final BlockingQueue<Object> queue;
+    // set when the consumer closes the stream
+    private volatile boolean cancelled = false;
+
+    /**
+     * Constructor.
+     * @param capacity the maximum number of results waiting to be consumed.
+     */
+    public ResultQueue(int capacity) {
+        queue = new ArrayBlockingQueue<Object>(Math.max(capacity, 1));
+    }
+
+    /**
+     * Miner thread: add a result, waiting while the queue is full.
+     * @param result the result
+     * @throws CancellationException if the consumer has closed the stream.
+     */
+    public void put(T result) throws InterruptedException {
+        offer(result);
+    }
+
+    /**
+     * Miner thread: signal that all results were added.
+     */
+    public void finish() throws InterruptedException {
+        offer(END);
+    }
+
+    /**
+     * Miner thread: signal that mining has failed. The exception is thrown to the consumer.
+     * @param error the cause of the failure
+     */
+    public void fail(Throwable error) {
+        if (!cancelled) {
+            // make room for the error, the remaining results are lost anyway
+            queue.clear();
+            queue.offer(error);
+        }
+    }
+
+    /**
+     * Consumer: stop the miner and discard the results waiting in the queue.
+     */
+    public void cancel() {
+        cancelled = true;
+        queue.clear();
+    }
+
+    /**
+     * Check if the consumer has closed the stream.
+     * @return true if cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Get a lazy stream over the results of this queue. Closing the stream cancels the queue.
+     * @param onClose an action run when the stream is closed (e.g. interrupting the miner)
+     * @return the stream.
+     */
+    public Stream<T> stream(final Runnable onClose) {
+        Iterator<T> iterator = new Iterator<T>() {
+            // the next element taken from the queue, not consumed yet
+            private Object next = null;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = queue.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    }
+                }
+                if (next instanceof Throwable) {
+                    throw new RuntimeException("Mining failed", (Throwable) next);
+                }
+                return next != END;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T result = (T) next;
+                next = null;
+                return result;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(new Runnable() {
+                    @Override
+                    public void run() {
+                        cancel();
+                        onClose.run();
+                    }
+                });
+    }
+
+    /**
+     * Add an element, waiting while the queue is full and checking for cancellation.
+     * @param element the element
+     */
+    private void offer(Object element) throws InterruptedException {
+        while (!queue.offer(element, 100, TimeUnit.MILLISECONDS)) {
+            if (cancelled) {
+                throw new CancellationException("Stream closed by the consumer");
+            }
+        }
+        if (cancelled) {
+            throw new CancellationException("Stream closed by the consumer");
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.mypackage.results;
+
+import java.util.List;
+
+public class ItemsetChangeResult {
+    public final List<Long> itemSet;
+    public final Long item;
+    public final Long support;
+    public final Long previousSupport;
+
+    public ItemsetChangeResult(List<Long> itemSet, Long item, Long support, Long previousSupport) {
+        this.itemSet = itemSet;
+        this.item = item;
+        this.support = support;
+        this.previousSupport = previousSupport;
+    }
+}
@@ -0,0 +1,15 @@
+package com.mypackage.results;
+
+import java.util.List;
+
+public class ItemsetResult {
+    public final List<Long> itemSet;
+    public final Long item;
+    public final Long support;
+
+    public ItemsetResult(List<Long> itemSet, Long item, Long support) {
+        this.itemSet = itemSet;
+        this.item = item;
+        this.support = support;
+    }
+}
@@ -0,0 +1,24 @@
+package com.mypackage.results;
+
+import java.util.List;
+
+public class RuleResult {
+    public final List<Long> antecedent;
+    public final List<Long> consequent;
+    public final Long support;
+    public final Double confidence;
+    public final Double lift;
+    public final Double leverage;
+    public final Double conviction;
+
+    public RuleResult(List<Long> antecedent, List<Long> consequent, Long support,
+                      Double confidence, Double lift, Double leverage, Double conviction) {
+        this.antecedent = antecedent;
+        this.consequent = consequent;
+        this.support = support;
+        this.confidence = confidence;
+        this.lift = lift;
+        this.leverage = leverage;
+        this.conviction = conviction;
+    }
+}
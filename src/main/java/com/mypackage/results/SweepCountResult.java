@@ -0,0 +1,13 @@
+package com.mypackage.results;
+
+public class SweepCountResult {
+    public final Double minSupportRatio;
+    public final Long minSupport;
+    public final Long itemsets;
+
+    public SweepCountResult(Double minSupportRatio, Long minSupport, Long itemsets) {
+        this.minSupportRatio = minSupportRatio;
+        this.minSupport = minSupport;
+        this.itemsets = itemsets;
+    }
+}
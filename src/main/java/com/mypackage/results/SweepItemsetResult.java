@@ -0,0 +1,17 @@
+package com.mypackage.results;
+
+import java.util.List;
+
+public class SweepItemsetResult {
+    public final List<Long> itemSet;
+    public final Long item;
+    public final Long support;
+    public final Double minSupportRatio;
+
+    public SweepItemsetResult(List<Long> itemSet, Long item, Long support, Double minSupportRatio) {
+        this.itemSet = itemSet;
+        this.item = item;
+        this.support = support;
+        this.minSupportRatio = minSupportRatio;
+    }
+}
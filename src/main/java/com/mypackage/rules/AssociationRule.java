@@ -0,0 +1,83 @@
+package com.mypackage.rules;
+
+/**
+ * An association rule X ==> Y, where X (antecedent) and Y (consequent) are disjoint itemsets,
+ * with its interestingness measures.
+ *
+ * Supports are absolute (numbers of transactions); the measures are computed from relative supports.
+ */
+public class AssociationRule {
+    // the items of X and Y (internal ids)
+    private final int[] antecedent;
+    private final int[] consequent;
+    // the supports of X u Y, of X and of Y
+    private final int support;
+    private final int antecedentSupport;
+    private final int consequentSupport;
+    // the number of transactions of the database
+    private final int transactionCount;
+
+    /**
+     * Constructor.
+     * @param antecedent the items of X
+     * @param consequent the items of Y
+     * @param support the support of X u Y
+     * @param antecedentSupport the support of X
+     * @param consequentSupport the support of Y
+     * @param transactionCount the number of transactions of the database
+     */
+    public AssociationRule(int[] antecedent, int[] consequent, int support,
+                           int antecedentSupport, int consequentSupport, int transactionCount) {
+        this.antecedent = antecedent;
+        this.consequent = consequent;
+        this.support = support;
+        this.antecedentSupport = antecedentSupport;
+        this.consequentSupport = consequentSupport;
+        this.transactionCount = transactionCount;
+    }
+
+    public int[] getAntecedent() {
+        return antecedent;
+    }
+
+    public int[] getConsequent() {
+        return consequent;
+    }
+
+    public int getSupport() {
+        return support;
+    }
+
+    /**
+     * confidence = sup(X u Y) / sup(X), the probability of Y in transactions containing X.
+     */
+    public double getConfidence() {
+        return (double) support / antecedentSupport;
+    }
+
+    /**
+     * lift = confidence / P(Y). Greater than 1 when X and Y appear together more often than if independent.
+     */
+    public double getLift() {
+        return getConfidence() * transactionCount / consequentSupport;
+    }
+
+    /**
+     * leverage = P(X u Y) - P(X) * P(Y), the co-occurrence in excess of independence.
+     */
+    public double getLeverage() {
+        double n = transactionCount;
+        return support / n - (antecedentSupport / n) * (consequentSupport / n);
+    }
+
+    /**
+     * conviction = (1 - P(Y)) / (1 - confidence). Infinite for a rule that always holds.
+     */
+    public double getConviction() {
+        double confidence = getConfidence();
+        if (confidence >= 1d) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return (1d - (double) consequentSupport / transactionCount) / (1d - confidence);
+    }
+}
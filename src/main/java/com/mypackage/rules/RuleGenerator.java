@@ -0,0 +1,178 @@
+package com.mypackage.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mypackage.datastructures.itemset.ItemsetTrie;
+
+/**
+ * Generates the association rules of a set of frequent itemsets held in memory, with the
+ * consequent-growing procedure of Agrawal and Srikant (1994), "Fast algorithms for mining
+ * association rules", VLDB: 487-499.
+ *
+ * For each frequent itemset I, rules X ==> Y with X u Y = I are generated by increasing size of Y.
+ * Moving items from X to Y can only lower the confidence, so a consequent is only extended if its
+ * rule has enough confidence. All supports are looked up in the trie, so the database is not scanned.
+ */
+public class RuleGenerator {
+    // the frequent itemsets and their supports
+    private final ItemsetTrie itemsets;
+    // the number of transactions of the database
+    private final int transactionCount;
+    // the minimum confidence of a rule
+    private final double minConfidence;
+    // the items allowed in consequents, by id (null if all items are allowed)
+    private boolean[] consequentItems = null;
+
+    // the number of rules generated
+    private long ruleCount = 0;
+
+    /**
+     * Constructor.
+     * @param itemsets the frequent itemsets (all subsets of a stored itemset must be stored too)
+     * @param transactionCount the number of transactions of the database
+     * @param minConfidence the minimum confidence of a rule, between 0 and 1
+     */
+    public RuleGenerator(ItemsetTrie itemsets, int transactionCount, double minConfidence) {
+        this.itemsets = itemsets;
+        this.transactionCount = transactionCount;
+        this.minConfidence = minConfidence;
+    }
+
+    /**
+     * Restrict the consequents of the rules to some items. The itemsets must contain the antecedents
+     * of these rules, but not necessarily the other ones.
+     * @param items the ids of the items allowed in consequents
+     */
+    public void setConsequentItems(int[] items) {
+        int size = 0;
+        for (int item : items) {
+            size = Math.max(size, item + 1);
+        }
+        consequentItems = new boolean[size];
+        for (int item : items) {
+            consequentItems[item] = true;
+        }
+    }
+
+    /**
+     * Generate the rules of all itemsets of size 2 or more.
+     * @param sink receives the rules
+     */
+    public void run(RuleSink sink) throws Exception {
+        for (int node = 1; node < itemsets.getNodeCount(); node++) {
+            int support = itemsets.getSupportAt(node);
+            if (support != ItemsetTrie.NO_SUPPORT && itemsets.getDepth(node) >= 2) {
+                generateRules(itemsets.getItemset(node), support, sink);
+            }
+        }
+    }
+
+    /**
+     * Get the number of rules generated.
+     * @return the number of rules.
+     */
+    public long getRuleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * Generate the rules of one itemset.
+     * @param itemset the items, sorted by increasing id
+     * @param support the support of the itemset
+     * @param sink receives the rules
+     */
+    private void generateRules(int[] itemset, int support, RuleSink sink) throws Exception {
+        // (1) consequents of size 1
+        List<int[]> consequents = new ArrayList<int[]>();
+        for (int item : itemset) {
+            if (consequentItems != null && (item >= consequentItems.length || !consequentItems[item])) {
+                continue;
+            }
+            int[] consequent = new int[]{item};
+            if (tryRule(itemset, support, consequent, sink)) {
+                consequents.add(consequent);
+            }
+        }
+
+        // (2) combine the consequents of size m sharing their first m-1 items into consequents
+        // of size m+1, as long as the antecedent is not empty
+        for (int m = 1; m < itemset.length - 1 && consequents.size() > 1; m++) {
+            List<int[]> nextConsequents = new ArrayList<int[]>();
+            for (int i = 0; i < consequents.size(); i++) {
+                int[] consequentI = consequents.get(i);
+                for (int j = i + 1; j < consequents.size(); j++) {
+                    int[] consequentJ = consequents.get(j);
+                    if (!samePrefix(consequentI, consequentJ, m - 1)) {
+                        // consequents are sorted: no further J shares the prefix of I
+                        break;
+                    }
+                    int[] consequent = new int[m + 1];
+                    System.arraycopy(consequentI, 0, consequent, 0, m);
+                    consequent[m] = consequentJ[m - 1];
+                    if (tryRule(itemset, support, consequent, sink)) {
+                        nextConsequents.add(consequent);
+                    }
+                }
+            }
+            consequents = nextConsequents;
+        }
+    }
+
+    /**
+     * Save the rule (itemset - consequent) ==> consequent if it has enough confidence.
+     * @param itemset the items of the rule, sorted by increasing id
+     * @param support the support of the itemset
+     * @param consequent the items of the consequent, sorted by increasing id
+     * @param sink receives the rule
+     * @return true if the rule has enough confidence.
+     */
+    private boolean tryRule(int[] itemset, int support, int[] consequent, RuleSink sink) throws Exception {
+        int[] antecedent = minus(itemset, consequent);
+        int antecedentSupport = itemsets.getSupport(antecedent);
+        if (antecedentSupport <= 0 || (double) support / antecedentSupport < minConfidence) {
+            return false;
+        }
+        int consequentSupport = itemsets.getSupport(consequent);
+        sink.save(new AssociationRule(antecedent, consequent, support,
+                antecedentSupport, consequentSupport, transactionCount));
+        ruleCount++;
+        return true;
+    }
+
+    /**
+     * Check if two sorted itemsets have the same first items.
+     * @param a an itemset
+     * @param b an itemset
+     * @param length the number of items to compare
+     * @return true if the first items are equal.
+     */
+    private static boolean samePrefix(int[] a, int[] b, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove the items of a sorted itemset from another sorted itemset.
+     * @param itemset the itemset
+     * @param removed the items to remove, all contained in itemset
+     * @return the remaining items, sorted.
+     */
+    private static int[] minus(int[] itemset, int[] removed) {
+        int[] result = new int[itemset.length - removed.length];
+        int r = 0;
+        int k = 0;
+        for (int item : itemset) {
+            if (r < removed.length && removed[r] == item) {
+                r++;
+            } else {
+                result[k++] = item;
+            }
+        }
+        return result;
+    }
+}
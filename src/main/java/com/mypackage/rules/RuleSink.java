@@ -0,0 +1,12 @@
+package com.mypackage.rules;
+
+/**
+ * Receives the association rules found by the RuleGenerator.
+ */
+public interface RuleSink {
+    /**
+     * Save a rule.
+     * @param rule the rule
+     */
+    public abstract void save(AssociationRule rule) throws Exception;
+}
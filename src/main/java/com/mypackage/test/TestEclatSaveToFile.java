@@ -6,7 +6,7 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 
-import com.mypackage.AssociatedRulesAlgoProc;
+import com.mypackage.MiningSession;
 import com.mypackage.input.TransactionDatabase;
 
 /**
@@ -38,7 +38,7 @@ public class TestEclatSaveToFile {
 //		context.printContext();
 
         // Run the ECLAT algorithm
-        AssociatedRulesAlgoProc algo = new AssociatedRulesAlgoProc();
+        MiningSession algo = new MiningSession(null);
         algo.setDatabase(database);
         algo.setDestination("neo4j");
 
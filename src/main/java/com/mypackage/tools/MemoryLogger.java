@@ -61,7 +61,7 @@ public class MemoryLogger {
      * Check the current memory usage and record it if it is higher
      * than the amount of memory previously recorded.
      */
-    public void checkMemory() {
+    public synchronized void checkMemory() {
         double currentMemory = (Runtime.getRuntime().totalMemory() -  Runtime.getRuntime().freeMemory())
                 / 1024d / 1024d;
         if (currentMemory > maxMemory) {
@@ -0,0 +1,171 @@
+package com.mypackage.tools;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import org.neo4j.graphdb.Node;
+
+/**
+ * Typed access to the optional configuration map passed to a procedure, e.g.
+ * CALL com.mypackage.eclat(cypher, 0.01, true, {tidset:'roaring'}).
+ * Missing or null entries fall back to the given default values.
+ *
+ * @author JY, LX
+ */
+public class ProcedureConfig {
+    /** Key of the column of the Cypher result holding the item set of each row. */
+    public static final String ITEMSET_COLUMN = "itemSetColumn";
+    /** Key of the column of the Cypher result holding the transaction id, when each row is a (transaction, item) pair. */
+    public static final String TRANSACTION_COLUMN = "transactionColumn";
+    /** Key of the column of the Cypher result holding the item, when each row is a (transaction, item) pair. */
+    public static final String ITEM_COLUMN = "itemColumn";
+    /** Key of the algorithm finding the itemsets: 'eclat' or 'fpgrowth'. */
+    public static final String ALGORITHM = "algorithm";
+    /** Key of the tidset representation: 'hashset', 'roaring' or 'adaptive'. */
+    public static final String TIDSET = "tidset";
+    /** Key of the triangular matrix implementation: 'auto', 'dense' or 'sparse'. */
+    public static final String MATRIX = "matrix";
+    /** Key of whether transactions are stored outside of the Java heap, in direct buffers. */
+    public static final String OFF_HEAP = "offHeap";
+    /** Key of the length of prefix from which dEclat uses diffsets instead of tidsets (0 = never). */
+    public static final String DIFFSET_DEPTH = "diffsetDepth";
+    /** Key of the kind of itemsets output: 'all', 'closed' or 'maximal'. */
+    public static final String ITEMSETS = "itemsets";
+    /** Key of the number of itemsets of highest support output by top-K mining (0 = all frequent itemsets). */
+    public static final String TOP_K = "topK";
+    /** Key of the largest number of items of an itemset (0 = unlimited). */
+    public static final String MAX_LENGTH = "maxLength";
+    /** Key of the items that every itemset must contain: a list of ids or nodes. */
+    public static final String MUST_CONTAIN = "mustContain";
+    /** Key of the items allowed in the consequents of rules: a list of ids or nodes. */
+    public static final String CONSEQUENT_IN = "consequentIn";
+    /** Key of the number of threads mining equivalence classes. */
+    public static final String PARALLELISM = "parallelism";
+    /** Key of the number of itemsets written into Neo4j per statement. */
+    public static final String BATCH_SIZE = "batchSize";
+    /** Key of the number of itemsets written into Neo4j per transaction. These transactions are not the caller's:
+     *  they are committed as mining goes on, so a failed or terminated call leaves the itemsets already committed. */
+    public static final String COMMIT_SIZE = "commitSize";
+    /** Key of the number of itemsets waiting to be consumed by a streaming procedure. */
+    public static final String QUEUE_SIZE = "queueSize";
+    /** Key of whether an incremental procedure drops the database kept in memory before the update. */
+    public static final String RESET = "reset";
+    /** Key of the largest number of transactions in a sliding window. */
+    public static final String WINDOW_SIZE = "windowSize";
+    /** Key of the largest age of the transactions in a sliding window, in milliseconds (0 = no limit). */
+    public static final String WINDOW_MILLIS = "windowMillis";
+    /** Key of the name of a dataset loaded by dataset.load, mined instead of the result of the Cypher query. */
+    public static final String DATASET = "dataset";
+    /** Key of the memory budget of the cached datasets, in bytes. */
+    public static final String CACHE_BYTES = "cacheBytes";
+
+    // the configuration map
+    private final Map<String, Object> config;
+
+    /**
+     * Constructor.
+     * @param config the configuration map, may be null
+     */
+    public ProcedureConfig(Map<String, Object> config) {
+        this.config = config == null ? Collections.<String, Object>emptyMap() : config;
+    }
+
+    /**
+     * Get a string value.
+     * @param key the key
+     * @param defaultValue the value returned if the key is missing
+     * @return the value.
+     */
+    public String getString(String key, String defaultValue) {
+        Object value = config.get(key);
+        return value == null ? defaultValue : value.toString();
+    }
+
+    /**
+     * Get an int value.
+     * @param key the key
+     * @param defaultValue the value returned if the key is missing
+     * @return the value.
+     */
+    public int getInt(String key, int defaultValue) {
+        Object value = config.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString().trim());
+    }
+
+    /**
+     * Get a long value.
+     * @param key the key
+     * @param defaultValue the value returned if the key is missing
+     * @return the value.
+     */
+    public long getLong(String key, long defaultValue) {
+        Object value = config.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString().trim());
+    }
+
+    /**
+     * Get a double value.
+     * @param key the key
+     * @param defaultValue the value returned if the key is missing
+     * @return the value.
+     */
+    public double getDouble(String key, double defaultValue) {
+        Object value = config.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString().trim());
+    }
+
+    /**
+     * Get a boolean value.
+     * @param key the key
+     * @param defaultValue the value returned if the key is missing
+     * @return the value.
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Object value = config.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Boolean ? (Boolean) value : Boolean.parseBoolean(value.toString().trim());
+    }
+
+    /**
+     * Get a list of items, given as ids, nodes or texts of ids.
+     * @param key the key
+     * @return the items, or null if the key is missing.
+     * @throws IllegalArgumentException if the list contains something else than items
+     */
+    public long[] getLongArray(String key) {
+        Object value = config.get(key);
+        if (value == null) {
+            return null;
+        }
+        Collection<?> values = value instanceof Collection ? (Collection<?>) value : Collections.singletonList(value);
+        long[] items = new long[values.size()];
+        int count = 0;
+        for (Object item : values) {
+            if (item instanceof Number) {
+                items[count++] = ((Number) item).longValue();
+            } else if (item instanceof Node) {
+                items[count++] = ((Node) item).getId();
+            } else if (item != null) {
+                try {
+                    items[count++] = Long.parseLong(item.toString().trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Not an item in " + key + ": " + item);
+                }
+            }
+        }
+        return count == items.length ? items : Arrays.copyOf(items, count);
+    }
+}
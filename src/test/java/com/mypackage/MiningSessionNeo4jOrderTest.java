@@ -0,0 +1,111 @@
+package com.mypackage;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.mypackage.input.TransactionDatabase;
+
+/**
+ * The rows written to Neo4j are linked to the node of their prefix by a MATCH, so a row whose prefix was
+ * not written before it is lost. The statements are written to a query log instead of a database, in the
+ * order in which they would be executed.
+ */
+public class MiningSessionNeo4jOrderTest {
+
+    // a row of the statements: {itemSet=[prefix], support=s, item=i}
+    private static final Pattern ROW = Pattern.compile("\\{itemSet=\\[([^\\]]*)\\], support=\\d+, item=(\\d+)\\}");
+
+    @Test
+    public void prefixesAreWrittenBeforeTheirExtensionsWithConsequents() throws Exception {
+        for (int batchSize = 1; batchSize <= 2; batchSize++) {
+            for (long seed = 1; seed <= 3; seed++) {
+                List<String> missing = missingPrefixes(run(seed, batchSize, new long[] {1020, 1022, 1024}));
+                assertTrue("batch size " + batchSize + ", seed " + seed + ": rows written before their prefix "
+                        + missing, missing.isEmpty());
+            }
+        }
+    }
+
+    /**
+     * Mine a random database of 400 transactions into the query log.
+     * @param seed the seed of the database
+     * @param batchSize the number of rows per statement
+     * @param consequentIn the consequent items
+     * @return the query log.
+     */
+    private static String run(long seed, int batchSize, long[] consequentIn) throws Exception {
+        File input = File.createTempFile("transactions", ".txt");
+        input.deleteOnExit();
+        Random random = new Random(seed);
+        PrintWriter out = new PrintWriter(input);
+        try {
+            for (int t = 0; t < 400; t++) {
+                StringBuilder transaction = new StringBuilder("1000");
+                for (int i = 1; i < 25; i++) {
+                    if (random.nextDouble() < 0.15 + i * 0.02) {
+                        transaction.append(',').append(1000 + i);
+                    }
+                }
+                out.println(transaction);
+            }
+        } finally {
+            out.close();
+        }
+        TransactionDatabase database = new TransactionDatabase();
+        database.loadFile(input.getPath(), ",");
+
+        StringWriter log = new StringWriter();
+        BufferedWriter queryLog = new BufferedWriter(log);
+        MiningSession session = new MiningSession(null);
+        session.setDatabase(database);
+        session.setDestination("neo4j");
+        session.setConsequentIn(consequentIn);
+        session.setBatchSize(batchSize, 10000);
+        session.setQueryLogWriter(queryLog);
+        session.runAlgorithm(null, 0.05, true);
+        queryLog.flush();
+        return log.toString();
+    }
+
+    /**
+     * Check the rows of the query log in order.
+     * @param log the query log
+     * @return the prefixes which were not written before a row extending them.
+     */
+    private static List<String> missingPrefixes(String log) {
+        Set<List<Long>> written = new HashSet<List<Long>>();
+        List<String> missing = new ArrayList<String>();
+        Matcher row = ROW.matcher(log);
+        while (row.find()) {
+            List<Long> itemset = new ArrayList<Long>();
+            for (String item : row.group(1).split(",")) {
+                if (!item.trim().isEmpty()) {
+                    itemset.add(Long.valueOf(item.trim()));
+                }
+            }
+            Collections.sort(itemset);
+            if (!itemset.isEmpty() && !written.contains(itemset)) {
+                missing.add(itemset.toString());
+                continue;
+            }
+            itemset.add(Long.valueOf(row.group(2)));
+            Collections.sort(itemset);
+            written.add(itemset);
+        }
+        return missing;
+    }
+}
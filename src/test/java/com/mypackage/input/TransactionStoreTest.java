@@ -0,0 +1,48 @@
+package com.mypackage.input;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * A direct buffer holds at most Integer.MAX_VALUE bytes, i.e. Integer.MAX_VALUE / 4 ints, while a store on the
+ * heap holds up to Integer.MAX_VALUE - 8 item occurrences.
+ */
+public class TransactionStoreTest {
+
+    @Test
+    public void directBytesOfTheLargestDirectBuffer() {
+        assertEquals(Integer.MAX_VALUE - 3, TransactionStore.directBytes(Integer.MAX_VALUE / 4, "values"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void directBytesBeyondTheLargestDirectBuffer() {
+        TransactionStore.directBytes(Integer.MAX_VALUE / 4 + 1, "values");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void directBytesOfTheLargestStore() {
+        // 4 * length overflowed to a negative size in int arithmetic
+        TransactionStore.directBytes(Integer.MAX_VALUE - 8, "values");
+    }
+
+    @Test
+    public void compactOffHeapKeepsTheTransactions() {
+        TransactionStore store = new TransactionStore(2, 4);
+        store.add(new int[] {3, 1, 4}, 3);
+        store.add(new int[] {0, 1, 5, 9}, 1, 3);
+        store.add(new int[0], 0);
+        store.compact(true);
+
+        assertEquals(3, store.size());
+        assertEquals(6, store.getOccurrenceCount());
+        assertEquals(3, store.getMaxLength());
+        assertEquals(3, store.getLength(0));
+        assertEquals(4, store.get(0, 2));
+        assertEquals(3, store.getLength(1));
+        assertEquals(1, store.get(1, 0));
+        assertEquals(9, store.get(1, 2));
+        assertEquals(0, store.getLength(2));
+        assertEquals(4L * (6 + 4), store.estimateBytes());
+    }
+}